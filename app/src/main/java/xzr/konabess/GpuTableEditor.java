@@ -3,7 +3,9 @@ package xzr.konabess;
 import android.content.Context;
 import android.content.res.ColorStateList;
 import android.graphics.Color;
+import android.text.Editable;
 import android.text.InputType;
+import android.text.TextWatcher;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
 import android.view.View;
@@ -24,282 +26,154 @@ import com.google.android.material.color.MaterialColors;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.textview.MaterialTextView;
 
-import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import xzr.konabess.adapters.ParamAdapter;
+import xzr.konabess.ect.AsvLookup;
+import xzr.konabess.ect.PllSolver;
+import xzr.konabess.sim.EnergyModel;
+import xzr.konabess.sim.ThroughputModel;
 import xzr.konabess.utils.DialogUtil;
-import xzr.konabess.utils.DtsHelper;
+import xzr.konabess.utils.DtbPatcher;
+import xzr.konabess.utils.DtsScanner;
+import xzr.konabess.utils.DtsSpliceWriter;
+import xzr.konabess.utils.FdtReader;
+import xzr.konabess.utils.GpuTable;
 
 /**
- * Parses Samsung GPU DVFS properties from a decompiled DTS, exposes them to the editor UI, and
- * serializes edited values back into the source file.
+ * Parses Samsung GPU DVFS properties from a DTB or decompiled DTS, exposes them to the editor UI,
+ * and serializes edited values back into the same source.
  *
  * <p>The editor uses static session state. {@link #init()} must run before {@link #decode()}, and
- * decoding must complete before UI generation or serialization.
+ * decoding must complete before UI generation or serialization. Sessions backed by a DTB read the
+ * properties directly from the blob instead of a decompiled DTS.
  */
 public class GpuTableEditor {
     private static final List<bin> bins = new ArrayList<>();
 
-    private static int binPosition;
-    private static int bin_positiondv;
-    private static int binPositionMax;
-    private static int binPositionMaxLimit;
-    private static int binPositionMin;
+    private static FdtReader.gpuProperties gpuProperties;
 
-    private static List<String> linesInDtsCode = new ArrayList<>();
+    private static DtsScanner.result dtsScan;
 
+    /** ASV domain of the GPU. */
+    private static final String ASV_DOMAIN = "dvfs_g3d";
+    /** Voltage tables read once per session, or {@code null} when the device exposes none. */
+    private static AsvLookup asvLookup;
+    /** ASV group of this device's GPU, valid while {@link #asvLookup} is set. */
+    private static int asvGroup;
+    /** Whether the chip should expose ASV tables but they could not be read. */
+    private static boolean asvFailed;
     /**
-     * Resets parser state and loads {@link KonaBessCore#dts_path} into memory.
-     *
-     * @throws IOException if the selected DTS cannot be read
+     * {@code PLL_G3D} index of the active chip, built by the loader thread, or {@code null} when
+     * the chip's PLL limits are unknown and frequencies are saved as typed.
      */
-    public static void init() throws IOException {
-        binPosition = bin_positiondv = binPositionMax = binPositionMaxLimit = binPositionMin = -1;
-
-        bins.clear();
-        linesInDtsCode.clear();
-
-        linesInDtsCode = Files.readAllLines(Paths.get(KonaBessCore.dts_path));
-    }
+    private static PllSolver pll;
 
     /**
-     * Removes supported GPU properties from the loaded DTS and decodes them into one editable bin.
+     * Resets parser state and loads the GPU properties of the active session.
      *
-     * <p>Removal indices are retained for {@link #writeOut(AppCompatActivity)}. Decode failures are
-     * written to standard error and are not propagated.
-     */
-    public static void decode() {
-        List<String> dvLines = new ArrayList<>();
-        List<String> binLines = new ArrayList<>();
-        List<String> maxLines = new ArrayList<>();
-        List<String> maxLimitLines = new ArrayList<>();
-        List<String> minLines = new ArrayList<>();
-
-        for (int i = 0; i < linesInDtsCode.size(); i++) {
-            String currentLine = linesInDtsCode.get(i).trim().replace(">;", "");
-
-            if (isExynos()) {
-                if (currentLine.contains("gpu_dvfs_table_size = <")) {
-                    if (bin_positiondv < 0)
-                        bin_positiondv = i;
-                    dvLines.add(linesInDtsCode.remove(i));
-                    i--;
-                    continue;
-                }
-
-                if (currentLine.contains("gpu_dvfs_table = ")) {
-                    if (binPosition < 0) binPosition = i;
-                    binLines.add(linesInDtsCode.remove(i));
-                    i--;
-                    continue;
-                }
-
-                if (currentLine.contains("gpu_max_clock = <")) {
-                    if (binPositionMax < 0) binPositionMax = i;
-                    maxLines.add(linesInDtsCode.remove(i));
-                    i--;
-                    continue;
-                }
-
-                if (currentLine.contains("gpu_max_clock_limit = <")) {
-                    if (binPositionMaxLimit < 0) binPositionMaxLimit = i;
-                    maxLimitLines.add(linesInDtsCode.remove(i));
-                    i--;
-                    continue;
-                }
-
-                if (currentLine.contains("gpu_min_clock = <")) {
-                    if (binPositionMin < 0) binPositionMin = i;
-                    minLines.add(linesInDtsCode.remove(i));
-                    i--;
-                }
-            }
-        }
-
-        try {
-            if (!dvLines.isEmpty()) decodeTableSize(dvLines);
-            if (!binLines.isEmpty()) decode_bin(binLines);
-            if (!maxLines.isEmpty()) decodeTableMax(maxLines);
-            if (!maxLimitLines.isEmpty()) decodeTableMaxLimit(maxLimitLines);
-            if (!minLines.isEmpty()) decodeTableMin(minLines);
-
-            mergeBins();
-        } catch (Exception e) {
-            System.err.println("Error during decoding process: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Checks whether the active chip uses the table format handled by this editor.
-     *
-     * @return {@code true} for the four recognized Exynos models
-     */
-    private static boolean isExynos() {
-        return ChipInfo.which == ChipInfo.type.exynos9820 || ChipInfo.which == ChipInfo.type.exynos9825 || ChipInfo.which == ChipInfo.type.exynos9810|| ChipInfo.which == ChipInfo.type.exynos990;
-    }
-
-    /**
-     * Combines the five partial decode results into the table bin at index one.
-     *
-     * <p>The required append order is size, table, max clock, max-clock limit, and min clock. All
-     * temporary bins are removed after their values are copied.
+     * <p>When {@link KonaBessCore#dtb_path} is set the properties are read straight from the DTB
+     * returned by {@link KonaBessCore#openDtb()}; otherwise {@link KonaBessCore#dts_path} is scanned
+     * once for the property lines.
      *
-     * @throws IndexOutOfBoundsException if a required property was not decoded
+     * @throws IOException if the selected DTB or DTS cannot be read
      */
-    public static void mergeBins() {
-        bins.get(1).dvfsSize.add(bins.get(0).dvfsSize.get(0));
-
-        bins.get(1).max.add(bins.get(2).max.get(0));
-        bins.get(1).maxLimit.add(bins.get(3).maxLimit.get(0));
-        bins.get(1).min.add(bins.get(4).min.get(0));
+    public static void init() throws IOException {
+        bins.clear();
+        gpuProperties = null;
+        dtsScan = null;
 
-        for (int i = 4; i >= 0; i--) {
-            if (i != 1) bins.remove(i);
+        if (KonaBessCore.dtb_path != null) {
+            gpuProperties = FdtReader.readGpuProperties(KonaBessCore.openDtb());
+        } else {
+            scanDts();
         }
     }
 
     /**
-     * Decodes the first {@code gpu_dvfs_table_size} property into a partial bin.
+     * Scans the session DTS for the GPU property lines.
      *
-     * @param lines matching DTS property lines
+     * @throws IOException if the DTS cannot be read
      */
-    public static void decodeTableSize(List<String> lines) {
-        bin bin = new bin();
-        bin.dvfsSize = new ArrayList<>();
-
-        bin.dvfsSize.add(
-                decodeTableFrequency(
-                        lines.get(0)
-                                .trim()
-                                .replace("gpu_dvfs_table_size = <", "")
-                                .replace(">;", "")
-                )
-        );
-        bins.add(bin);
+    private static void scanDts() throws IOException {
+        dtsScan = DtsScanner.scanGpuProperties(Paths.get(KonaBessCore.dts_path));
     }
 
     /**
-     * Decodes the first {@code gpu_max_clock} property into a partial bin.
+     * Decodes the supported GPU properties into one editable bin.
      *
-     * @param lines matching DTS property lines
+     * <p>DTB sessions take the cells read by {@link #init()} as they are. DTS sessions parse the
+     * first matching line of each property found by the scan, once. Decode failures are written to
+     * standard error and are not propagated.
      */
-    public static void decodeTableMax(List<String> lines) {
-        bin bin = new bin();
-        bin.max = new ArrayList<>();
-        bin.max.add(
-                decodeTableFrequency(
-                        lines.get(0)
-                                .trim()
-                                .replace("gpu_max_clock = <", "")
-                                .replace(">;", "")
-                )
-        );
-        bins.add(bin);
-    }
-
-    /**
-     * Decodes the first {@code gpu_max_clock_limit} property into a partial bin.
-     *
-     * @param lines matching DTS property lines
-     */
-    public static void decodeTableMaxLimit(List<String> lines) {
-        bin bin = new bin();
-        bin.maxLimit = new ArrayList<>();
-        bin.maxLimit.add(
-                decodeTableFrequency(
-                        lines.get(0)
-                                .trim()
-                                .replace("gpu_max_clock_limit = <", "")
-                                .replace(">;", "")
-                )
-        );
-        bins.add(bin);
-    }
+    public static void decode() {
+        try {
+            GpuTable table;
+            if (gpuProperties != null) {
+                FdtReader.property[] properties = gpuProperties.properties;
+                table = GpuTable.fromCells(properties[0].cells, properties[1].cells,
+                        properties[2].cells, properties[3].cells, properties[4].cells);
+            } else if (isExynos()) {
+                int[][] cells = new int[DtsScanner.GPU_PATTERNS.length][];
+                for (int type = 0; type < cells.length; type++) {
+                    DtsScanner.range first = dtsScan.first[type];
+                    if (first == null) {
+                        throw new IllegalArgumentException("Missing " + GpuTable.PROPERTIES[type]);
+                    }
+                    cells[type] = GpuTable.parseCells(first.text);
+                }
+                table = GpuTable.fromCells(cells[0], cells[1], cells[2], cells[3], cells[4]);
+            } else {
+                return;
+            }
 
-    /**
-     * Decodes the first {@code gpu_min_clock} property into a partial bin.
-     *
-     * @param lines matching DTS property lines
-     */
-    public static void decodeTableMin(List<String> lines) {
-        bin bin = new bin();
-        bin.min = new ArrayList<>();
-        bin.min.add(
-                decodeTableFrequency(
-                        lines.get(0)
-                                .trim()
-                                .replace("gpu_min_clock = <", "")
-                                .replace(">;", "")
-                )
-        );
-        bins.add(bin);
+            bin bin = new bin();
+            bin.id = 0;
+            bin.table = table;
+            bins.add(bin);
+        } catch (Exception e) {
+            System.err.println("Error during decoding process: " + e.getMessage());
+        }
     }
 
     /**
-     * Decodes the first {@code gpu_dvfs_table} property into frequency and metadata rows.
+     * Loads the ASV voltage tables and group once per session.
      *
-     * <p>Each row contains one frequency cell followed by seven metadata cells.
+     * <p>Chips whose ASV nodes are not known are not probed and edit without voltages. On the
+     * others a failed read is not fatal either: the levels say the voltage is unavailable.
      *
-     * @param lines matching DTS property lines
+     * @param context context used to locate internal storage
      */
-    public static void decode_bin(List<String> lines) {
-        bin bin = new bin();
-        bin.header = new ArrayList<>();
-        bin.levels = new ArrayList<>();
-        bin.meta = new ArrayList<>();
-        bin.max = new ArrayList<>();
-        bin.min = new ArrayList<>();
-        bin.maxLimit = new ArrayList<>();
-        bin.dvfsSize = new ArrayList<>();
-        bin.id = 0;
-
-        String[] hexArray = lines.get(0)
-                .trim()
-                .replace("gpu_dvfs_table = <", "")
-                .split(" ");
-
-        List<List<String>> result = new ArrayList<>();
-        for (int i = 0; i < hexArray.length; i += 8) {
-            result.add(Arrays.asList(
-                    Arrays.copyOfRange(hexArray, i, Math.min(i + 8, hexArray.length))
-            ));
-        }
-
-        for (List<String> group : result) {
-            bin.levels.add(decodeTableFrequency(group.get(0)));
+    private static void loadAsv(Context context) {
+        if (asvLookup != null) {
+            return;
         }
-
-        List<String> meta = new ArrayList<>();
-        for (List<String> group : result) {
-            meta.add(String.join(" ", group.subList(1, group.size())));
+        asvFailed = false;
+        if (!AsvLookup.hasKernelNodes(ChipInfo.which.name())) {
+            return;
         }
-        for (String m : meta) {
-            bin.meta.add(decodeTableFrequency(m));
+        try {
+            File[] files = KonaBessCore.exportAsvInfo(context);
+            asvGroup = AsvLookup.readGroup(files[1].toPath());
+            asvLookup = AsvLookup.read(files[0].toPath());
+        } catch (IOException e) {
+            asvFailed = true;
         }
-
-        bins.add(bin);
     }
 
     /**
-     * Stores a trimmed table fragment in a level container.
+     * Checks whether the active chip uses the table format handled by this editor.
      *
-     * @param lines scalar or metadata cells from a DTS property
-     * @return level containing the normalized fragment
+     * @return {@code true} for the four recognized Exynos models
      */
-    private static level decodeTableFrequency(String lines) {
-        level level = new level();
-        level.lines = new ArrayList<>();
-
-        level.lines.add(lines.trim().replace(">;", ""));
-        return level;
+    private static boolean isExynos() {
+        return ChipInfo.which == ChipInfo.type.exynos9820 || ChipInfo.which == ChipInfo.type.exynos9825 || ChipInfo.which == ChipInfo.type.exynos9810|| ChipInfo.which == ChipInfo.type.exynos990;
     }
 
     /**
@@ -317,106 +191,66 @@ public class GpuTableEditor {
             return List.of();
         }
 
-        List<String> lines = new ArrayList<>();
-
-        switch (type) {
-            case 0 ->
-                    appendLines(lines, "gpu_dvfs_table_size = <", bins.get(0).dvfsSize.get(0).lines);
-            case 1 -> {
-                lines.add("gpu_dvfs_table = <");
-                int l = 0;
-
-                for (var level : bins.get(0).levels) {
-                    lines.addAll(level.lines);
-                    lines.add(" ");
-                    for (String metaLine : bins.get(0).meta.get(l++).lines) {
-                        lines.add(metaLine.trim());
-                        lines.add(" ");
-                    }
-                }
-
-                lines.remove(lines.size() - 1);
-                lines.add(">;");
-            }
-            case 2 ->
-                    appendLines(lines, "gpu_max_clock = <", bins.get(0).max.get(0).lines);
-            case 3 ->
-                    appendLines(lines, "gpu_max_clock_limit = <", bins.get(0).maxLimit.get(0).lines);
-            case 4 ->
-                    appendLines(lines, "gpu_min_clock = <", bins.get(0).min.get(0).lines);
-            default ->
-                    throw new IllegalArgumentException("Invalid type: " + type);
-        }
+        String line = bins.get(0).table.format(type);
 
-        if (!String.join("", lines).contains("0x")) {
-            System.out.println("table: " + List.of(String.join("", lines)));
+        if (!line.contains("0x")) {
+            System.out.println("table: " + line);
 
             DialogUtil.showError(activity, "Something is messed up with the data");
             throw new RuntimeException("Output does not contain '0x' so something is messed up");
         }
 
-        return List.of(String.join("", lines));
+        return List.of(line);
     }
 
     /**
-     * Appends a DTS property prefix, its cells, and the closing delimiter.
+     * Writes all generated GPU properties back to the session source.
      *
-     * @param lines serialization buffer
-     * @param prefix property name and opening delimiter
-     * @param content serialized property cells
-     */
-    private static void appendLines(List<String> lines, String prefix, List<String> content) {
-        lines.add(prefix);
-        lines.addAll(content);
-        lines.add(">;");
-    }
-
-    /**
-     * Reinserts all generated GPU properties and replaces the selected DTS file.
-     *
-     * <p>Property positions recorded by {@link #decode()} are used against the DTS with its original
-     * GPU properties removed.
+     * <p>DTB sessions patch the property payloads in place, leaving the rest of the blob untouched.
+     * DTS sessions splice the properties over the scanned lines, keeping the rest of the file
+     * byte-identical, and scan it again for the next save.
      *
      * @param activity activity used by serialization error dialogs
-     * @throws IOException if the DTS cannot be created or replaced
+     * @throws IOException if the DTB or DTS cannot be created or replaced
      */
     public static void writeOut(AppCompatActivity activity) throws IOException {
-        Path filePath = Paths.get(KonaBessCore.dts_path);
-
-        ArrayList<String> newDts = new ArrayList<>(linesInDtsCode);
-
-        newDts.addAll(binPosition, genTable(1, activity));
-
-        newDts.addAll(bin_positiondv, genTable(0, activity));
-
-        newDts.addAll(binPositionMin, genTable(4, activity));
+        if (gpuProperties != null) {
+            writeOutDtb();
+            return;
+        }
 
-        newDts.addAll(binPositionMaxLimit, genTable(3, activity));
+        String[] properties = new String[DtsScanner.GPU_PATTERNS.length];
+        for (int type = 0; type < properties.length; type++) {
+            List<String> table = genTable(type, activity);
+            properties[type] = table.isEmpty() ? null : table.get(0);
+        }
 
-        newDts.addAll(binPositionMax, genTable(2, activity));
+        DtsSpliceWriter.splice(Paths.get(KonaBessCore.dts_path), dtsScan, properties);
 
-        try (BufferedWriter writer = Files.newBufferedWriter(
-                filePath,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING)) {
-            for (String line : newDts) {
-                writer.write(line);
-                writer.newLine();
-            }
-        }
+        scanDts();
     }
 
     /**
-     * Copies a level and its mutable line list.
+     * Patches the generated GPU properties into the session DTB.
+     *
+     * <p>The located properties are refreshed from the patched blob so later saves address the
+     * moved offsets.
      *
-     * @param from source level
-     * @return independent level container
+     * @throws IOException if the DTB cannot be read, patched, or replaced
      */
-    private static level level_clone(level from) {
-        level next = new level();
+    private static void writeOutDtb() throws IOException {
+        Path dtbPath = Paths.get(KonaBessCore.dtb_path);
+
+        GpuTable table = bins.get(0).table;
+        int[][] values = new int[GpuTable.PROPERTIES.length][];
+        for (int type = 0; type < values.length; type++) {
+            values[type] = table.cells(type);
+        }
 
-        next.lines = new ArrayList<>(from.lines);
-        return next;
+        ByteBuffer patched = DtbPatcher.patch(KonaBessCore.openDtb(), gpuProperties.properties, values);
+        DtbPatcher.write(patched, dtbPath);
+
+        gpuProperties = FdtReader.readGpuProperties(patched);
     }
 
     /**
@@ -432,36 +266,6 @@ public class GpuTableEditor {
         return true;
     }
 
-    /**
-     * Encodes a table-size value as a hexadecimal cell followed by {@code 0x8}.
-     *
-     * @param input number of frequency rows
-     * @return encoded level container
-     */
-    private static level inputToHex(int input) {
-        level level = new level();
-
-        level.lines = List.of("0x" + Integer.toHexString(input) + " 0x8");
-        return level;
-    }
-
-    /**
-     * Parses the first hexadecimal fragment stored in a level.
-     *
-     * @param level frequency level
-     * @return decoded numeric frequency
-     * @throws IllegalArgumentException if the hexadecimal fragment is malformed
-     * @throws Exception if the level contains no hexadecimal fragment
-     */
-    private static long getFrequencyFromLevel(level level) throws Exception {
-        return level.lines.stream()
-                .filter(line -> line.contains("0x"))
-                .findFirst()
-                .map(DtsHelper::decode_int_line)
-                .map(decoded -> decoded.value)
-                .orElseThrow(Exception::new);
-    }
-
     /**
      * Displays the frequency rows for one bin and installs add, edit, remove, and back actions.
      *
@@ -502,13 +306,25 @@ public class GpuTableEditor {
             subtitle = activity.getResources().getString(R.string.new_desc);
         }});
 
-        for (level level : bins.get(id).levels) {
-            long freq = getFrequencyFromLevel(level);
+        GpuTable table = bins.get(id).table;
+        EnergyModel model = asvLookup == null ? null
+                : EnergyModel.forChip(ChipInfo.which.name(), asvLookup, ASV_DOMAIN, asvGroup);
+        EnergyModel.report energy = model == null ? null : model.report(table);
+        ThroughputModel throughput = ThroughputModel.forChip(ChipInfo.which.name());
+        ThroughputModel.rates rates = new ThroughputModel.rates();
+        for (int row = 0; row < table.rows(); row++) {
+            long freq = table.frequency(row);
             if (freq == 0) continue;
 
             ParamAdapter.item item = new ParamAdapter.item();
             item.title = freq / 1000 + "MHz";
-            item.subtitle = "";
+            item.subtitle = describeLevel(activity, table, energy, row);
+            if (throughput != null) {
+                throughput.at(freq, rates);
+                String peak = activity.getString(R.string.level_throughput,
+                        rates.flops / 1e9, rates.texels / 1e9, rates.pixels / 1e9);
+                item.subtitle = item.subtitle.isEmpty() ? peak : item.subtitle + "\n" + peak;
+            }
             items.add(item);
         }
 
@@ -649,11 +465,12 @@ public class GpuTableEditor {
             return;
         }
 
-        if (bins.get(id).levels.size() == 1) {
+        GpuTable table = bins.get(id).table;
+        if (table.rows() == 1) {
             return;
         }
         try {
-            long freqMHz = getFrequencyFromLevel(bins.get(id).levels.get(position - 2)) / 1000;
+            long freqMHz = table.frequency(position - 2) / 1000;
             String message = String.format(
                     activity.getResources().getString(R.string.remove_msg),
                     freqMHz
@@ -664,8 +481,7 @@ public class GpuTableEditor {
                     .setMessage(message)
                     .setPositiveButton(R.string.yes,
                             (dialog, which) -> {
-                                bins.get(id).levels.remove(position - 2);
-                                bins.get(id).meta.remove(position - 2);
+                                table.remove(position - 2);
                                 try {
                                     generateLevels(activity, id, page);
                                 } catch (Exception e) {
@@ -699,14 +515,8 @@ public class GpuTableEditor {
                 if (!canAddNewLevel(id, activity))
                     return true;
 
-                bins.get(id).levels.add(
-                        bins.get(id).levels.size() - 1,
-                        level_clone(bins.get(id).levels.get(bins.get(id).levels.size() - 1))
-                );
-
-                bins.get(0).meta.add(
-                        bins.get(0).meta.get(bins.get(0).meta.size() - 1)
-                );
+                GpuTable table = bins.get(id).table;
+                table.insertCopy(table.rows(), table.rows() - 1);
 
                 generateLevels(activity, id, page);
             } catch (Exception e) {
@@ -718,17 +528,13 @@ public class GpuTableEditor {
     }
 
     /**
-     * Synchronizes min, max, max-limit, and table-size properties with the current row list.
+     * Synchronizes the min, max, and max-limit clocks with the current row list.
      *
-     * <p>Rows are expected in descending frequency order.
+     * <p>Rows are expected in descending frequency order. The table size is derived from the row
+     * count when the table is serialized.
      */
     private static void generateData() {
-        bins.get(0).min.set(0, bins.get(0).levels.get(bins.get(0).levels.size() - 1));
-
-        bins.get(0).max.set(0, bins.get(0).levels.get(0));
-        bins.get(0).maxLimit.set(0, bins.get(0).levels.get(0));
-
-        bins.get(0).dvfsSize.set(0, inputToHex(bins.get(0).levels.size()));
+        bins.get(0).table.syncLimits();
     }
 
     /**
@@ -746,12 +552,7 @@ public class GpuTableEditor {
                 if (!canAddNewLevel(id, activity))
                     return true;
 
-                bins.get(id).levels.add(
-                        0,
-                        level_clone(bins.get(id).levels.get(0))
-                );
-
-                bins.get(0).meta.add(0, bins.get(0).meta.get(0));
+                bins.get(id).table.insertCopy(0, 0);
 
                 generateLevels(activity, id, page);
             } catch (Exception e) {
@@ -785,15 +586,18 @@ public class GpuTableEditor {
     }
 
     /**
-     * Displays and edits the scalar fragments stored for one frequency level.
+     * Displays and edits the frequency of one level.
      *
-     * <p>Saved decimal input is converted to hexadecimal before replacing the selected fragment.
+     * <p>Saved input is a decimal frequency in kHz and must fit in an unsigned 32-bit cell. On chips
+     * whose PLL limits are known, the dialog shows the nearest frequency {@code PLL_G3D} can lock
+     * to while the user types, and a frequency it cannot lock to is only replaced by that one
+     * after the user confirms.
      *
      * @param activity activity hosting the editor
      * @param last bin index
      * @param levelID frequency-row index
      * @param page container replaced with the parameter list
-     * @throws Exception if an existing fragment cannot be decoded
+     * @throws Exception if the level list cannot be regenerated
      */
     private static void generateALevel(AppCompatActivity activity, int last, int levelID, LinearLayout page) throws Exception {
         ((MainActivity) activity).onBackPressedListener = new MainActivity.onBackPressedListener() {
@@ -815,14 +619,11 @@ public class GpuTableEditor {
             title = activity.getResources().getString(R.string.back);
             subtitle = "";
         }});
-        for (String line : bins.get(last).levels.get(levelID).lines) {
-            ParamAdapter.item item = new ParamAdapter.item();
-            item.title = KonaBessStr.convert_level_params(
-                    DtsHelper.decode_hex_line(line).name, activity
-            );
-            item.subtitle = String.valueOf(DtsHelper.decode_int_line(line).value);
-            items.add(item);
-        }
+        GpuTable table = bins.get(last).table;
+        ParamAdapter.item frequency = new ParamAdapter.item();
+        frequency.title = KonaBessStr.convert_level_params("gpu-freq", activity);
+        frequency.subtitle = String.valueOf(table.frequency(levelID));
+        items.add(frequency);
 
         recyclerView.setAdapter(new MaterialLevelAdapter(items, activity, (position) -> {
             try {
@@ -831,36 +632,62 @@ public class GpuTableEditor {
                     return;
                 }
 
-                String raw_value = String.valueOf(
-                        DtsHelper.decode_int_line(
-                                bins.get(last).levels.get(levelID).lines.get(position - 1)
-                        ).value
-                );
+                String raw_value = String.valueOf(table.frequency(levelID));
                 EditText editText = new EditText(activity);
                 editText.setInputType(InputType.TYPE_CLASS_NUMBER);
                 editText.setText(raw_value);
                 editText.setPadding(32, 32, 32, 32);
 
-                new MaterialAlertDialogBuilder(activity)
+                AlertDialog editDialog = new MaterialAlertDialogBuilder(activity)
                         .setTitle(activity.getResources().getString(R.string.edit)
                                 + " \"" + items.get(position).title + "\"")
+                        .setMessage(describePll(activity, raw_value))
                         .setView(editText)
                         .setPositiveButton(R.string.save, (dialog, which) -> {
                             try {
-                                bins.get(last).levels.get(levelID).lines.set(
-                                        position - 1,
-                                        DtsHelper.inputToHex(editText.getText().toString())
-                                );
-
-                                generateALevel(activity, last, levelID, page);
-                                Toast.makeText(activity, R.string.save_success, Toast.LENGTH_SHORT).show();
+                                long value = Long.parseLong(editText.getText().toString().trim());
+                                if (value < 0 || value > 0xffffffffL) {
+                                    throw new IllegalArgumentException("Frequency out of range: " + value);
+                                }
+                                long snapped = pll == null ? value : pll.nearest(value).frequency;
+                                if (snapped == value) {
+                                    saveFrequency(activity, last, levelID, page, value);
+                                    return;
+                                }
+                                new MaterialAlertDialogBuilder(activity)
+                                        .setTitle(R.string.pll_snap_title)
+                                        .setMessage(activity.getString(R.string.pll_snap_msg,
+                                                value, snapped))
+                                        .setPositiveButton(R.string.yes, (confirm, button) ->
+                                                saveFrequency(activity, last, levelID, page, snapped))
+                                        .setNegativeButton(R.string.no, null)
+                                        .create()
+                                        .show();
                             } catch (Exception e) {
                                 e.printStackTrace();
                                 DialogUtil.showError(activity, R.string.save_failed);
                             }
                         })
                         .setNegativeButton(R.string.cancel, null)
-                        .create().show();
+                        .create();
+                editText.addTextChangedListener(new TextWatcher() {
+                    /** Unused. */
+                    @Override
+                    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                    }
+
+                    /** Unused. */
+                    @Override
+                    public void onTextChanged(CharSequence s, int start, int before, int count) {
+                    }
+
+                    /** Shows the lockable frequency nearest to the input. */
+                    @Override
+                    public void afterTextChanged(Editable s) {
+                        editDialog.setMessage(describePll(activity, s.toString()));
+                    }
+                });
+                editDialog.show();
             } catch (Exception e) {
                 e.printStackTrace();
                 DialogUtil.showError(activity, R.string.error_occur);
@@ -879,6 +706,82 @@ public class GpuTableEditor {
         page.addView(cardView);
     }
 
+    /**
+     * Stores an accepted frequency and redraws the level.
+     *
+     * @param activity activity hosting the editor
+     * @param last bin index
+     * @param levelID frequency-row index
+     * @param page container replaced with the parameter list
+     * @param frequency frequency in kHz
+     */
+    private static void saveFrequency(AppCompatActivity activity, int last, int levelID,
+                                      LinearLayout page, long frequency) {
+        try {
+            bins.get(last).table.setFrequency(levelID, frequency);
+            generateALevel(activity, last, levelID, page);
+            Toast.makeText(activity, R.string.save_success, Toast.LENGTH_SHORT).show();
+        } catch (Exception e) {
+            e.printStackTrace();
+            DialogUtil.showError(activity, R.string.save_failed);
+        }
+    }
+
+    /**
+     * Describes the voltage and estimated energy cost of one level.
+     *
+     * <p>Voltages above the ASV table are extrapolated by the energy model and marked as estimates.
+     * Chips without a power calibration show only the ASV voltage.
+     *
+     * @param activity activity used to resolve string resources
+     * @param table table being edited
+     * @param energy energy report of {@code table}, or {@code null} when the chip has no power
+     *     calibration
+     * @param row table row
+     * @return level label, or an empty string when the chip has no ASV tables
+     */
+    private static String describeLevel(AppCompatActivity activity, GpuTable table,
+                                        EnergyModel.report energy, int row) {
+        if (asvLookup == null) {
+            return asvFailed ? activity.getString(R.string.level_voltage_unavailable) : "";
+        }
+        int tableVoltage = asvLookup.voltage(ASV_DOMAIN, table.frequency(row), asvGroup);
+        int voltage = energy == null ? tableVoltage : energy.voltages[row];
+        if (voltage == AsvLookup.UNKNOWN) {
+            return activity.getString(R.string.level_voltage_unknown);
+        }
+        String label = activity.getString(tableVoltage == AsvLookup.UNKNOWN
+                ? R.string.level_voltage_estimated : R.string.level_voltage, voltage / 1000.0);
+        if (energy == null) {
+            return label;
+        }
+        return label + "\n" + activity.getString(R.string.level_energy,
+                energy.powers[row] / 1000, energy.perfPerWatt[row], energy.marginalCost[row]);
+    }
+
+    /**
+     * Describes the {@code PLL_G3D} setting nearest to a typed frequency.
+     *
+     * @param activity activity used to resolve string resources
+     * @param input frequency in kHz as typed
+     * @return nearest lockable frequency and its dividers, or an empty string for invalid input or
+     *     when the chip's PLL limits are unknown
+     */
+    private static String describePll(AppCompatActivity activity, String input) {
+        if (pll == null) {
+            return "";
+        }
+        long value;
+        try {
+            value = Long.parseLong(input.trim());
+        } catch (NumberFormatException e) {
+            return "";
+        }
+        PllSolver.setting setting = pll.nearest(value);
+        return activity.getString(R.string.pll_nearest, setting.frequency, setting.p, setting.m,
+                setting.s);
+    }
+
     /**
      * Displays the parsed bin list and installs navigation back to the main screen.
      *
@@ -1364,18 +1267,7 @@ public class GpuTableEditor {
     /** Complete editable GPU table and its related limit properties. */
     private static class bin {
         int id;
-        List<String> header;
-        List<level> levels;
-        List<level> meta;
-        List<level> dvfsSize;
-        List<level> max;
-        List<level> maxLimit;
-        List<level> min;
-    }
-
-    /** One frequency cell or group of metadata cells. */
-    private static class level {
-        List<String> lines;
+        GpuTable table;
     }
 
     /** Background loader that parses the DTS before constructing the editor on the UI thread. */
@@ -1409,6 +1301,9 @@ public class GpuTableEditor {
             try {
                 init();
                 decode();
+                loadAsv(activity);
+                // Built here rather than at the first keystroke of the level dialog.
+                pll = PllSolver.forChip(ChipInfo.which.name());
             } catch (Exception e) {
                 activity.runOnUiThread(() -> DialogUtil.showError(
                         activity,
@@ -5,19 +5,39 @@ import android.content.Context;
 import androidx.appcompat.app.AppCompatActivity;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
+import xzr.konabess.ect.AsvLookup;
 import xzr.konabess.utils.AssetsUtil;
+import xzr.konabess.utils.BlockDiff;
+import xzr.konabess.utils.ChipDetector;
+import xzr.konabess.utils.DtbExtractor;
+import xzr.konabess.utils.DtbPatcher;
+import xzr.konabess.utils.DtbRepacker;
+import xzr.konabess.utils.FdtReader;
+import xzr.konabess.utils.ImageDigest;
+import xzr.konabess.utils.RootShell;
 
 /**
  * Coordinates privileged image extraction, device-tree conversion, target detection, repacking,
@@ -31,8 +51,6 @@ public class KonaBessCore {
 
     private static final String[] fileList = {
             "dtc",
-            "extract_dtb",
-            "repack_dtb",
             "libz.so",
             "libz.so.1",
             "libz.so.1.3.1",
@@ -45,9 +63,29 @@ public class KonaBessCore {
     /** Absolute path of the decompiled DTS currently open in the editor. */
     public static String dts_path;
 
+    /**
+     * Absolute path the patched DTB is saved to, or {@code null} when the session uses the
+     * decompiled DTS at {@link #dts_path}. Until the first save the DTB is read from its slice of
+     * the mapped image.
+     */
+    public static String dtb_path;
+
+    /** Whether the extracted DTB could be read in process, making {@code dtc} unnecessary. */
+    private static boolean dtbReadable;
+
     /** Filename of the DTB selected from the extraction output. */
     public static String fileNameDtbFile = "";
 
+    /** Device trees located in {@link #fileNameImg}. */
+    public static DtbExtractor.image dtImage;
+    /** Blob of {@link #dtImage} selected for editing. */
+    static DtbExtractor.blob dtbBlob;
+    /**
+     * GPU properties of each blob of {@link #dtImage}, indexed like its blobs, or {@code null} for
+     * blobs the in-process reader rejects.
+     */
+    private static FdtReader.gpuProperties[] blobGpu;
+
     /** Block-device path copied at the start of the current session. */
     public static String devPath;
     /** Local image filename corresponding to {@link #devPath}. */
@@ -57,15 +95,26 @@ public class KonaBessCore {
     public static ArrayList<dtb> dtbs;
 
     /**
-     * Recursively deletes the app's internal files directory before a new editing session.
+     * Deletes the previous session's files from the app's internal files directory.
+     *
+     * <p>The exported tools and their manifest are kept so {@link #setupEnv(Context)} can reuse
+     * them.
      *
      * @param context context that provides the internal files directory
      * @throws IOException if any entry cannot be deleted
      */
     public static void cleanEnv(Context context) throws IOException {
-        File dir = context.getFilesDir();
-
-        deleteRecursive(dir);
+        Set<String> keep = new HashSet<>(Arrays.asList(fileList));
+        keep.add(AssetsUtil.MANIFEST_NAME);
+
+        File[] files = context.getFilesDir().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!keep.contains(file.getName())) {
+                    deleteRecursive(file);
+                }
+            }
+        }
     }
 
     /**
@@ -91,19 +140,20 @@ public class KonaBessCore {
     }
 
     /**
-     * Copies the bundled native tools and libraries into internal storage and makes them accessible
-     * to the root shell.
+     * Exports the bundled native tools and libraries into internal storage and makes them
+     * accessible to the root shell.
+     *
+     * <p>Files left by an earlier launch of the same APK are reused; see
+     * {@link AssetsUtil#syncFiles(Context, String[], File)}.
      *
      * @param context context used to access assets and internal storage
      * @throws IOException if an asset cannot be copied, permission changes fail, or a tool remains
      *     non-executable
      */
     public static void setupEnv(Context context) throws IOException {
-        for (String s : fileList) {
+        for (String s : AssetsUtil.syncFiles(context, fileList, context.getFilesDir())) {
             File destination = new File(context.getFilesDir(), s);
 
-            AssetsUtil.exportFiles(context, s, destination.getAbsolutePath());
-
             if (!destination.setExecutable(true, false) ||
                     !destination.setReadable(true, false) ||
                     !destination.setWritable(true, false)) {
@@ -119,86 +169,40 @@ public class KonaBessCore {
     /**
      * Checks whether {@code su} can execute a command as root.
      *
-     * <p>This method blocks while the root manager handles the request and must therefore be called
-     * from a background thread. Missing or denied root access, command failures, and timeouts are
-     * all reported as {@code false}.
+     * <p>The first call starts the shared {@link RootShell} session and blocks while the root
+     * manager handles the request, so it must be called from a background thread. Missing or denied
+     * root access, command failures, and timeouts are all reported as {@code false}.
      *
-     * @return {@code true} only when {@code su -c id} reports UID 0
+     * @return {@code true} only when {@code id} reports UID 0
      */
     public static boolean hasRootAccess() {
-        Process process = null;
-
         try {
-            process = new ProcessBuilder("su", "-c", "id")
-                    .redirectErrorStream(true)
-                    .start();
-
-            if (!process.waitFor(ROOT_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
-                process.destroyForcibly();
-                return false;
-            }
-
-            if (process.exitValue() != 0) {
-                return false;
-            }
-
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.contains("uid=0")) {
-                        return true;
-                    }
-                }
-            }
+            RootShell.result result = RootShell.exec("id", ROOT_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return result.exitCode == 0 && result.output.contains("uid=0");
         } catch (IOException ignored) {
             return false;
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt();
-            return false;
-        } finally {
-            if (process != null && process.isAlive()) {
-                process.destroyForcibly();
-            }
         }
-
-        return false;
     }
 
     /**
-     * Requests a device reboot through {@code su -c "svc power reboot"}.
+     * Requests a device reboot through {@code svc power reboot}.
      *
-     * @throws IOException if the command cannot start, exits unsuccessfully, or is interrupted
+     * @throws IOException if the command cannot run or exits unsuccessfully
      */
     public static void reboot() throws IOException {
-        Process process = new ProcessBuilder("su", "-c", "svc power reboot")
-                .redirectErrorStream(true)
-                .start();
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            while (reader.readLine() != null) {
-            }
-        }
-
-        try {
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                throw new IOException("Failed to reboot. Exit code: " + exitCode);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Reboot process interrupted.", e);
-        } finally {
-            process.destroy();
+        RootShell.result result = RootShell.exec("svc power reboot");
+        if (result.exitCode != 0) {
+            throw new IOException("Failed to reboot. Exit code: " + result.exitCode);
         }
     }
 
     /**
-     * Copies the active boot, DTB, or DTBO partition into app storage and shared storage.
+     * Copies the active boot, DTB, or DTBO partition into app storage.
      *
      * <p>Exynos 9810 uses the boot partition. Other recognized devices prefer {@code dtb} and fall
      * back to {@code dtbo}. The selected block path and local filename are stored in
-     * {@link #devPath} and {@link #fileNameImg}.
+     * {@link #devPath} and {@link #fileNameImg}. The copy is backed up to shared storage separately
+     * by {@link #backupDtImage(Context)}.
      *
      * @param context context used to locate internal storage
      * @throws IOException if the device cannot be identified, no source partition exists, the root
@@ -206,7 +210,6 @@ public class KonaBessCore {
      */
     public static void getDtImage(Context context) throws IOException {
         String internalBase = context.getFilesDir().getAbsolutePath();
-        String externalBase = "/storage/emulated/0";
 
         File dtb = new File("/dev/block/by-name/dtb");
         File dtbo = new File("/dev/block/by-name/dtbo");
@@ -233,44 +236,71 @@ public class KonaBessCore {
         }
 
         String internalPath = internalBase + "/" + fileNameImg;
-        String externalPath = externalBase + "/" + fileNameImg;
 
-        Process process = null;
-        try {
-            process = new ProcessBuilder("su").redirectErrorStream(true).start();
-            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
-                 BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                writer.write("dd if=" + devPath + " of=" + internalPath + "\n");
-                writer.write("chmod 777 " + internalPath + "\n");
-                writer.write("cp -f " + internalPath + " " + externalPath + "\n");
-                writer.write("exit\n");
-                writer.flush();
-
-                // Drain stdout before waitFor() so a full pipe cannot block the root shell.
-                while (reader.readLine() != null) {  }
-            }
+        RootShell.result result = RootShell.exec(
+                "dd if=" + devPath + " of=" + internalPath + " && chmod 777 " + internalPath);
+        if (result.exitCode != 0) {
+            throw new IOException("Failed to create " + fileNameImg + ": su/dd failed with exit code "
+                    + result.exitCode + ": " + result.output);
+        }
 
-            if (process.waitFor() != 0) {
-                throw new IOException("su/dd failed with exit code " + process.exitValue());
+        File target = new File(internalPath);
+        if (!target.exists() || !target.canRead() || target.length() <= 0L) {
+            if (target.exists()) {
+                target.delete();
             }
+            throw new IOException("Created " + fileNameImg + " is empty or unreadable");
+        }
+    }
 
-            File target = new File(internalPath);
-            if (!target.exists() || !target.canRead() || target.length() <= 0L) {
-                if (target.exists()) {
-                    target.delete();
-                }
-                throw new IOException("Created " + fileNameImg + " is empty or unreadable");
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Interrupted", e);
-        } catch (Exception e) {
-            throw new IOException("Failed to create " + fileNameImg, e);
-        } finally {
-            if (process != null) process.destroy();
+    /**
+     * Copies the image read by {@link #getDtImage(Context)} to shared storage as a user backup.
+     *
+     * <p>Nothing reads the backup back, so it can run while the image is being unpacked.
+     *
+     * @param context context used to locate internal storage
+     * @throws IOException if the root copy fails
+     */
+    public static void backupDtImage(Context context) throws IOException {
+        String internalPath = new File(context.getFilesDir(), fileNameImg).getAbsolutePath();
+        String externalPath = "/storage/emulated/0/" + fileNameImg;
+
+        RootShell.result result = RootShell.exec("cp -f " + internalPath + " " + externalPath);
+        if (result.exitCode != 0) {
+            throw new IOException("Failed to back up " + fileNameImg + " with exit code "
+                    + result.exitCode + ": " + result.output);
         }
     }
 
+    /**
+     * Copies the kernel's ASV voltage dump and the GPU's ASV group into app storage.
+     *
+     * <p>Both nodes are only readable by root. The copies are named {@code asv_table} and
+     * {@code asv_group} and can be read with {@link AsvLookup}.
+     *
+     * @param context context used to locate internal storage
+     * @return copies of the table dump and the group, in that order
+     * @throws IOException if the active chip's nodes are not known, either node is missing, or the
+     *     root copy fails
+     */
+    public static File[] exportAsvInfo(Context context) throws IOException {
+        if (!AsvLookup.hasKernelNodes(ChipInfo.which.name())) {
+            throw new IOException("No ASV nodes known for " + ChipInfo.which.name());
+        }
+        File table = new File(context.getFilesDir(), "asv_table");
+        File group = new File(context.getFilesDir(), "asv_group");
+
+        RootShell.result result = RootShell.exec(
+                "cat " + AsvLookup.TABLE_PATH + " > " + table.getAbsolutePath()
+                        + " && cat " + AsvLookup.GROUP_PATH + " > " + group.getAbsolutePath()
+                        + " && chmod 644 " + table.getAbsolutePath() + " " + group.getAbsolutePath());
+        if (result.exitCode != 0) {
+            throw new IOException("Failed to read ASV information with exit code "
+                    + result.exitCode + ": " + result.output);
+        }
+        return new File[]{table, group};
+    }
+
     /**
      * Detects Exynos 9810 markers in CPU information or the kernel command line.
      *
@@ -308,94 +338,151 @@ public class KonaBessCore {
     }
 
     /**
-     * Extracts a DTB from the copied image and decompiles it to {@code 0.dts}.
+     * Extracts a DTB from the copied image and prepares it for editing.
+     *
+     * <p>The GPU properties are read straight from the DTB when it parses as a flattened device
+     * tree. Only blobs the in-process reader rejects are decompiled to {@code 0.dts}.
      *
      * @param context context used to locate tools and working files
-     * @throws IOException if extraction or decompilation fails
+     * @throws IOException if extraction or the fallback decompilation fails
      */
     public static void dtbImage2dts(Context context) throws IOException {
         fileNameDtbFile = unpackBootImage(context);
 
-        dtb2dts(context, fileNameDtbFile);
+        dtbReadable = blobGpu[dtbBlob.index] != null;
+        if (!dtbReadable) {
+            writeSelectedDtb(context);
+            dtb2dts(context, fileNameDtbFile);
+        }
     }
 
     /**
-     * Runs {@code extract_dtb} against {@link #fileNameImg} and selects an extracted DTB.
+     * Indexes the DTBs embedded in {@link #fileNameImg} and selects the first one with a GPU table.
      *
-     * <p>Extraction results are moved into the app files directory. Candidates named
-     * {@code 01_dtbdump*.dtb} are sorted by filename, and the first candidate is returned.
+     * <p>The image is memory-mapped by {@link DtbExtractor}; blobs stay slices of that mapping and
+     * are only written to disk when a tool needs them as files. Every blob is decoded concurrently,
+     * so hardware-revision variants can be patched along with the selected blob on save. When no
+     * blob can be read in process the first one is selected for {@code dtc}.
      *
      * @param context context used to locate the working directory
-     * @return filename of the selected extracted DTB
-     * @throws IOException if the extractor is unavailable, the process fails, or no candidate is
-     *     produced
+     * @return filename the selected DTB is written to when materialized
+     * @throws IOException if the image cannot be mapped or contains no valid DTB
      */
     public static String unpackBootImage(Context context) throws IOException {
-        String filesDir = context.getFilesDir().getAbsolutePath();
-
-        File extractBinary = new File(filesDir, "extract_dtb");
+        dtImage = DtbExtractor.open(new File(context.getFilesDir(), fileNameImg).toPath());
 
-        if (!extractBinary.exists() || !extractBinary.canExecute()) {
-            throw new IOException("extract_dtb binary is missing or not executable");
+        if (dtImage.blobs.isEmpty()) {
+            throw new IOException("No DTB found in " + fileNameImg);
         }
 
-        // Build a shell command to:
-        // 1. cd into filesDir
-        // 2. export LD_LIBRARY_PATH to include filesDir for dependent shared libs
-        // 3. run extract_dtb on dtb.img or dtbo.img
-        // 4. create dtb directory if not present
-        // 5. move extracted blobs into filesDir
-        // 6. clean up the dtb directory
-        String shellCmd = String.format(
-                "cd %s && " +
-                        "export LD_LIBRARY_PATH=%s:$LD_LIBRARY_PATH && " +
-                        "./extract_dtb %s && " +
-                        "[ -d dtb ] || mkdir -p dtb && " +
-                        "mv dtb/* . || echo 'Move failed' && " +
-                        "rm -rf dtb",
-                filesDir, filesDir, fileNameImg
-        );
-        ProcessBuilder processBuilder = new ProcessBuilder("su", "-c", shellCmd)
-                .redirectErrorStream(true);
-
-        Process process = processBuilder.start();
-        StringBuilder log = new StringBuilder();
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                log.append(line).append("\n");
+        blobGpu = readBlobs(dtImage);
+        dtbBlob = dtImage.blobs.get(0);
+        for (DtbExtractor.blob blob : dtImage.blobs) {
+            if (blobGpu[blob.index] != null) {
+                dtbBlob = blob;
+                break;
             }
         }
+        return dtbBlob.fileName();
+    }
 
+    /**
+     * Reads the GPU properties of every blob of an image on a bounded pool.
+     *
+     * @param image indexed image
+     * @return properties indexed like the image's blobs, {@code null} where a blob is unreadable
+     * @throws IOException if the read is interrupted
+     */
+    private static FdtReader.gpuProperties[] readBlobs(DtbExtractor.image image)
+            throws IOException {
+        List<DtbExtractor.blob> blobs = image.blobs;
+        FdtReader.gpuProperties[] result = new FdtReader.gpuProperties[blobs.size()];
+        if (blobs.size() == 1) {
+            result[0] = readGpuOrNull(blobs.get(0));
+            return result;
+        }
+
+        ExecutorService executor = newBlobPool(blobs.size());
         try {
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                throw new IOException("Process failed with exit code " + exitCode + ": " + log);
+            List<Future<FdtReader.gpuProperties>> reads = new ArrayList<>();
+            for (DtbExtractor.blob blob : blobs) {
+                reads.add(executor.submit(() -> readGpuOrNull(blob)));
             }
+            for (int i = 0; i < result.length; i++) {
+                result[i] = reads.get(i).get();
+            }
+            return result;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            throw new IOException("Process was interrupted", e);
+            throw new IOException("Interrupted while reading " + fileNameImg, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to read " + fileNameImg + ": " + e.getCause().getMessage(),
+                    e.getCause());
         } finally {
-            process.destroy();
+            executor.shutdownNow();
         }
+    }
 
-        File[] candidates = new File(filesDir).listFiles((dir, name) -> name.startsWith("01_dtbdump") && name.endsWith(".dtb"));
-
-        if (candidates == null || candidates.length == 0) {
-            throw new IOException("No DTB files extracted. Logs:\n" + log);
+    /**
+     * Reads the GPU properties of one blob.
+     *
+     * @param blob blob to read
+     * @return properties, or {@code null} if the blob is malformed or has no GPU table
+     */
+    private static FdtReader.gpuProperties readGpuOrNull(DtbExtractor.blob blob) {
+        try {
+            return FdtReader.readGpuProperties(blob.data.duplicate());
+        } catch (IOException e) {
+            return null;
         }
+    }
 
-        Arrays.sort(candidates, Comparator.comparing(File::getName));
-        File first = candidates[0];
+    /**
+     * Creates a pool for per-blob work, bounded by the blob count and the cores.
+     *
+     * @param blobs number of blobs to process
+     * @return fixed-size pool; the caller shuts it down
+     */
+    private static ExecutorService newBlobPool(int blobs) {
+        return Executors.newFixedThreadPool(
+                Math.max(1, Math.min(blobs, Runtime.getRuntime().availableProcessors())));
+    }
 
-        return first.getName();
+    /**
+     * Returns the DTB being edited.
+     *
+     * @return the saved DTB at {@link #dtb_path} once it exists, otherwise the selected blob's slice
+     *     of the image
+     * @throws IOException if the saved DTB cannot be mapped
+     */
+    public static ByteBuffer openDtb() throws IOException {
+        if (dtb_path != null) {
+            File saved = new File(dtb_path);
+            if (saved.exists()) {
+                return FdtReader.map(saved.toPath());
+            }
+        }
+        return dtbBlob.data.duplicate();
+    }
+
+    /**
+     * Writes the selected blob to {@link #fileNameDtbFile} unless a saved copy already exists.
+     *
+     * @param context context used to locate the working directory
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeSelectedDtb(Context context) throws IOException {
+        File dtbFile = new File(context.getFilesDir(), fileNameDtbFile);
+        if (!dtbFile.exists()) {
+            DtbPatcher.write(dtbBlob.data, dtbFile.toPath());
+        }
     }
 
     /**
      * Uses {@code dtc} to decompile one extracted DTB into {@code 0.dts}.
      *
-     * <p>The source DTB is removed after successful conversion.
+     * <p>The source DTB is overwritten when the DTS is compiled back. This is only needed for blobs
+     * that {@link FdtReader} cannot read.
      *
      * @param context context used to locate the working directory
      * @param fileName extracted DTB filename
@@ -419,69 +506,55 @@ public class KonaBessCore {
         // Build the shell command to:
         // 1. cd into filesDir
         // 2. run dtc converting DTB->DTS
-        // 3. remove the original DTB to save space
-        // 4. set broad permissions on the generated DTS
+        // 3. set broad permissions on the generated DTS
         String command = String.format(
-                "cd %s && ./dtc -I dtb -O dts %s -o %s && rm -f %s && chmod 777 %s",
+                "cd %s && ./dtc -I dtb -O dts %s -o %s && chmod 777 %s",
                 filesDir,
                 inputFile.getName(),
                 outputFile.getName(),
-                inputFile.getName(),
                 outputFile.getName()
         );
 
-        ProcessBuilder processBuilder = new ProcessBuilder("su", "-c", command)
-                .redirectErrorStream(true);
-
-        Process process = processBuilder.start();
-        StringBuilder log = new StringBuilder();
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                log.append(line).append("\n");
-            }
-        }
-
-        try {
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                throw new IOException("DTB to DTS conversion failed with exit code " + exitCode + ": " + log);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Process was interrupted", e);
-        } finally {
-            process.destroy();
+        RootShell.result result = RootShell.exec(command);
+        if (result.exitCode != 0) {
+            throw new IOException("DTB to DTS conversion failed with exit code " + result.exitCode
+                    + ": " + result.output);
         }
 
         if (!outputFile.exists() || !outputFile.canRead()) {
-            throw new IOException("DTS conversion failed. Log: " + log);
+            throw new IOException("DTS conversion failed. Log: " + result.output);
         }
     }
 
     /**
-     * Searches {@code 0.dts} for the first recognized Exynos identifier.
+     * Detects the supported chips named by the selected DTB.
      *
-     * <p>The detected target is stored as the only entry in {@link #dtbs}.
+     * <p>Each distinct chip becomes one entry in {@link #dtbs}, in the order it was found, so a
+     * blob naming several chips is offered to the user instead of being resolved by list order.
      *
-     * @param context context used to locate {@code 0.dts}
-     * @throws IOException if a search command fails or no supported identifier is detected
+     * @param context context of the running workflow
+     * @throws IOException if no supported identifier is detected
      */
     public static void checkDevice(Context context) throws IOException {
         dtbs = new ArrayList<>();
 
-        String[] chipTypes = {"exynos9820", "exynos9825", "exynos990", "exynos9810"};
-        ChipInfo.type[] chipInfoTypes = {ChipInfo.type.exynos9820, ChipInfo.type.exynos9825, ChipInfo.type.exynos990, ChipInfo.type.exynos9810};
-
-        for (int i = 0; i < chipTypes.length; i++) {
-            if (checkChip(context, chipTypes[i])) {
-                dtb dtb = new dtb();
-                dtb.id = i;
-                dtb.type = chipInfoTypes[i];
-                dtbs.add(dtb);
-                break;
+        for (ChipDetector.match match : ChipDetector.detect(dtbBlob.data.duplicate())) {
+            ChipInfo.type type = ChipInfo.type.valueOf(ChipDetector.CHIPS[match.chip]);
+            boolean known = false;
+            for (dtb existing : dtbs) {
+                known |= existing.type == type;
+            }
+            if (known) {
+                continue;
             }
+
+            dtb dtb = new dtb();
+            dtb.id = dtbs.size();
+            dtb.type = type;
+            dtb.location = match.property != null
+                    ? match.property
+                    : String.format(Locale.ROOT, "0x%x", match.offset);
+            dtbs.add(dtb);
         }
 
         if (dtbs.isEmpty()) {
@@ -489,46 +562,6 @@ public class KonaBessCore {
         }
     }
 
-    /**
-     * Runs {@code grep} for a chip identifier in {@code 0.dts}.
-     *
-     * @param context context used to locate {@code 0.dts}
-     * @param chip identifier to search for
-     * @return {@code true} when grep writes a matching line
-     * @throws IOException when the root command cannot start, is interrupted, or exits nonzero
-     *     without output
-     */
-    private static boolean checkChip(Context context, String chip) throws IOException {
-        String command = String.format(
-                "grep '%s' %s/0.dts",
-                chip, context.getFilesDir().getAbsolutePath()
-        );
-
-        ProcessBuilder processBuilder = new ProcessBuilder("su", "-c", command)
-                .redirectErrorStream(true);
-        Process process = processBuilder.start();
-
-        boolean result;
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            result = reader.readLine() != null;
-        }
-
-        try {
-            int exitCode = process.waitFor();
-            if (exitCode != 0 && !result) {
-                throw new IOException("Command failed with exit code: " + exitCode);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Process interrupted", e);
-        } finally {
-            process.destroy();
-        }
-
-        return result;
-    }
-
     /**
      * Reads {@code androidboot.dtbo_idx} from the kernel command line.
      *
@@ -553,49 +586,59 @@ public class KonaBessCore {
     }
 
     /**
-     * Reads {@code /proc/cmdline} through the root shell and splits it on spaces.
+     * Reads {@code /proc/cmdline} and splits it on spaces.
+     *
+     * <p>The file is read in process where it is world-readable, so the read does not wait behind
+     * a partition copy running in the shared root session. Where SELinux denies apps the file, it
+     * is read through the root session instead.
      *
      * @return kernel command-line arguments
-     * @throws IOException if the command fails or is interrupted
+     * @throws IOException if the file cannot be read either way
      */
     private static List<String> getCmdline() throws IOException {
-        ProcessBuilder processBuilder = new ProcessBuilder("su", "-c", "cat /proc/cmdline").redirectErrorStream(true);
-        Process process = processBuilder.start();
-
-        List<String> cmdlineArgs = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-
-            while ((line = reader.readLine()) != null) {
-                cmdlineArgs.addAll(Arrays.asList(line.split(" ")));
+        String cmdline;
+        try {
+            cmdline = new String(Files.readAllBytes(Paths.get("/proc/cmdline")),
+                    StandardCharsets.UTF_8);
+        } catch (IOException denied) {
+            RootShell.result result = RootShell.exec("cat /proc/cmdline");
+            if (result.exitCode != 0) {
+                throw new IOException("Failed to read /proc/cmdline. Exit code: "
+                        + result.exitCode + "\nLogs: " + result.output);
             }
+            cmdline = result.output;
         }
 
-        try {
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                throw new IOException("Failed to read /proc/cmdline with exit code: " + exitCode);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Process was interrupted", e);
-        } finally {
-            process.destroy();
+        List<String> cmdlineArgs = new ArrayList<>();
+        for (String line : cmdline.trim().split("\n")) {
+            cmdlineArgs.addAll(Arrays.asList(line.split(" ")));
         }
 
         return cmdlineArgs;
     }
 
     /**
-     * Flashes {@code dtb_new.img} to the block partition represented by {@link #fileNameImg}.
+     * Flashes the chunks of {@code dtb_new.img} that differ from the block partition represented
+     * by {@link #fileNameImg}.
      *
      * <p>The destination name is obtained by removing the {@code .img} suffix, producing paths such
-     * as {@code /dev/block/by-name/dtb}, {@code dtbo}, or {@code boot}.
+     * as {@code /dev/block/by-name/dtb}, {@code dtbo}, or {@code boot}. The live partition is
+     * streamed from a root {@code dd} in the shared session and compared in
+     * {@link BlockDiff#DEFAULT_CHUNK_SIZE} chunks without a temporary copy, and only the differing
+     * runs are written, each followed by a {@code sync}.
+     *
+     * <p>The SHA-256 of the image is computed on a worker thread while the writes run. Another
+     * worker streams the partition back in order alongside the writes: chunks outside the runs are
+     * read as soon as it reaches them, and each run as soon as its {@code dd} and {@code sync} have
+     * finished and the page cache has been dropped. The report says whether the partition now
+     * holds exactly the image.
      *
      * @param context context used to locate the generated image
-     * @throws IOException if the image is missing or the root {@code dd} command fails
+     * @return bytes compared and written, elapsed time, and the verification outcome
+     * @throws IOException if the image is missing, a root {@code dd} command fails, or the
+     *     read-back cannot complete
      */
-    public static void writeDtbImage(Context context) throws IOException {
+    public static flashReport writeDtbImage(Context context) throws IOException {
         String inputPath = new File(context.getFilesDir(), "dtb_new.img").getAbsolutePath();
 
         String partitionName = fileNameImg.replaceFirst("\\.img$", "");
@@ -606,55 +649,102 @@ public class KonaBessCore {
             throw new IOException("Input DTB image not found: " + inputPath);
         }
 
-        String command = String.format("dd if=%s of=%s", inputPath, outputPath);
-        ProcessBuilder processBuilder = new ProcessBuilder("su", "-c", command)
-                .redirectErrorStream(true);
-        Process process = processBuilder.start();
+        int chunkSize = BlockDiff.DEFAULT_CHUNK_SIZE;
+        long start = System.nanoTime();
 
-        StringBuilder log = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                log.append(line).append("\n");
+        flashReport report = new flashReport();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ByteBuffer next = FdtReader.map(inputFile.toPath());
+            File fifo = new File(context.getFilesDir(), "partition.fifo");
+            List<BlockDiff.run> runs = diffPartition(outputPath, next, chunkSize, fifo);
+            List<CompletableFuture<Void>> written = new ArrayList<>();
+            for (int i = 0; i < runs.size(); i++) {
+                written.add(new CompletableFuture<>());
             }
-        }
 
-        try {
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                throw new IOException("Failed to write DTB/dtbo image. Exit code: " + exitCode + "\nLogs: " + log);
+            Future<byte[]> expected = executor.submit(() -> ImageDigest.sha256(next));
+            Future<byte[]> actual = executor.submit(() -> readBackDigest(outputPath, next.limit(),
+                    runs, written, chunkSize, fifo));
+
+            try {
+                for (int i = 0; i < runs.size(); i++) {
+                    BlockDiff.run run = runs.get(i);
+                    // The read-back must come from flash, not from the pages this dd just wrote,
+                    // so the run is synced and the page cache dropped before it is released.
+                    RootShell.result result = RootShell.exec("dd if=" + inputPath
+                            + " of=" + outputPath
+                            + " bs=" + chunkSize
+                            + " skip=" + run.firstChunk
+                            + " seek=" + run.firstChunk
+                            + " count=" + run.chunkCount
+                            + " conv=notrunc && sync && echo 3 > /proc/sys/vm/drop_caches");
+                    if (result.exitCode != 0) {
+                        throw new IOException("Failed to write DTB/dtbo image. Exit code: "
+                                + result.exitCode + "\nLogs: " + result.output);
+                    }
+                    written.get(i).complete(null);
+
+                    long from = (long) run.firstChunk * chunkSize;
+                    report.written += Math.min(from + (long) run.chunkCount * chunkSize,
+                            next.limit()) - from;
+                }
+            } catch (IOException e) {
+                for (CompletableFuture<Void> run : written) {
+                    run.completeExceptionally(e);
+                }
+                throw e;
             }
+
+            report.compared = next.limit();
+            report.expectedDigest = ImageDigest.toHex(expected.get());
+            report.actualDigest = ImageDigest.toHex(actual.get());
+            report.verified = report.expectedDigest.equals(report.actualDigest);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            throw new IOException("Process was interrupted", e);
+            throw new IOException("Flash verification was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Flash verification failed: " + e.getCause().getMessage(),
+                    e.getCause());
         } finally {
-            process.destroy();
+            executor.shutdownNow();
         }
+
+        report.nanos = System.nanoTime() - start;
+        return report;
     }
 
     /**
      * Activates a detected target for the GPU editor.
      *
-     * <p>This sets the editable DTS path to {@code 0.dts} and updates
-     * {@link ChipInfo#which}.
+     * <p>This sets the editable DTS path to {@code 0.dts}, points {@link #dtb_path} at the file the
+     * DTB is saved to when it can be read in process, and updates {@link ChipInfo#which}.
      *
      * @param dtb detected target
      * @param activity activity used to locate app storage
      */
     public static void chooseTarget(dtb dtb, AppCompatActivity activity) {
         dts_path = new File(activity.getFilesDir(), "0.dts").getAbsolutePath();
+        dtb_path = dtbReadable
+                ? new File(activity.getFilesDir(), fileNameDtbFile).getAbsolutePath()
+                : null;
 
         ChipInfo.which = dtb.type;
     }
 
     /**
-     * Compiles the edited DTS and repacks the selected DTB into {@code dtb_new.img}.
+     * Repacks the selected DTB into {@code dtb_new.img}.
+     *
+     * <p>DTB sessions are saved by patching the selected DTB, so it is repacked as is. Only sessions
+     * that fell back to {@code 0.dts} compile it with {@code dtc} first.
      *
      * @param context context used to locate tools and working files
      * @throws IOException if compilation or repacking fails
      */
     public static void dts2bootImage(Context context) throws IOException {
-        dts2dtb(context);
+        if (new File(context.getFilesDir(), "0.dts").exists()) {
+            dts2dtb(context);
+        }
 
         dtb2bootImage(context);
     }
@@ -684,92 +774,199 @@ public class KonaBessCore {
                 filesDir, fileNameDtbFile
         );
 
-        ProcessBuilder processBuilder = new ProcessBuilder("su", "-c", command)
-                .redirectErrorStream(true);
-        Process process = processBuilder.start();
-
-        StringBuilder log = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                log.append(line).append("\n");
-            }
-        }
-
-        try {
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                throw new IOException("Command execution failed with exit code " + exitCode + ": " + log);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Process was interrupted", e);
-        } finally {
-            process.destroy();
+        RootShell.result result = RootShell.exec(command);
+        if (result.exitCode != 0) {
+            throw new IOException("Command execution failed with exit code " + result.exitCode
+                    + ": " + result.output);
         }
 
         if (!outputFile.exists()) {
-            throw new IOException("Output DTB file not created. Logs: " + log);
+            throw new IOException("Output DTB file not created. Logs: " + result.output);
         }
     }
 
     /**
-     * Runs {@code repack_dtb} with {@code 00_kernel} and the compiled DTB.
+     * Rebuilds {@link #fileNameImg} into {@code dtb_new.img} with the saved DTB in place of the
+     * selected blob.
+     *
+     * <p>The saved GPU table is also patched into every other blob whose GPU node has the same
+     * path, so the device boots the edited table whichever hardware revision it matches. When
+     * nothing was saved the image is reproduced unchanged.
      *
-     * @param context context used to locate the repacker and working files
-     * @throws IOException if required files are missing, the process fails, or
-     *     {@code dtb_new.img} is not produced
+     * @param context context used to locate working files
+     * @throws IOException if the saved DTB is malformed, does not fit the partition, or
+     *     {@code dtb_new.img} cannot be written
      */
     private static void dtb2bootImage(Context context) throws IOException {
-        String filesDir = context.getFilesDir().getAbsolutePath();
-        File kernelFile = new File(filesDir, "00_kernel");
-        File dtbFile = new File(filesDir, fileNameDtbFile);
-        File outputFile = new File(filesDir, "dtb_new.img");
-        File repackDtbBinary = new File(filesDir, "repack_dtb");
+        File dtbFile = new File(context.getFilesDir(), fileNameDtbFile);
+        File outputFile = new File(context.getFilesDir(), "dtb_new.img");
 
-        if (!kernelFile.exists()) {
-            throw new IOException("Kernel file missing: " + kernelFile.getAbsolutePath());
+        ByteBuffer[] replacements = new ByteBuffer[dtImage.blobs.size()];
+        if (dtbFile.exists()) {
+            ByteBuffer saved = FdtReader.map(dtbFile.toPath());
+            replacements[dtbBlob.index] = saved;
+            patchVariants(saved, replacements);
         }
 
-        if (!dtbFile.exists()) {
-            throw new IOException("DTB file missing: " + dtbFile.getAbsolutePath());
-        }
+        DtbRepacker.repack(dtImage, replacements, outputFile.toPath());
+    }
 
-        if (!repackDtbBinary.exists() || !repackDtbBinary.canExecute()) {
-            throw new IOException("Repack binary missing or not executable: " + repackDtbBinary.getAbsolutePath());
+    /**
+     * Copies the GPU table of the saved DTB into the matching variant blobs, concurrently.
+     *
+     * <p>A variant matches when all GPU properties were read from it and its
+     * {@code gpu_dvfs_table} lives in the node of the saved one. Variants are left unchanged when
+     * the saved DTB cannot be read in process.
+     *
+     * @param saved saved DTB of the selected blob
+     * @param replacements receives the patched variants, indexed like the image's blobs
+     * @throws IOException if a variant cannot be patched or the work is interrupted
+     */
+    private static void patchVariants(ByteBuffer saved, ByteBuffer[] replacements)
+            throws IOException {
+        FdtReader.property[] edited;
+        try {
+            edited = FdtReader.readGpuProperties(saved.duplicate()).properties;
+        } catch (IOException e) {
+            return;
         }
 
-        String command = String.format(
-                "cd %s && export LD_LIBRARY_PATH=%s:$LD_LIBRARY_PATH && ./repack_dtb 00_kernel %s dtb_new.img",
-                filesDir, filesDir, fileNameDtbFile
-        );
-
-        ProcessBuilder processBuilder = new ProcessBuilder("su", "-c", command)
-                .redirectErrorStream(true);
-        Process process = processBuilder.start();
+        int[][] values = new int[edited.length][];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = edited[i].cells;
+        }
 
-        StringBuilder log = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                log.append(line).append("\n");
+        List<DtbExtractor.blob> variants = new ArrayList<>();
+        for (DtbExtractor.blob blob : dtImage.blobs) {
+            FdtReader.gpuProperties gpu = blobGpu[blob.index];
+            if (blob != dtbBlob && gpu != null && gpu.properties[1].node.equals(edited[1].node)) {
+                variants.add(blob);
             }
         }
+        if (variants.isEmpty()) {
+            return;
+        }
 
+        ExecutorService executor = newBlobPool(variants.size());
         try {
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                throw new IOException("Command execution failed with exit code " + exitCode + ": " + log);
+            List<Future<ByteBuffer>> patches = new ArrayList<>();
+            for (DtbExtractor.blob blob : variants) {
+                patches.add(executor.submit(() -> DtbPatcher.patch(blob.data.duplicate(),
+                        blobGpu[blob.index].properties, values)));
+            }
+            for (int i = 0; i < patches.size(); i++) {
+                replacements[variants.get(i).index] = patches.get(i).get();
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            throw new IOException("Process was interrupted", e);
+            throw new IOException("Interrupted while patching DTB variants", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to patch DTB variant: " + e.getCause().getMessage(),
+                    e.getCause());
         } finally {
-            process.destroy();
+            executor.shutdownNow();
         }
+    }
 
-        if (!outputFile.exists()) {
-            throw new IOException("Output file not created. Logs: " + log);
+    /**
+     * Streams a partition back in order while its runs are written, and digests its first bytes.
+     *
+     * <p>Chunks between runs are read straight away. A run is read only once its entry in
+     * {@code written} completes, so the bytes come from flash after the write.
+     *
+     * @param devicePath block device to read
+     * @param length number of bytes to digest
+     * @param runs runs being written, in ascending order
+     * @param written completes for each run once it is synced and the page cache dropped
+     * @param chunkSize chunk size of the runs in bytes
+     * @param fifo FIFO path for {@link RootShell#stream}
+     * @return SHA-256 of the partition prefix
+     * @throws IOException if a read fails or the partition is shorter than {@code length}
+     * @throws ExecutionException if a run could not be written
+     * @throws InterruptedException if interrupted while waiting for a run
+     */
+    private static byte[] readBackDigest(String devicePath, long length,
+                                         List<BlockDiff.run> runs,
+                                         List<? extends Future<?>> written, int chunkSize,
+                                         File fifo)
+            throws IOException, ExecutionException, InterruptedException {
+        MessageDigest digest = ImageDigest.newDigest();
+        long position = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            long from = (long) runs.get(i).firstChunk * chunkSize;
+            long to = Math.min(from + (long) runs.get(i).chunkCount * chunkSize, length);
+            readBack(digest, devicePath, position, from, chunkSize, fifo);
+            written.get(i).get();
+            readBack(digest, devicePath, from, to, chunkSize, fifo);
+            position = to;
+        }
+        readBack(digest, devicePath, position, length, chunkSize, fifo);
+        return digest.digest();
+    }
+
+    /**
+     * Streams a chunk-aligned range of a partition from a root {@code dd} into a digest.
+     *
+     * @param digest digest to update
+     * @param devicePath block device to read
+     * @param from first byte, a multiple of {@code chunkSize}
+     * @param to byte after the last
+     * @param chunkSize block size of the {@code dd}
+     * @param fifo FIFO path for {@link RootShell#stream}
+     * @throws IOException if the read fails or the partition ends before {@code to}
+     */
+    private static void readBack(MessageDigest digest, String devicePath, long from, long to,
+                                 int chunkSize, File fifo) throws IOException {
+        if (to <= from) {
+            return;
+        }
+        try (InputStream in = RootShell.stream("dd if=" + devicePath + " bs=" + chunkSize
+                + " skip=" + from / chunkSize
+                + " count=" + (to - from + chunkSize - 1) / chunkSize, fifo)) {
+            ImageDigest.update(digest, in, to - from);
+        }
+    }
+
+    /**
+     * Streams a partition from a root {@code dd} in the shared session and diffs it against an
+     * image.
+     *
+     * @param devicePath block device to read
+     * @param next image to be written
+     * @param chunkSize comparison granularity in bytes
+     * @param fifo FIFO path for {@link RootShell#stream}
+     * @return differing runs
+     * @throws IOException if the read fails or the partition is shorter than the image
+     */
+    private static List<BlockDiff.run> diffPartition(String devicePath, ByteBuffer next,
+                                                     int chunkSize, File fifo) throws IOException {
+        try (InputStream in = RootShell.stream("dd if=" + devicePath + " bs=" + chunkSize, fifo)) {
+            return BlockDiff.diff(in, next, chunkSize);
+        }
+    }
+
+    /** Outcome of {@link #writeDtbImage(Context)}. */
+    public static class flashReport {
+        /** Bytes of the new image compared with the partition. */
+        public long compared;
+        /** Bytes written to the partition. */
+        public long written;
+        /** Wall-clock time of the comparison, writes, syncs, and read-back verification. */
+        public long nanos;
+        /** SHA-256 of {@code dtb_new.img}, in hexadecimal. */
+        public String expectedDigest;
+        /** SHA-256 of the partition read back after the sync, in hexadecimal. */
+        public String actualDigest;
+        /** Whether both digests match. */
+        public boolean verified;
+
+        /**
+         * Returns the comparison throughput.
+         *
+         * @return compared megabytes per second
+         */
+        public double megabytesPerSecond() {
+            return nanos > 0 ? compared / 1e6 / (nanos / 1e9) : 0;
         }
     }
 
@@ -779,5 +976,7 @@ public class KonaBessCore {
         int id;
         /** Chip model associated with the target. */
         ChipInfo.type type;
+        /** Root property that named the chip, or the hexadecimal blob offset it was found at. */
+        String location;
     }
 }
@@ -24,6 +24,8 @@ import com.google.android.material.textview.MaterialTextView;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 import xzr.konabess.adapters.ParamAdapter;
 import xzr.konabess.utils.DialogUtil;
@@ -36,6 +38,8 @@ public class MainActivity extends AppCompatActivity {
     onBackPressedListener onBackPressedListener = null;
     /** Whether privileged workflows are available for the current activity session. */
     private boolean rootAvailable;
+    /** Unpack workflow in progress, cancelled if the activity goes away. */
+    private volatile UnpackPipeline unpackPipeline;
 
     /**
      * Resolves a color attribute from the active theme.
@@ -51,7 +55,8 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Applies dynamic color, prepares bundled tools, and starts initial image extraction.
+     * Applies dynamic color, then prepares bundled tools, checks root access, and starts initial
+     * image extraction on a background thread.
      *
      * @param savedInstanceState previously saved activity state
      */
@@ -68,15 +73,15 @@ public class MainActivity extends AppCompatActivity {
         } catch (PackageManager.NameNotFoundException ignored) {
         }
 
-        try {
-            KonaBessCore.cleanEnv(this);
-            KonaBessCore.setupEnv(this);
-        } catch (Exception e) {
-            DialogUtil.showError(this, R.string.environ_setup_failed);
-            return;
-        }
-
         new Thread(() -> {
+            try {
+                KonaBessCore.cleanEnv(this);
+                KonaBessCore.setupEnv(this);
+            } catch (Exception e) {
+                runOnUiThread(() -> DialogUtil.showError(this, R.string.environ_setup_failed));
+                return;
+            }
+
             boolean hasRoot = KonaBessCore.hasRootAccess();
 
             runOnUiThread(() -> {
@@ -92,7 +97,17 @@ public class MainActivity extends AppCompatActivity {
                     showMissingRootDialog();
                 }
             });
-        }, "root-access-check").start();
+        }, "environment-setup").start();
+    }
+
+    /** Cancels an unfinished unpack workflow before the activity is torn down. */
+    @Override
+    protected void onDestroy() {
+        UnpackPipeline pipeline = unpackPipeline;
+        if (pipeline != null) {
+            pipeline.cancel();
+        }
+        super.onDestroy();
     }
 
     /** Shows the non-blocking warning presented whenever the app starts without root access. */
@@ -370,13 +385,15 @@ public class MainActivity extends AppCompatActivity {
         public abstract void onBackPressed();
     }
 
-    /** Background workflow that compiles, repacks, and flashes the edited image. */
+    /** Background workflow that compiles, repacks, flashes, and verifies the edited image. */
     class repackLogic extends Thread {
         private String errorMessage = "";
+        private KonaBessCore.flashReport flashReport;
         private AlertDialog waitingDialog;
 
         /**
-         * Executes repacking and flashing in sequence, stopping at the first failed stage.
+         * Executes repacking, flashing, and verification in sequence, stopping at the first failed
+         * stage. The reboot prompt only appears once the partition read-back matches the image.
          */
         @Override
         public void run() {
@@ -398,6 +415,11 @@ public class MainActivity extends AppCompatActivity {
 
             dismissWaitDialog();
 
+            if (!flashReport.verified) {
+                showVerificationError();
+                return;
+            }
+
             showRebootDialog();
         }
 
@@ -438,13 +460,13 @@ public class MainActivity extends AppCompatActivity {
         }
 
         /**
-         * Writes the generated image to the selected block partition.
+         * Writes the changed chunks of the generated image to the selected block partition.
          *
          * @return {@code true} when the root write completes successfully
          */
         private boolean performFlashing() {
             try {
-                KonaBessCore.writeDtbImage(MainActivity.this);
+                flashReport = KonaBessCore.writeDtbImage(MainActivity.this);
                 return true;
             } catch (Exception e) {
                 return false;
@@ -460,6 +482,16 @@ public class MainActivity extends AppCompatActivity {
             runOnUiThread(() -> DialogUtil.showDetailedError(MainActivity.this, 2131689664, details));
         }
 
+        /**
+         * Reports a partition whose read-back digest differs from the flashed image.
+         */
+        private void showVerificationError() {
+            String details = getString(R.string.flash_verify_failed_detail,
+                    flashReport.expectedDigest, flashReport.actualDigest);
+            runOnUiThread(() -> DialogUtil.showDetailedError(MainActivity.this,
+                    R.string.flash_verify_failed, details));
+        }
+
         /**
          * Displays a resource-backed error on the UI thread.
          *
@@ -470,12 +502,18 @@ public class MainActivity extends AppCompatActivity {
         }
 
         /**
-         * Prompts for an immediate reboot after flashing and reports reboot failures.
+         * Prompts for an immediate reboot after flashing, together with the flash statistics, and
+         * reports reboot failures.
          */
         private void showRebootDialog() {
+            String stats = getString(R.string.flash_stats,
+                    flashReport.compared / 1024,
+                    flashReport.written / 1024,
+                    flashReport.megabytesPerSecond());
+
             runOnUiThread(() -> new MaterialAlertDialogBuilder(MainActivity.this)
                     .setTitle(R.string.reboot_complete_title)
-                    .setMessage(R.string.reboot_complete_msg)
+                    .setMessage(getString(R.string.reboot_complete_msg) + "\n\n" + stats)
                     .setPositiveButton(R.string.yes, (dialog, which) -> {
                         try {
                             KonaBessCore.reboot();
@@ -491,95 +529,52 @@ public class MainActivity extends AppCompatActivity {
 
     /** Background workflow that copies, extracts, decompiles, and identifies the active image. */
     class unpackLogic extends Thread {
-        private String errorMessage = "";
         private int dtbIndex;
         private AlertDialog waitingDialog;
 
         /**
-         * Copies the source partition, extracts and decompiles its DTB, detects the chip, and opens
-         * target selection.
+         * Runs the unpack pipeline behind one progress dialog and opens target selection.
+         *
+         * <p>The copy, extraction, chip detection, backup and command-line probe run as concurrent
+         * stages of {@link UnpackPipeline}; this thread only waits for the result.
          */
         @Override
         public void run() {
-            if (!performStep(() -> {
-                try {
-                    KonaBessCore.getDtImage(MainActivity.this);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            })) {
-                showErrorDialog(R.string.failed_get_boot);
-                return;
-            }
+            UnpackPipeline pipeline = new UnpackPipeline(MainActivity.this, (done, total) ->
+                    runOnUiThread(() -> {
+                        if (waitingDialog != null) {
+                            DialogUtil.setWaitMessage(waitingDialog,
+                                    getString(R.string.unpack_progress, done, total));
+                        }
+                    }));
+            unpackPipeline = pipeline;
 
-            if (!performStepWithErrorDetails(R.string.unpacking, () -> {
-                try {
-                    KonaBessCore.dtbImage2dts(MainActivity.this);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            })) {
-                showDetailedErrorDialog(R.string.unpack_failed, errorMessage);
+            showWaitDialog(R.string.unpacking);
+            try {
+                dtbIndex = pipeline.start().get();
+            } catch (InterruptedException e) {
+                pipeline.cancel();
+                Thread.currentThread().interrupt();
                 return;
-            }
-
-            if (!performStepWithErrorDetails(R.string.checking_device, () -> {
-                try {
-                    KonaBessCore.checkDevice(MainActivity.this);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-                try {
-                    dtbIndex = KonaBessCore.getDtbIndex();
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+            } catch (CancellationException e) {
+                return;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UnpackPipeline.failure failure) {
+                    if (failure.detailed) {
+                        showDetailedErrorDialog(failure.titleId, failure.getMessage());
+                    } else {
+                        showErrorDialog(failure.titleId);
+                    }
+                } else {
+                    showDetailedErrorDialog(R.string.unpack_failed, String.valueOf(e.getCause()));
                 }
-            })) {
-                showDetailedErrorDialog(R.string.failed_checking_platform, errorMessage);
                 return;
-            }
-
-            handleDtbSelection();
-        }
-
-        /**
-         * Runs an initialization step while showing the generic progress message.
-         *
-         * @param task blocking operation
-         * @return {@code true} when the task completes without an exception
-         */
-        private boolean performStep(Runnable task) {
-            showWaitDialog(R.string.wait);
-            try {
-                task.run();
-                return true;
-            } catch (Exception e) {
-                return false;
             } finally {
                 dismissWaitDialog();
+                unpackPipeline = null;
             }
-        }
 
-        /**
-         * Runs an initialization step and retains its exception message for a detailed error.
-         *
-         * @param messageId progress-message resource
-         * @param task blocking operation
-         * @return {@code true} when the task completes without an exception
-         */
-        private boolean performStepWithErrorDetails(int messageId, Runnable task) {
-            showWaitDialog(messageId);
-            try {
-                task.run();
-
-                return true;
-            } catch (Exception e) {
-                errorMessage = e.getMessage();
-
-                return false;
-            } finally {
-                dismissWaitDialog();
-            }
+            handleDtbSelection();
         }
 
         /**
@@ -607,7 +602,8 @@ public class MainActivity extends AppCompatActivity {
                     items.add(new ParamAdapter.item() {{
                         title = dtb.id + " " + ChipInfo.name2ChipDesc(dtb.type, MainActivity.this);
 
-                        subtitle = dtb.id == dtbIndex ? MainActivity.this.getString(R.string.possible_dtb) : "";
+                        subtitle = MainActivity.this.getString(R.string.chip_found_in, dtb.location)
+                                + (dtb.id == dtbIndex ? "\n" + MainActivity.this.getString(R.string.possible_dtb) : "");
                     }});
                 }
 
@@ -0,0 +1,155 @@
+package xzr.konabess;
+
+import android.content.Context;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the unpack workflow as a graph of asynchronous stages on a bounded pool.
+ *
+ * <p>The partition copy gates the in-process extraction, which gates chip detection. The backup
+ * of the copy to shared storage and the kernel command-line probe feed nothing downstream, so they
+ * run alongside that chain, and the workflow takes about as long as its longest path rather than
+ * the sum of its stages. One object reports progress over every stage and cancels them together.
+ */
+public class UnpackPipeline {
+    /** Stages in the graph, for progress reporting. */
+    public static final int STAGES = 5;
+
+    /** Widest point of the graph: backup, extraction and command-line probe. */
+    private static final int THREADS = 3;
+
+    private final Context context;
+    private final listener listener;
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    private final AtomicInteger done = new AtomicInteger();
+    private volatile boolean cancelled;
+    private CompletableFuture<Integer> result;
+
+    /**
+     * Creates a pipeline that has not started yet.
+     *
+     * @param context context used to locate tools and working files
+     * @param listener receives progress on pool threads
+     */
+    public UnpackPipeline(Context context, listener listener) {
+        this.context = context;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts every stage whose inputs are ready.
+     *
+     * <p>A failed stage completes the result with a {@link CompletionException} whose cause is a
+     * {@link failure}; a cancelled run completes it with a {@link CancellationException}.
+     *
+     * @return future holding the DTBO index from the kernel command line, or {@code -1}, once the
+     *     image is unpacked and its chips detected
+     */
+    public synchronized CompletableFuture<Integer> start() {
+        CompletableFuture<Void> copy = stage(null, R.string.failed_get_boot, false,
+                () -> KonaBessCore.getDtImage(context));
+        CompletableFuture<Void> backup = stage(copy, R.string.failed_get_boot, false,
+                () -> KonaBessCore.backupDtImage(context));
+        CompletableFuture<Void> unpack = stage(copy, R.string.unpack_failed, true,
+                () -> KonaBessCore.dtbImage2dts(context));
+        CompletableFuture<Void> detect = stage(unpack, R.string.failed_checking_platform, true,
+                () -> KonaBessCore.checkDevice(context));
+
+        int[] dtbIndex = new int[1];
+        CompletableFuture<Void> cmdline = stage(null, R.string.failed_checking_platform, true,
+                () -> dtbIndex[0] = KonaBessCore.getDtbIndex());
+
+        result = CompletableFuture.allOf(backup, detect, cmdline).thenApply(v -> dtbIndex[0]);
+        result.whenComplete((index, error) -> executor.shutdown());
+        return result;
+    }
+
+    /**
+     * Cancels every stage that has not finished and interrupts the running ones.
+     *
+     * <p>The future returned by {@link #start()} completes with a {@link CancellationException}.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (result != null) {
+            result.cancel(true);
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Schedules one stage after its dependency.
+     *
+     * @param after stage that must succeed first, or {@code null} to start at once
+     * @param titleId error-summary resource reported if the stage fails
+     * @param detailed whether the failure message is worth showing to the user
+     * @param step blocking work
+     * @return future completed when the stage has run
+     */
+    private CompletableFuture<Void> stage(CompletableFuture<Void> after, int titleId,
+                                          boolean detailed, step step) {
+        Runnable task = () -> {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            try {
+                step.run();
+            } catch (IOException | RuntimeException e) {
+                throw new CompletionException(new failure(titleId, detailed, e));
+            }
+            listener.onProgress(done.incrementAndGet(), STAGES);
+        };
+        return after == null
+                ? CompletableFuture.runAsync(task, executor)
+                : after.thenRunAsync(task, executor);
+    }
+
+    /** Blocking work of one stage. */
+    private interface step {
+        /**
+         * Runs the stage.
+         *
+         * @throws IOException if the stage fails
+         */
+        void run() throws IOException;
+    }
+
+    /** Receives progress of a running pipeline. */
+    public interface listener {
+        /**
+         * Called after each stage completes.
+         *
+         * @param done stages completed so far
+         * @param total stages in the pipeline
+         */
+        void onProgress(int done, int total);
+    }
+
+    /** Failure of one stage, carrying how it should be reported. */
+    public static class failure extends Exception {
+        /** Error-summary resource. */
+        public final int titleId;
+        /** Whether {@link #getMessage()} should be shown as detail. */
+        public final boolean detailed;
+
+        /**
+         * Wraps a stage failure.
+         *
+         * @param titleId error-summary resource
+         * @param detailed whether the message should be shown as detail
+         * @param cause exception thrown by the stage
+         */
+        failure(int titleId, boolean detailed, Exception cause) {
+            super(cause.getMessage(), cause);
+            this.titleId = titleId;
+            this.detailed = detailed;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package xzr.konabess.ect;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up the ASV voltage of a DVFS domain at a given frequency and ASV group.
+ *
+ * <p>Each domain keeps its level frequencies sorted in ascending order next to the original level
+ * indices, so a lookup is one binary search. A frequency between two levels takes the voltage of
+ * the next faster level, because that is the lowest voltage known to be stable there.
+ */
+public class AsvLookup {
+    /**
+     * Debugfs dump of the ECT ASV section, in the format of {@code ect_dump/asv_table.txt}, on
+     * the chips accepted by {@link #hasKernelNodes}.
+     */
+    public static final String TABLE_PATH = "/sys/kernel/debug/ect/asv_table";
+    /** Sysfs node holding the ASV group fused into the GPU, on the same chips. */
+    public static final String GROUP_PATH = "/sys/devices/platform/exynos-asv/g3d_asv_group";
+    /** Returned when a domain, group or frequency is not covered by the tables. */
+    public static final int UNKNOWN = -1;
+
+    private final Map<String, domain> domains = new HashMap<>();
+
+    /**
+     * Tells whether a chip's kernel exposes {@link #TABLE_PATH} and {@link #GROUP_PATH}.
+     *
+     * <p>Both nodes come from the Exynos 9820 kernel tree, which also builds the 9825. Other chips
+     * use other ASV drivers, so their paths are not assumed.
+     *
+     * @param chip chip identifier, such as {@code exynos9820}
+     * @return {@code true} for the Exynos 9820 and 9825
+     */
+    public static boolean hasKernelNodes(String chip) {
+        return chip.equals("exynos9820") || chip.equals("exynos9825");
+    }
+
+    /**
+     * Builds a lookup from the ASV section of an ECT blob.
+     *
+     * @param reader ECT reader
+     * @return lookup over every ASV domain
+     * @throws IOException if the ASV section is missing or malformed
+     */
+    public static AsvLookup from(EctReader reader) throws IOException {
+        AsvLookup lookup = new AsvLookup();
+        for (EctReader.asvDomain source : reader.asvDomains()) {
+            int[][] voltages = new int[source.tables.length][];
+            for (int t = 0; t < voltages.length; t++) {
+                voltages[t] = source.tables[t].voltages;
+            }
+            lookup.add(source.name, source.groups, source.levels, voltages);
+        }
+        return lookup;
+    }
+
+    /**
+     * Parses the text dump of the ASV section written by the kernel's ECT debugfs.
+     *
+     * @param dump dump text
+     * @return lookup over every domain in the dump
+     * @throws IOException if a domain's tables do not match its level count
+     */
+    public static AsvLookup parse(CharSequence dump) throws IOException {
+        AsvLookup lookup = new AsvLookup();
+        String name = null;
+        int groups = 0;
+        List<Integer> levels = new ArrayList<>();
+        List<int[]> tables = new ArrayList<>();
+        int[] rows = null;
+        int row = 0;
+
+        for (String line : dump.toString().split("\n")) {
+            line = line.trim();
+            if (line.startsWith("[DOMAIN NAME]")) {
+                if (name != null) {
+                    lookup.add(name, groups, levels, tables);
+                }
+                name = value(line);
+                groups = 0;
+                levels.clear();
+                tables.clear();
+                rows = null;
+            } else if (line.startsWith("[NUM OF ASV GROUP]")) {
+                groups = Integer.parseInt(value(line));
+            } else if (line.startsWith("[FREQUENCY]")) {
+                levels.add(Integer.parseInt(value(line)));
+            } else if (line.equals("[TABLE]")) {
+                rows = new int[levels.size() * groups];
+                tables.add(rows);
+                row = 0;
+            } else if (rows != null && !line.isEmpty() && Character.isDigit(line.charAt(0))) {
+                String[] cells = line.split("\\s+");
+                if (row == levels.size() || cells.length < groups) {
+                    throw new IOException("Malformed ASV table row in " + name + ": " + line);
+                }
+                for (int g = 0; g < groups; g++) {
+                    rows[row * groups + g] = Integer.parseInt(cells[g]);
+                }
+                row++;
+            }
+        }
+        if (name != null) {
+            lookup.add(name, groups, levels, tables);
+        }
+        return lookup;
+    }
+
+    /**
+     * Reads a text dump of the ASV section.
+     *
+     * @param path dump file, such as a copy of {@link #TABLE_PATH}
+     * @return lookup over every domain in the dump
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static AsvLookup read(Path path) throws IOException {
+        return parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads an ASV group number.
+     *
+     * @param path file whose first token is the group, such as a copy of {@link #GROUP_PATH}
+     * @return ASV group
+     * @throws IOException if the file cannot be read or does not start with a number
+     */
+    public static int readGroup(Path path) throws IOException {
+        String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim();
+        try {
+            return Integer.parseInt(text.split("\\s+")[0]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Not an ASV group: " + text, e);
+        }
+    }
+
+    /**
+     * Returns the voltage of a domain at a frequency from its newest table.
+     *
+     * @param domain domain name, such as {@code dvfs_g3d}
+     * @param frequency frequency in kHz
+     * @param group ASV group
+     * @return voltage in microvolts, or {@link #UNKNOWN}
+     */
+    public int voltage(String domain, long frequency, int group) {
+        domain entry = domains.get(domain);
+        return entry == null ? UNKNOWN : voltage(entry, entry.voltages.length - 1, frequency, group);
+    }
+
+    /**
+     * Returns the voltage of a domain at a frequency from one table.
+     *
+     * @param domain domain name, such as {@code dvfs_g3d}
+     * @param table table index in blob order
+     * @param frequency frequency in kHz
+     * @param group ASV group
+     * @return voltage in microvolts, or {@link #UNKNOWN}
+     */
+    public int voltage(String domain, int table, long frequency, int group) {
+        domain entry = domains.get(domain);
+        return entry == null ? UNKNOWN : voltage(entry, table, frequency, group);
+    }
+
+    /**
+     * Returns the level frequencies of a domain.
+     *
+     * @param domain domain name, such as {@code dvfs_g3d}
+     * @return frequencies in MHz in ascending order, or an empty array for an unknown domain
+     */
+    public int[] frequencies(String domain) {
+        domain entry = domains.get(domain);
+        return entry == null ? new int[0] : entry.frequencies.clone();
+    }
+
+    /**
+     * Resolves a frequency to a level and reads its voltage.
+     *
+     * @param domain domain
+     * @param table table index
+     * @param frequency frequency in kHz
+     * @param group ASV group
+     * @return voltage in microvolts, or {@link #UNKNOWN}
+     */
+    private static int voltage(domain domain, int table, long frequency, int group) {
+        if (table < 0 || table >= domain.voltages.length || group < 0 || group >= domain.groups) {
+            return UNKNOWN;
+        }
+        long mhz = frequency / 1000;
+        if (mhz > Integer.MAX_VALUE) {
+            return UNKNOWN;
+        }
+
+        int index = Arrays.binarySearch(domain.frequencies, (int) mhz);
+        if (index < 0) {
+            index = -index - 1;
+            if (index == domain.frequencies.length) {
+                return UNKNOWN;
+            }
+        }
+        int voltage = domain.voltages[table][domain.levels[index] * domain.groups + group];
+        return voltage == 0 ? UNKNOWN : voltage;
+    }
+
+    /**
+     * Indexes one domain given with a level list.
+     *
+     * @param name domain name
+     * @param groups ASV groups per level
+     * @param levels level frequencies in MHz, in table order
+     * @param tables voltages indexed {@code [table][level * groups + group]}
+     * @throws IOException if a table does not match the level count
+     */
+    private void add(String name, int groups, List<Integer> levels, List<int[]> tables)
+            throws IOException {
+        int[] frequencies = new int[levels.size()];
+        for (int i = 0; i < frequencies.length; i++) {
+            frequencies[i] = levels.get(i);
+        }
+        add(name, groups, frequencies, tables.toArray(new int[0][]));
+    }
+
+    /**
+     * Indexes one domain.
+     *
+     * @param name domain name
+     * @param groups ASV groups per level
+     * @param levels level frequencies in MHz, in table order
+     * @param voltages voltages indexed {@code [table][level * groups + group]}
+     * @throws IOException if a table does not match the level count
+     */
+    private void add(String name, int groups, int[] levels, int[][] voltages) throws IOException {
+        for (int[] table : voltages) {
+            if (table.length != levels.length * groups) {
+                throw new IOException("ASV table of " + name + " has " + table.length
+                        + " voltages, expected " + levels.length * groups);
+            }
+        }
+
+        Integer[] order = new Integer[levels.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> Integer.compare(levels[x], levels[y]));
+
+        domain domain = new domain();
+        domain.groups = groups;
+        domain.frequencies = new int[levels.length];
+        domain.levels = new int[levels.length];
+        for (int i = 0; i < order.length; i++) {
+            domain.frequencies[i] = levels[order[i]];
+            domain.levels[i] = order[i];
+        }
+        domain.voltages = voltages;
+        domains.put(name, domain);
+    }
+
+    /**
+     * Extracts the value of a {@code [KEY] : value} dump line.
+     *
+     * @param line trimmed line
+     * @return text after the colon
+     */
+    private static String value(String line) {
+        return line.substring(line.indexOf(':') + 1).trim();
+    }
+
+    /** Sorted levels and voltage tables of one domain. */
+    private static class domain {
+        int groups;
+        /** Level frequencies in MHz, ascending. */
+        int[] frequencies;
+        /** Table level index of each entry in {@link #frequencies}. */
+        int[] levels;
+        /** Voltages indexed {@code [table][level * groups + group]}. */
+        int[][] voltages;
+    }
+}
@@ -0,0 +1,441 @@
+package xzr.konabess.ect;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Edits DVFS levels and their ASV voltage rows directly in an ECT blob.
+ *
+ * <p>Edits are applied to the buffer in place. Replacing a level only rewrites its own words.
+ * Inserting one moves the rest of the used blob up and grows into the space after {@code TOTAL
+ * SIZE}, which the firmware does not parse. The total size, the section offsets in the blob
+ * header, and the domain offsets inside the edited section are then adjusted to match. Every
+ * byte written is recorded, so {@link #writeChanges(FileChannel)} can copy back only the
+ * modified ranges.
+ */
+public class EctPatcher {
+    /** DVFS and ASV domain of the GPU. */
+    public static final String G3D = "dvfs_g3d";
+
+    private final ByteBuffer buffer;
+    private final MappedByteBuffer mapping;
+    private final TreeMap<Integer, Integer> dirty = new TreeMap<>();
+    private EctReader reader;
+
+    /**
+     * Creates a patcher over a writable blob.
+     *
+     * @param buffer blob from position zero
+     * @param mapping file mapping behind {@code buffer}, or {@code null}
+     * @throws IOException if the buffer is not an ECT blob
+     */
+    private EctPatcher(ByteBuffer buffer, MappedByteBuffer mapping) throws IOException {
+        if (buffer.isReadOnly()) {
+            throw new IOException("ECT buffer is read-only");
+        }
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.mapping = mapping;
+        reader = EctReader.wrap(this.buffer);
+    }
+
+    /**
+     * Maps an ECT blob file read-write so edits land in the file's pages directly.
+     *
+     * @param path blob file
+     * @return patcher over the mapping
+     * @throws IOException if the file cannot be mapped or is not an ECT blob
+     */
+    public static EctPatcher open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapping =
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            return new EctPatcher(mapping, mapping);
+        }
+    }
+
+    /**
+     * Creates a patcher over a blob that is already in memory.
+     *
+     * @param buffer writable blob from position zero; its limit bounds how far the blob can grow
+     * @return patcher editing {@code buffer}
+     * @throws IOException if the buffer is read-only or not an ECT blob
+     */
+    public static EctPatcher wrap(ByteBuffer buffer) throws IOException {
+        return new EctPatcher(buffer, null);
+    }
+
+    /**
+     * Returns a reader over the blob as currently edited.
+     *
+     * @return reader; replaced after every insertion
+     */
+    public EctReader reader() {
+        return reader;
+    }
+
+    /**
+     * Replaces the frequency and voltages of an existing level.
+     *
+     * @param domain DVFS and ASV domain name, such as {@link #G3D}
+     * @param level level index, fastest first
+     * @param frequency new frequency in kHz
+     * @param voltages voltages in microvolts indexed {@code [table][group]}, or {@code null} to
+     *     keep the current ones; a {@code null} row keeps that table
+     * @throws IOException if the domain is missing from either section
+     * @throws IllegalArgumentException if the level is out of range or a voltage cannot be encoded
+     */
+    public void setLevel(String domain, int level, long frequency, int[][] voltages)
+            throws IOException {
+        EctReader.dvfsDomain dvfs = dvfsDomain(domain);
+        EctReader.asvDomain asv = asvDomain(domain);
+        checkLevel(dvfs, asv, level, dvfs.levels.length);
+        checkVoltages(asv, voltages);
+
+        putInt(dvfs.levelsOffset + level * 8, (int) frequency);
+        putInt(asvLevelOffset(asv, level), asvFrequency(frequency));
+        for (int t = 0; t < asv.tables.length; t++) {
+            if (voltages != null && voltages[t] != null) {
+                putSteps(asv.tables[t].stepsOffset + level * asv.groups, voltages[t]);
+            }
+        }
+        reader = EctReader.wrap(buffer);
+    }
+
+    /**
+     * Inserts a level, copying the clock values and enable flags of a neighbouring level.
+     *
+     * <p>The neighbour is the level currently at {@code at}, or the last level when appending.
+     *
+     * @param domain DVFS and ASV domain name, such as {@link #G3D}
+     * @param at index the new level will occupy, fastest first
+     * @param frequency frequency in kHz
+     * @param voltages voltages in microvolts indexed {@code [table][group]}, or {@code null} to
+     *     copy the neighbour's; a {@code null} row copies that table
+     * @throws IOException if the domain is missing or the blob has no room to grow
+     * @throws IllegalArgumentException if the index is out of range or a voltage cannot be encoded
+     */
+    public void insertLevel(String domain, int at, long frequency, int[][] voltages)
+            throws IOException {
+        EctReader.dvfsDomain dvfs = dvfsDomain(domain);
+        EctReader.asvDomain asv = asvDomain(domain);
+        int levels = dvfs.levels.length;
+        checkLevel(dvfs, asv, at, levels + 1);
+        checkVoltages(asv, voltages);
+        int from = Math.min(at, levels - 1);
+        int oldSteps = EctReader.align(asv.groups * levels);
+        int newSteps = EctReader.align(asv.groups * (levels + 1));
+
+        int growth = 8 + dvfs.clocks * 4 + 4 + asv.tables.length * (4 + newSteps - oldSteps);
+        if (reader.totalSize + growth > buffer.limit()) {
+            throw new IOException("ECT needs " + growth + " more bytes but only "
+                    + (buffer.limit() - reader.totalSize) + " are free");
+        }
+
+        // ASV follows DVFS in the blob, so editing it first leaves the DVFS offsets valid. Tables
+        // and fields are edited from the back for the same reason.
+        for (int t = asv.tables.length - 1; t >= 0; t--) {
+            EctReader.asvTable table = asv.tables[t];
+            int[] row = voltages != null && voltages[t] != null
+                    ? voltages[t]
+                    : copyVoltages(asv, t, from);
+
+            int[] steps = new int[newSteps];
+            System.arraycopy(table.voltages, 0, steps, 0, at * asv.groups);
+            System.arraycopy(row, 0, steps, at * asv.groups, asv.groups);
+            System.arraycopy(table.voltages, at * asv.groups, steps, (at + 1) * asv.groups,
+                    (levels - at) * asv.groups);
+            insert(EctReader.ASV, asv.offset, table.stepsOffset + oldSteps, newSteps - oldSteps);
+            putSteps(table.stepsOffset, steps);
+
+            int enable = table.offset + 12 + at * 4;
+            int enabled = table.levelEnabled[from];
+            insert(EctReader.ASV, asv.offset, enable, 4);
+            putInt(enable, enabled);
+        }
+        int level = asvLevelOffset(asv, at);
+        insert(EctReader.ASV, asv.offset, level, 4);
+        putInt(level, asvFrequency(frequency));
+        putInt(asv.offset + 4, levels + 1);
+
+        int value = dvfs.valuesOffset + at * dvfs.clocks * 4;
+        insert(EctReader.DVFS, dvfs.offset, value, dvfs.clocks * 4);
+        for (int i = 0; i < dvfs.clocks; i++) {
+            putInt(value + i * 4, dvfs.values[from * dvfs.clocks + i]);
+        }
+        int record = dvfs.levelsOffset + at * 8;
+        insert(EctReader.DVFS, dvfs.offset, record, 8);
+        putInt(record, (int) frequency);
+        putInt(record + 4, dvfs.levelEnabled[from] ? 1 : 0);
+        putInt(dvfs.levelCountOffset, levels + 1);
+
+        reader = EctReader.wrap(buffer);
+    }
+
+    /**
+     * Returns the byte ranges written since the patcher was created, merged and in order.
+     *
+     * @return ranges as {@code {offset, length}} pairs
+     */
+    public List<int[]> dirtyRanges() {
+        List<int[]> ranges = new ArrayList<>(dirty.size());
+        for (Map.Entry<Integer, Integer> range : dirty.entrySet()) {
+            ranges.add(new int[]{range.getKey(), range.getValue() - range.getKey()});
+        }
+        return ranges;
+    }
+
+    /**
+     * Writes only the modified ranges to a copy of the blob at the same offsets.
+     *
+     * @param channel writable channel over a copy of the original blob
+     * @return number of bytes written
+     * @throws IOException if a write fails
+     */
+    public long writeChanges(FileChannel channel) throws IOException {
+        long written = 0;
+        for (Map.Entry<Integer, Integer> range : dirty.entrySet()) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(range.getValue()).position(range.getKey());
+            long position = range.getKey();
+            while (slice.hasRemaining()) {
+                written += channel.write(slice, position + (slice.position() - range.getKey()));
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Flushes a file mapping created by {@link #open(Path)} to storage.
+     *
+     * <p>Patchers created by {@link #wrap(ByteBuffer)} have nothing to flush.
+     */
+    public void force() {
+        if (mapping != null) {
+            mapping.force();
+        }
+    }
+
+    /**
+     * Looks up a DVFS domain that an edit needs.
+     *
+     * @param name domain name
+     * @return domain
+     * @throws IOException if the domain is missing
+     */
+    private EctReader.dvfsDomain dvfsDomain(String name) throws IOException {
+        EctReader.dvfsDomain domain = reader.dvfsDomain(name);
+        if (domain == null) {
+            throw new IOException("ECT has no DVFS domain " + name);
+        }
+        return domain;
+    }
+
+    /**
+     * Looks up an ASV domain that an edit needs.
+     *
+     * @param name domain name
+     * @return domain
+     * @throws IOException if the domain is missing
+     */
+    private EctReader.asvDomain asvDomain(String name) throws IOException {
+        EctReader.asvDomain domain = reader.asvDomain(name);
+        if (domain == null) {
+            throw new IOException("ECT has no ASV domain " + name);
+        }
+        return domain;
+    }
+
+    /**
+     * Rejects level indices outside a domain and domains whose two sections disagree.
+     *
+     * @param dvfs DVFS domain
+     * @param asv ASV domain
+     * @param level level index
+     * @param bound exclusive upper bound for {@code level}
+     */
+    private static void checkLevel(EctReader.dvfsDomain dvfs, EctReader.asvDomain asv,
+                                   int level, int bound) {
+        if (dvfs.levels.length != asv.levels.length) {
+            throw new IllegalArgumentException(dvfs.name + " has " + dvfs.levels.length
+                    + " DVFS levels but " + asv.levels.length + " ASV levels");
+        }
+        if (level < 0 || level >= bound) {
+            throw new IllegalArgumentException("Level " + level + " of " + dvfs.name
+                    + " is out of range");
+        }
+    }
+
+    /**
+     * Rejects voltage rows that do not fit the ASV tables.
+     *
+     * @param asv ASV domain
+     * @param voltages voltages indexed {@code [table][group]}, or {@code null}
+     */
+    private static void checkVoltages(EctReader.asvDomain asv, int[][] voltages) {
+        if (voltages == null) {
+            return;
+        }
+        if (voltages.length != asv.tables.length) {
+            throw new IllegalArgumentException("Expected " + asv.tables.length
+                    + " voltage rows, got " + voltages.length);
+        }
+        for (int[] row : voltages) {
+            if (row == null) {
+                continue;
+            }
+            if (row.length != asv.groups) {
+                throw new IllegalArgumentException("Expected " + asv.groups
+                        + " voltages per row, got " + row.length);
+            }
+            for (int uv : row) {
+                if (uv < 0 || uv % EctReader.VOLTAGE_STEP_UV != 0
+                        || uv / EctReader.VOLTAGE_STEP_UV > 0xff) {
+                    throw new IllegalArgumentException("Voltage " + uv
+                            + " uV is not a multiple of " + EctReader.VOLTAGE_STEP_UV
+                            + " uV up to " + 0xff * EctReader.VOLTAGE_STEP_UV);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies one level's voltages out of an ASV table.
+     *
+     * @param asv ASV domain
+     * @param table table index
+     * @param level level index
+     * @return voltages in microvolts, one per group
+     */
+    private static int[] copyVoltages(EctReader.asvDomain asv, int table, int level) {
+        int[] row = new int[asv.groups];
+        System.arraycopy(asv.tables[table].voltages, level * asv.groups, row, 0, asv.groups);
+        return row;
+    }
+
+    /**
+     * Returns the offset of a level's frequency in an ASV domain's level list.
+     *
+     * @param asv ASV domain
+     * @param level level index
+     * @return absolute offset
+     */
+    private static int asvLevelOffset(EctReader.asvDomain asv, int level) {
+        return asv.offset + 12 + level * 4;
+    }
+
+    /**
+     * Converts a DVFS frequency to the whole megahertz stored in ASV level lists.
+     *
+     * @param frequency frequency in kHz
+     * @return frequency in MHz
+     */
+    private static int asvFrequency(long frequency) {
+        return (int) (frequency / 1000);
+    }
+
+    /**
+     * Opens a gap inside a domain and fixes every offset that pointed past it.
+     *
+     * <p>Sections and domains starting at or after {@code at} move up by {@code length}; the
+     * domain that contains the gap keeps its offset.
+     *
+     * @param sectionName name of the section containing the domain
+     * @param domainOffset absolute offset of the domain containing the gap
+     * @param at absolute offset of the gap
+     * @param length gap length in bytes
+     */
+    private void insert(String sectionName, int domainOffset, int at, int length) {
+        if (length == 0) {
+            return;
+        }
+        int total = buffer.getInt(8);
+        byte[] tail = new byte[total - at];
+        ByteBuffer view = buffer.duplicate();
+        view.position(at);
+        view.get(tail);
+        view.position(at + length);
+        view.put(tail);
+        putInt(8, total + length);
+
+        EctReader.section section = reader.section(sectionName);
+        int position = EctReader.HEADER_SIZE;
+        for (int i = 0; i < reader.sections.length; i++) {
+            position = EctReader.skipString(buffer, position);
+            int offset = buffer.getInt(position);
+            if (offset >= at) {
+                putInt(position, offset + length);
+            }
+            position += 4;
+        }
+
+        int count = buffer.getInt(section.offset + 8);
+        position = section.offset + 12;
+        for (int i = 0; i < count; i++) {
+            position = EctReader.skipString(buffer, position);
+            int offset = buffer.getInt(position);
+            if (section.offset + offset >= at && section.offset + offset != domainOffset) {
+                putInt(position, offset + length);
+            }
+            position += 4;
+        }
+
+        markDirty(at, total + length - at);
+    }
+
+    /**
+     * Writes one little-endian word and records it.
+     *
+     * @param offset absolute offset
+     * @param value word value
+     */
+    private void putInt(int offset, int value) {
+        buffer.putInt(offset, value);
+        markDirty(offset, 4);
+    }
+
+    /**
+     * Encodes voltages as one-byte steps and records them.
+     *
+     * @param offset absolute offset of the first step
+     * @param voltages voltages in microvolts; zeros also fill padding
+     */
+    private void putSteps(int offset, int[] voltages) {
+        for (int i = 0; i < voltages.length; i++) {
+            buffer.put(offset + i, (byte) (voltages[i] / EctReader.VOLTAGE_STEP_UV));
+        }
+        markDirty(offset, voltages.length);
+    }
+
+    /**
+     * Records a written range, merging it with overlapping or adjacent ones.
+     *
+     * @param offset first byte written
+     * @param length bytes written
+     */
+    private void markDirty(int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+
+        Map.Entry<Integer, Integer> before = dirty.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+        Map.Entry<Integer, Integer> next;
+        while ((next = dirty.ceilingEntry(start)) != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            dirty.remove(next.getKey());
+        }
+        dirty.put(start, end);
+    }
+}
@@ -0,0 +1,904 @@
+package xzr.konabess.ect;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the Exynos Chip Table (ECT), the firmware blob that carries PLL settings, DVFS levels, ASV
+ * voltages and thermal limits.
+ *
+ * <p>The blob is read in place. Opening it only indexes the header table; each section is decoded
+ * into primitive arrays the first time it is requested and cached afterwards. All fields are
+ * little-endian 32-bit words, and strings are a length word followed by the NUL-terminated text
+ * padded to a multiple of four bytes.
+ */
+public class EctReader {
+    /** Signature at offset zero of every ECT blob. */
+    public static final String SIGNATURE = "PARA";
+    /** Size of the fixed part of the blob header in bytes. */
+    public static final int HEADER_SIZE = 16;
+    /** Voltage represented by one ASV step, in microvolts. */
+    public static final int VOLTAGE_STEP_UV = 6250;
+
+    /** Header table name of the PLL section. */
+    public static final String PLL = "PLL";
+    /** Header table name of the DVFS section. */
+    public static final String DVFS = "DVFS";
+    /** Header table name of the ASV voltage section. */
+    public static final String ASV = "ASV";
+    /** Header table name of the general-parameter section. */
+    public static final String GEN = "GEN";
+    /** Header table name of the memory timing section. */
+    public static final String NEWTIME = "NEWTIME";
+    /** Header table name of the PIDTM section. */
+    public static final String PIDTM = "PIDTM";
+    /** Header table name of the minlock section. */
+    public static final String MINLOCK = "MINLOCK";
+    /** Header table name of the AP thermal section. */
+    public static final String THERMAL = "THERMAL";
+
+    /** DVFS domain mode whose clocks are listed by name. */
+    static final int DVFS_MODE_CLOCK_NAME = 1;
+    /** Timing table mode whose values are 64 bits wide. */
+    static final int TIMING_MODE_64BIT = 2;
+
+    /** Little-endian view of the blob, from position zero. */
+    public final ByteBuffer buffer;
+    /** Blob format version, such as {@code 2005}. */
+    public final String version;
+    /** Used size of the blob as recorded in the header. */
+    public final int totalSize;
+    /** Sections in header-table order. */
+    public final section[] sections;
+
+    private pll[] plls;
+    private dvfsDomain[] dvfsDomains;
+    private asvDomain[] asvDomains;
+    private genTable[] genTables;
+    private timingTable[] timingTables;
+    private pidtmBlock[] pidtmBlocks;
+    private minlockDomain[] minlockDomains;
+    private thermalFunction[] thermalFunctions;
+
+    /**
+     * Indexes the header table of a blob.
+     *
+     * @param buffer blob contents from position zero; its byte order is not changed
+     * @throws IOException if the signature is wrong or a section lies outside the blob
+     */
+    private EctReader(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer b = this.buffer;
+
+        if (b.limit() < HEADER_SIZE) {
+            throw new IOException("ECT is shorter than its header: " + b.limit() + " bytes");
+        }
+        String signature = ascii(b, 0, 4);
+        if (!SIGNATURE.equals(signature)) {
+            throw new IOException("Bad ECT signature: " + signature);
+        }
+
+        version = ascii(b, 4, 4);
+        totalSize = b.getInt(8);
+        if (totalSize < HEADER_SIZE || totalSize > b.limit()) {
+            throw new IOException("ECT total size " + totalSize + " exceeds the blob ("
+                    + b.limit() + " bytes)");
+        }
+
+        int count = b.getInt(12);
+        if (count < 0 || count > 64) {
+            throw new IOException("Implausible ECT header count: " + count);
+        }
+
+        sections = new section[count];
+        int position = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            section section = new section();
+            section.name = string(b, position);
+            position = skipString(b, position);
+            section.offset = b.getInt(position);
+            position += 4;
+            if (section.offset < position || section.offset + 8 > totalSize) {
+                throw new IOException("ECT section " + section.name + " at " + section.offset
+                        + " lies outside the blob");
+            }
+            section.parserVersion = b.getInt(section.offset);
+            section.version = ascii(b, section.offset + 4, 4);
+            sections[i] = section;
+        }
+
+        // A section ends where the next one in the blob starts.
+        section[] byOffset = sections.clone();
+        Arrays.sort(byOffset, (x, y) -> Integer.compare(x.offset, y.offset));
+        for (int i = 0; i < byOffset.length; i++) {
+            byOffset[i].size = (i + 1 < byOffset.length ? byOffset[i + 1].offset : totalSize)
+                    - byOffset[i].offset;
+        }
+    }
+
+    /**
+     * Maps an ECT blob read-only and indexes its header table.
+     *
+     * @param path blob file, such as a dump of the {@code /ect} reserved memory
+     * @return reader over the mapping
+     * @throws IOException if the file cannot be mapped or is not an ECT blob
+     */
+    public static EctReader open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new EctReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Indexes the header table of a blob that is already in memory.
+     *
+     * @param buffer blob contents from position zero
+     * @return reader sharing the buffer's contents
+     * @throws IOException if the buffer is not an ECT blob
+     */
+    public static EctReader wrap(ByteBuffer buffer) throws IOException {
+        return new EctReader(buffer);
+    }
+
+    /**
+     * Looks up a section by its header-table name.
+     *
+     * @param name section name, such as {@link #DVFS}
+     * @return section, or {@code null} if the blob has none
+     */
+    public section section(String name) {
+        for (section section : sections) {
+            if (section.name.equals(name)) {
+                return section;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the PLL section, decoding it on first use.
+     *
+     * @return PLLs in blob order
+     * @throws IOException if the section is missing or malformed
+     */
+    public synchronized pll[] plls() throws IOException {
+        if (plls == null) {
+            section section = require(PLL);
+            try {
+                int[] offsets = entryOffsets(section);
+                pll[] result = new pll[offsets.length];
+                for (int i = 0; i < offsets.length; i++) {
+                    int p = section.offset + offsets[i];
+                    pll pll = new pll();
+                    pll.name = entryName(section, i);
+                    pll.type = buffer.getInt(p);
+                    int count = count(buffer.getInt(p + 4));
+                    pll.frequencies = new long[count];
+                    pll.p = new int[count];
+                    pll.m = new int[count];
+                    pll.s = new int[count];
+                    pll.k = new int[count];
+                    p += 8;
+                    for (int j = 0; j < count; j++, p += 20) {
+                        pll.frequencies[j] = Integer.toUnsignedLong(buffer.getInt(p));
+                        pll.p[j] = buffer.getInt(p + 4);
+                        pll.m[j] = buffer.getInt(p + 8);
+                        pll.s[j] = buffer.getInt(p + 12);
+                        pll.k[j] = buffer.getInt(p + 16);
+                    }
+                    result[i] = pll;
+                }
+                plls = result;
+            } catch (IndexOutOfBoundsException e) {
+                throw truncated(section, e);
+            }
+        }
+        return plls;
+    }
+
+    /**
+     * Returns the DVFS section, decoding it on first use.
+     *
+     * @return DVFS domains in blob order
+     * @throws IOException if the section is missing, malformed or uses an unknown parser version
+     */
+    public synchronized dvfsDomain[] dvfsDomains() throws IOException {
+        if (dvfsDomains == null) {
+            section section = require(DVFS);
+            try {
+                int[] offsets = entryOffsets(section);
+                dvfsDomain[] result = new dvfsDomain[offsets.length];
+                for (int i = 0; i < offsets.length; i++) {
+                    int p = section.offset + offsets[i];
+                    dvfsDomain domain = new dvfsDomain();
+                    domain.name = entryName(section, i);
+                    domain.offset = p;
+                    domain.maxFrequency = Integer.toUnsignedLong(buffer.getInt(p));
+                    domain.minFrequency = Integer.toUnsignedLong(buffer.getInt(p + 4));
+                    p += 8;
+                    domain.bootLevel = -1;
+                    domain.resumeLevel = -1;
+                    if (section.parserVersion >= 2) {
+                        domain.bootLevel = buffer.getInt(p);
+                        domain.resumeLevel = buffer.getInt(p + 4);
+                        p += 8;
+                    }
+                    domain.mode = DVFS_MODE_CLOCK_NAME;
+                    if (section.parserVersion >= 3) {
+                        domain.mode = buffer.getInt(p);
+                        p += 4;
+                    }
+                    domain.levelCountOffset = p + 4;
+                    int clocks = count(buffer.getInt(p));
+                    int levels = count(buffer.getInt(p + 4));
+                    p += 8;
+
+                    if (domain.mode == DVFS_MODE_CLOCK_NAME) {
+                        domain.clockNames = new String[clocks];
+                        for (int j = 0; j < clocks; j++) {
+                            domain.clockNames[j] = string(buffer, p);
+                            p = skipString(buffer, p);
+                        }
+                    } else {
+                        domain.sfrAddresses = ints(p, clocks);
+                        p += clocks * 4;
+                    }
+
+                    domain.levels = new long[levels];
+                    domain.levelEnabled = new boolean[levels];
+                    domain.levelsOffset = p;
+                    for (int j = 0; j < levels; j++, p += 8) {
+                        domain.levels[j] = Integer.toUnsignedLong(buffer.getInt(p));
+                        domain.levelEnabled[j] = buffer.getInt(p + 4) != 0;
+                    }
+                    domain.clocks = clocks;
+                    domain.valuesOffset = p;
+                    domain.values = ints(p, levels * clocks);
+                    result[i] = domain;
+                }
+                dvfsDomains = result;
+            } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw truncated(section, e);
+            }
+        }
+        return dvfsDomains;
+    }
+
+    /**
+     * Returns the ASV voltage section, decoding it on first use.
+     *
+     * @return ASV domains in blob order
+     * @throws IOException if the section is missing, malformed or predates parser version 3
+     */
+    public synchronized asvDomain[] asvDomains() throws IOException {
+        if (asvDomains == null) {
+            section section = require(ASV);
+            if (section.parserVersion < 3) {
+                throw new IOException("Unsupported ASV parser version " + section.parserVersion);
+            }
+            try {
+                int[] offsets = entryOffsets(section);
+                asvDomain[] result = new asvDomain[offsets.length];
+                for (int i = 0; i < offsets.length; i++) {
+                    int p = section.offset + offsets[i];
+                    asvDomain domain = new asvDomain();
+                    domain.name = entryName(section, i);
+                    domain.offset = p;
+                    domain.groups = count(buffer.getInt(p));
+                    int levels = count(buffer.getInt(p + 4));
+                    int tables = count(buffer.getInt(p + 8));
+                    p += 12;
+                    domain.levels = ints(p, levels);
+                    p += levels * 4;
+
+                    domain.tables = new asvTable[tables];
+                    for (int t = 0; t < tables; t++) {
+                        asvTable table = new asvTable();
+                        table.offset = p;
+                        table.version = buffer.getInt(p);
+                        table.bootLevel = buffer.getInt(p + 4);
+                        table.resumeLevel = buffer.getInt(p + 8);
+                        p += 12;
+                        table.levelEnabled = ints(p, levels);
+                        p += levels * 4;
+                        table.stepsOffset = p;
+                        table.voltages = new int[levels * domain.groups];
+                        for (int j = 0; j < table.voltages.length; j++) {
+                            table.voltages[j] = (buffer.get(p + j) & 0xff) * VOLTAGE_STEP_UV;
+                        }
+                        p = align(p + table.voltages.length);
+                        domain.tables[t] = table;
+                    }
+                    domain.end = p;
+                    result[i] = domain;
+                }
+                asvDomains = result;
+            } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw truncated(section, e);
+            }
+        }
+        return asvDomains;
+    }
+
+    /**
+     * Returns the general-parameter section, decoding it on first use.
+     *
+     * @return parameter tables in blob order
+     * @throws IOException if the section is missing or malformed
+     */
+    public synchronized genTable[] genTables() throws IOException {
+        if (genTables == null) {
+            section section = require(GEN);
+            try {
+                int[] offsets = entryOffsets(section);
+                genTable[] result = new genTable[offsets.length];
+                for (int i = 0; i < offsets.length; i++) {
+                    int p = section.offset + offsets[i];
+                    genTable table = new genTable();
+                    table.name = entryName(section, i);
+                    table.columns = count(buffer.getInt(p));
+                    table.rows = count(buffer.getInt(p + 4));
+                    table.values = ints(p + 8, table.columns * table.rows);
+                    result[i] = table;
+                }
+                genTables = result;
+            } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw truncated(section, e);
+            }
+        }
+        return genTables;
+    }
+
+    /**
+     * Returns the memory timing section, decoding it on first use.
+     *
+     * <p>Unlike the other sections, its header entries are keyed by a 64-bit parameter key instead
+     * of a name.
+     *
+     * @return timing tables in blob order
+     * @throws IOException if the section is missing or malformed
+     */
+    public synchronized timingTable[] timingTables() throws IOException {
+        if (timingTables == null) {
+            section section = require(NEWTIME);
+            try {
+                int count = count(buffer.getInt(section.offset + 8));
+                timingTable[] result = new timingTable[count];
+                int entry = section.offset + 12;
+                for (int i = 0; i < count; i++, entry += 12) {
+                    timingTable table = new timingTable();
+                    table.key = buffer.getLong(entry);
+                    int p = section.offset + buffer.getInt(entry + 8);
+                    table.mode = buffer.getInt(p);
+                    table.parameters = count(buffer.getInt(p + 4));
+                    table.levels = count(buffer.getInt(p + 8));
+                    p += 12;
+                    table.values = new long[table.parameters * table.levels];
+                    boolean wide = table.mode == TIMING_MODE_64BIT;
+                    for (int j = 0; j < table.values.length; j++) {
+                        table.values[j] = wide
+                                ? buffer.getLong(p + j * 8)
+                                : Integer.toUnsignedLong(buffer.getInt(p + j * 4));
+                    }
+                    result[i] = table;
+                }
+                timingTables = result;
+            } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw truncated(section, e);
+            }
+        }
+        return timingTables;
+    }
+
+    /**
+     * Returns the PIDTM section, decoding it on first use.
+     *
+     * @return thermal-governor blocks in blob order
+     * @throws IOException if the section is missing or malformed
+     */
+    public synchronized pidtmBlock[] pidtmBlocks() throws IOException {
+        if (pidtmBlocks == null) {
+            section section = require(PIDTM);
+            try {
+                int[] offsets = entryOffsets(section);
+                pidtmBlock[] result = new pidtmBlock[offsets.length];
+                for (int i = 0; i < offsets.length; i++) {
+                    int p = section.offset + offsets[i];
+                    pidtmBlock block = new pidtmBlock();
+                    block.name = entryName(section, i);
+                    int temperatures = count(buffer.getInt(p));
+                    block.temperatures = ints(p + 4, temperatures);
+                    p += 4 + temperatures * 4;
+                    int parameters = count(buffer.getInt(p));
+                    p += 4;
+                    block.parameterNames = new String[parameters];
+                    for (int j = 0; j < parameters; j++) {
+                        block.parameterNames[j] = string(buffer, p);
+                        p = skipString(buffer, p);
+                    }
+                    block.parameterValues = ints(p, parameters);
+                    result[i] = block;
+                }
+                pidtmBlocks = result;
+            } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw truncated(section, e);
+            }
+        }
+        return pidtmBlocks;
+    }
+
+    /**
+     * Returns the minlock section, decoding it on first use.
+     *
+     * @return minlock domains in blob order
+     * @throws IOException if the section is missing or malformed
+     */
+    public synchronized minlockDomain[] minlockDomains() throws IOException {
+        if (minlockDomains == null) {
+            section section = require(MINLOCK);
+            try {
+                int[] offsets = entryOffsets(section);
+                minlockDomain[] result = new minlockDomain[offsets.length];
+                for (int i = 0; i < offsets.length; i++) {
+                    int p = section.offset + offsets[i];
+                    minlockDomain domain = new minlockDomain();
+                    domain.name = entryName(section, i);
+                    int levels = count(buffer.getInt(p));
+                    domain.mainFrequencies = new int[levels];
+                    domain.subFrequencies = new int[levels];
+                    p += 4;
+                    for (int j = 0; j < levels; j++, p += 8) {
+                        domain.mainFrequencies[j] = buffer.getInt(p);
+                        domain.subFrequencies[j] = buffer.getInt(p + 4);
+                    }
+                    result[i] = domain;
+                }
+                minlockDomains = result;
+            } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw truncated(section, e);
+            }
+        }
+        return minlockDomains;
+    }
+
+    /**
+     * Returns the AP thermal section, decoding it on first use.
+     *
+     * @return thermal functions in blob order
+     * @throws IOException if the section is missing or malformed
+     */
+    public synchronized thermalFunction[] thermalFunctions() throws IOException {
+        if (thermalFunctions == null) {
+            section section = require(THERMAL);
+            try {
+                int[] offsets = entryOffsets(section);
+                thermalFunction[] result = new thermalFunction[offsets.length];
+                for (int i = 0; i < offsets.length; i++) {
+                    int p = section.offset + offsets[i];
+                    thermalFunction function = new thermalFunction();
+                    function.name = entryName(section, i);
+                    int ranges = count(buffer.getInt(p));
+                    function.lowerTemperatures = new int[ranges];
+                    function.upperTemperatures = new int[ranges];
+                    function.maxFrequencies = new int[ranges];
+                    function.swTrips = new int[ranges];
+                    function.flags = new int[ranges];
+                    p += 4;
+                    for (int j = 0; j < ranges; j++, p += 20) {
+                        function.lowerTemperatures[j] = buffer.getInt(p);
+                        function.upperTemperatures[j] = buffer.getInt(p + 4);
+                        function.maxFrequencies[j] = buffer.getInt(p + 8);
+                        function.swTrips[j] = buffer.getInt(p + 12);
+                        function.flags[j] = buffer.getInt(p + 16);
+                    }
+                    result[i] = function;
+                }
+                thermalFunctions = result;
+            } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw truncated(section, e);
+            }
+        }
+        return thermalFunctions;
+    }
+
+    /**
+     * Looks up a DVFS domain by name.
+     *
+     * @param name domain name, such as {@code dvfs_g3d}
+     * @return domain, or {@code null} if the blob has none
+     * @throws IOException if the DVFS section cannot be decoded
+     */
+    public dvfsDomain dvfsDomain(String name) throws IOException {
+        for (dvfsDomain domain : dvfsDomains()) {
+            if (domain.name.equals(name)) {
+                return domain;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks up an ASV domain by name.
+     *
+     * @param name domain name, such as {@code dvfs_g3d}
+     * @return domain, or {@code null} if the blob has none
+     * @throws IOException if the ASV section cannot be decoded
+     */
+    public asvDomain asvDomain(String name) throws IOException {
+        for (asvDomain domain : asvDomains()) {
+            if (domain.name.equals(name)) {
+                return domain;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks up a PLL by name.
+     *
+     * @param name PLL name, such as {@code PLL_G3D}
+     * @return PLL, or {@code null} if the blob has none
+     * @throws IOException if the PLL section cannot be decoded
+     */
+    public pll pll(String name) throws IOException {
+        for (pll pll : plls()) {
+            if (pll.name.equals(name)) {
+                return pll;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks up a general-parameter table by name.
+     *
+     * @param name table name, such as {@code MINMAX_dvfs_g3d}
+     * @return table, or {@code null} if the blob has none
+     * @throws IOException if the general-parameter section cannot be decoded
+     */
+    public genTable genTable(String name) throws IOException {
+        for (genTable table : genTables()) {
+            if (table.name.equals(name)) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks up a section that a decoder needs.
+     *
+     * @param name section name
+     * @return section
+     * @throws IOException if the blob has no such section
+     */
+    private section require(String name) throws IOException {
+        section section = section(name);
+        if (section == null) {
+            throw new IOException("ECT has no " + name + " section");
+        }
+        return section;
+    }
+
+    /**
+     * Reads the entry offsets of a named-entry section, caching its entry names.
+     *
+     * <p>Such sections start with the parser version, the version text and an entry count, then
+     * list a name and a section-relative offset for each entry.
+     *
+     * @param section section to index
+     * @return entry offsets relative to the section start
+     */
+    private int[] entryOffsets(section section) {
+        int count = count(buffer.getInt(section.offset + 8));
+        int[] offsets = new int[count];
+        section.entryNames = new String[count];
+        int p = section.offset + 12;
+        for (int i = 0; i < count; i++) {
+            section.entryNames[i] = string(buffer, p);
+            p = skipString(buffer, p);
+            offsets[i] = buffer.getInt(p);
+            p += 4;
+        }
+        return offsets;
+    }
+
+    /**
+     * Returns an entry name cached by {@link #entryOffsets(section)}.
+     *
+     * @param section indexed section
+     * @param index entry index
+     * @return entry name
+     */
+    private static String entryName(section section, int index) {
+        return section.entryNames[index];
+    }
+
+    /**
+     * Reads consecutive 32-bit words.
+     *
+     * @param offset absolute offset of the first word
+     * @param count number of words
+     * @return words
+     */
+    private int[] ints(int offset, int count) {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = buffer.getInt(offset + i * 4);
+        }
+        return values;
+    }
+
+    /**
+     * Rejects negative element counts before they size an array.
+     *
+     * @param count count read from the blob
+     * @return {@code count}
+     * @throws IndexOutOfBoundsException if the count is negative or larger than the blob
+     */
+    private int count(int count) {
+        if (count < 0 || count > buffer.limit()) {
+            throw new IndexOutOfBoundsException("Bad element count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Wraps a decoding overrun in the exception reported to callers.
+     *
+     * @param section section being decoded
+     * @param cause overrun
+     * @return exception naming the section
+     */
+    private static IOException truncated(section section, RuntimeException cause) {
+        return new IOException("Malformed ECT " + section.name + " section", cause);
+    }
+
+    /**
+     * Reads a length-prefixed string.
+     *
+     * @param b blob
+     * @param offset absolute offset of the length word
+     * @return string without its terminator
+     */
+    static String string(ByteBuffer b, int offset) {
+        return ascii(b, offset + 4, b.getInt(offset));
+    }
+
+    /**
+     * Returns the offset after a length-prefixed string and its padding.
+     *
+     * @param b blob
+     * @param offset absolute offset of the length word
+     * @return offset of the following field
+     */
+    static int skipString(ByteBuffer b, int offset) {
+        return offset + 4 + align(b.getInt(offset) + 1);
+    }
+
+    /**
+     * Rounds a length up to a multiple of four bytes.
+     *
+     * @param length length in bytes
+     * @return aligned length
+     */
+    static int align(int length) {
+        return (length + 3) & ~3;
+    }
+
+    /**
+     * Decodes fixed-length ASCII text.
+     *
+     * @param b blob
+     * @param offset absolute offset of the text
+     * @param length text length in bytes
+     * @return decoded text
+     */
+    private static String ascii(ByteBuffer b, int offset, int length) {
+        if (length < 0 || offset + length > b.limit()) {
+            throw new IndexOutOfBoundsException("String of " + length + " bytes at " + offset);
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = b.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /** One entry of the blob header table. */
+    public static class section {
+        /** Section name, such as {@link #DVFS}. */
+        public String name;
+        /** Absolute offset of the section. */
+        public int offset;
+        /** Bytes up to the next section, or to the total size for the last one. */
+        public int size;
+        /** Parser version stored at the start of the section. */
+        public int parserVersion;
+        /** Section format version, such as {@code 0.00}. */
+        public String version;
+        /** Entry names in section order, set once the section is decoded. */
+        public String[] entryNames;
+    }
+
+    /** Frequency table of one PLL. */
+    public static class pll {
+        /** PLL name, such as {@code PLL_G3D}. */
+        public String name;
+        /** PLL IP type. */
+        public int type;
+        /** Output frequencies in Hz, fastest first. */
+        public long[] frequencies;
+        /** Pre-divider per frequency. */
+        public int[] p;
+        /** Feedback multiplier per frequency. */
+        public int[] m;
+        /** Post-divider exponent per frequency. */
+        public int[] s;
+        /** Fractional multiplier per frequency. */
+        public int[] k;
+    }
+
+    /** Level list of one DVFS domain. */
+    public static class dvfsDomain {
+        /** Domain name, such as {@code dvfs_g3d}. */
+        public String name;
+        /** Absolute offset of the domain. */
+        public int offset;
+        /** Maximum frequency field; {@code 0} on blobs that leave it unset. */
+        public long maxFrequency;
+        /** Minimum frequency field; {@code 0xffffffff} on blobs that leave it unset. */
+        public long minFrequency;
+        /** Boot level index, or {@code -1} for none. */
+        public int bootLevel;
+        /** Resume level index, or {@code -1} for none. */
+        public int resumeLevel;
+        /** Clock list mode: clock names or SFR addresses. */
+        public int mode;
+        /** Clocks per level. */
+        public int clocks;
+        /** Clock names when the domain lists clocks by name, otherwise {@code null}. */
+        public String[] clockNames;
+        /** SFR addresses when the domain lists clocks by register, otherwise {@code null}. */
+        public int[] sfrAddresses;
+        /** Level frequencies in kHz, fastest first. */
+        public long[] levels;
+        /** Per-level enable flags. */
+        public boolean[] levelEnabled;
+        /** Absolute offset of the level count word. */
+        public int levelCountOffset;
+        /** Absolute offset of the first level record. */
+        public int levelsOffset;
+        /** Clock values, level-major with {@link #clocks} values per level. */
+        public int[] values;
+        /** Absolute offset of {@link #values}. */
+        public int valuesOffset;
+    }
+
+    /** ASV voltage tables of one DVFS domain. */
+    public static class asvDomain {
+        /** Domain name, such as {@code dvfs_g3d}. */
+        public String name;
+        /** Absolute offset of the domain. */
+        public int offset;
+        /** Absolute offset just past the last table. */
+        public int end;
+        /** ASV groups, which are the columns of each table. */
+        public int groups;
+        /** Level frequencies in MHz, fastest first. */
+        public int[] levels;
+        /** Voltage tables, one per table version. */
+        public asvTable[] tables;
+
+        /**
+         * Returns the voltage of a level for an ASV group.
+         *
+         * @param table table index
+         * @param level level index
+         * @param group ASV group
+         * @return voltage in microvolts, or {@code 0} where the table has no entry
+         */
+        public int voltage(int table, int level, int group) {
+            return tables[table].voltages[level * groups + group];
+        }
+    }
+
+    /** One version of an ASV voltage table. */
+    public static class asvTable {
+        /** Absolute offset of the table. */
+        public int offset;
+        /** Table version, matched against the fused ASV table version. */
+        public int version;
+        /** Boot level index, or {@code -1} for none. */
+        public int bootLevel;
+        /** Resume level index, or {@code -1} for none. */
+        public int resumeLevel;
+        /** Per-level enable words. */
+        public int[] levelEnabled;
+        /** Absolute offset of the one-byte voltage steps. */
+        public int stepsOffset;
+        /** Voltages in microvolts, level-major with one column per ASV group. */
+        public int[] voltages;
+    }
+
+    /** One general-parameter table. */
+    public static class genTable {
+        /** Table name, such as {@code MINMAX_dvfs_g3d}. */
+        public String name;
+        /** Values per row. */
+        public int columns;
+        /** Number of rows. */
+        public int rows;
+        /** Values, row-major. */
+        public int[] values;
+
+        /**
+         * Returns one cell.
+         *
+         * @param row row index
+         * @param column column index
+         * @return cell value
+         */
+        public int get(int row, int column) {
+            return values[row * columns + column];
+        }
+    }
+
+    /** One memory timing table. */
+    public static class timingTable {
+        /** Parameter key identifying the memory configuration. */
+        public long key;
+        /** Value width mode; {@link #TIMING_MODE_64BIT} for 64-bit values. */
+        public int mode;
+        /** Timing parameters per level. */
+        public int parameters;
+        /** Number of levels. */
+        public int levels;
+        /** Values, level-major, zero-extended when stored as 32 bits. */
+        public long[] values;
+    }
+
+    /** Thermal-governor parameters of one CPU or GPU block. */
+    public static class pidtmBlock {
+        /** Block name, such as {@code G3D}. */
+        public String name;
+        /** Trigger temperatures in degrees Celsius. */
+        public int[] temperatures;
+        /** Parameter names, such as {@code k_po}. */
+        public String[] parameterNames;
+        /** Parameter values, indexed like {@link #parameterNames}. */
+        public int[] parameterValues;
+    }
+
+    /** Frequency pairs that lock a second domain to a minimum while the first runs fast. */
+    public static class minlockDomain {
+        /** Domain name, such as {@code dvfs_cpucl2}. */
+        public String name;
+        /** Frequencies of the named domain in kHz. */
+        public int[] mainFrequencies;
+        /** Minimum frequencies of the locked domain in kHz. */
+        public int[] subFrequencies;
+    }
+
+    /** Temperature ranges and frequency caps of one thermal function. */
+    public static class thermalFunction {
+        /** Function name, such as {@code LITTLE}. */
+        public String name;
+        /** Lower bound of each range in degrees Celsius. */
+        public int[] lowerTemperatures;
+        /** Upper bound of each range in degrees Celsius. */
+        public int[] upperTemperatures;
+        /** Frequency cap of each range. */
+        public int[] maxFrequencies;
+        /** Software trip flag of each range. */
+        public int[] swTrips;
+        /** Flags of each range. */
+        public int[] flags;
+    }
+}
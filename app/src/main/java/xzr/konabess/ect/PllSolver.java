@@ -0,0 +1,230 @@
+package xzr.konabess.ect;
+
+import java.util.Arrays;
+
+/**
+ * Index of every output frequency an integer-N Samsung PLL can lock to.
+ *
+ * <p>The output is {@code Fout = Fref * M / P / 2^S}. Every (P, M, S) inside the PLL's divider
+ * limits whose VCO frequency {@code Fref * M / P} lies inside its VCO limits is enumerated once,
+ * packed into one sorted {@code long[]} with a single setting per frequency, so the nearest
+ * reachable frequency is a binary search. Frequencies are in kHz, rounded down like the ECT PLL
+ * table and in the units of the DTS. The fractional divider K of these PLLs is always zero and is
+ * not searched.
+ *
+ * <p>Limits are only known for chips whose ECT PLL table has been dumped; {@link #forChip} returns
+ * {@code null} for the others rather than guessing.
+ */
+public class PllSolver {
+    /** Reference clock of the Exynos GPU PLL in Hz. */
+    public static final long G3D_REFERENCE = 26_000_000L;
+
+    /**
+     * {@code PLL_G3D} of the Exynos 9820, bounded by the settings of its ECT PLL table in
+     * {@code ect_dump/pll_list.txt}: P is always 4, M spans 96 to 184 and S 0 to 3, so the VCO
+     * runs from 624 to 1196 MHz.
+     */
+    public static final limits EXYNOS9820_G3D =
+            new limits(G3D_REFERENCE, 624_000_000L, 1_196_000_000L, 4, 4, 96, 184, 3);
+
+    private static PllSolver exynos9820;
+
+    private static final int M_SHIFT = 3;
+    private static final int P_SHIFT = 13;
+    private static final int FREQUENCY_SHIFT = 19;
+
+    private static PllSolver g3d;
+
+    private final long[] entries;
+    private final int size;
+
+    /**
+     * Enumerates every reachable output frequency of a PLL.
+     *
+     * @param limits reference clock, VCO range and divider ranges
+     * @throws IllegalArgumentException if a range is empty or does not fit the divider fields
+     */
+    public PllSolver(limits limits) {
+        if (limits.reference <= 0 || limits.vcoMin > limits.vcoMax
+                || limits.pMin < 1 || limits.pMin > limits.pMax || limits.pMax > 0x3f
+                || limits.mMin < 1 || limits.mMin > limits.mMax || limits.mMax > 0x3ff
+                || limits.sMax < 0 || limits.sMax > 0x7) {
+            throw new IllegalArgumentException("Invalid PLL limits: reference "
+                    + limits.reference + " Hz, VCO " + limits.vcoMin + ".." + limits.vcoMax
+                    + " Hz, P " + limits.pMin + ".." + limits.pMax + ", M " + limits.mMin + ".."
+                    + limits.mMax + ", S 0.." + limits.sMax);
+        }
+
+        long reference = limits.reference;
+        long[] packed = new long[(limits.pMax - limits.pMin + 1)
+                * (limits.mMax - limits.mMin + 1) * (limits.sMax + 1)];
+        int count = 0;
+        for (int p = limits.pMin; p <= limits.pMax; p++) {
+            int mFirst = (int) Math.max(limits.mMin,
+                    (limits.vcoMin * p + reference - 1) / reference);
+            int mLast = (int) Math.min(limits.mMax, limits.vcoMax * p / reference);
+            for (int m = mFirst; m <= mLast; m++) {
+                for (int s = 0; s <= limits.sMax; s++) {
+                    long frequency = reference * m / ((long) p << s) / 1000;
+                    packed[count++] = frequency << FREQUENCY_SHIFT
+                            | (long) p << P_SHIFT | (long) m << M_SHIFT | s;
+                }
+            }
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("No divider setting reaches the VCO range "
+                    + limits.vcoMin + ".." + limits.vcoMax + " Hz");
+        }
+        Arrays.sort(packed, 0, count);
+
+        // Equal frequencies sort by P, then M, so the first one kept has the smallest pre-divider.
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || frequencyOf(packed[i]) != frequencyOf(packed[unique - 1])) {
+                packed[unique++] = packed[i];
+            }
+        }
+        entries = Arrays.copyOf(packed, unique);
+        size = unique;
+    }
+
+    /**
+     * Returns the shared {@code PLL_G3D} index of a chip, building it on first use.
+     *
+     * @param chip {@link xzr.konabess.ChipInfo.type} name, such as {@code exynos9820}
+     * @return solver, or {@code null} if the chip's PLL limits are unknown
+     */
+    public static synchronized PllSolver forChip(String chip) {
+        if (!chip.equals("exynos9820")) {
+            return null;
+        }
+        if (exynos9820 == null) {
+            exynos9820 = new PllSolver(EXYNOS9820_G3D);
+        }
+        return exynos9820;
+    }
+
+    /**
+     * Returns the number of distinct reachable frequencies.
+     *
+     * @return index size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the reachable frequency closest to a target; ties resolve to the lower one.
+     *
+     * @param frequency target in kHz
+     * @return closest setting
+     */
+    public setting nearest(long frequency) {
+        long key = Math.max(0, Math.min(frequency, Long.MAX_VALUE >>> FREQUENCY_SHIFT));
+        int index = Arrays.binarySearch(entries, 0, size, key << FREQUENCY_SHIFT);
+        if (index < 0) {
+            index = -index - 1;
+        }
+
+        // index is now the first entry at or above the target.
+        if (index == size
+                || index > 0 && key - frequencyOf(entries[index - 1])
+                <= frequencyOf(entries[index]) - key) {
+            index--;
+        }
+        return unpack(entries[index]);
+    }
+
+    /**
+     * Checks whether a frequency locks exactly.
+     *
+     * @param frequency frequency in kHz
+     * @return {@code true} if some setting produces it
+     */
+    public boolean reachable(long frequency) {
+        return nearest(frequency).frequency == frequency;
+    }
+
+    /**
+     * Extracts the frequency of a packed entry.
+     *
+     * @param entry packed entry
+     * @return frequency in kHz
+     */
+    private static long frequencyOf(long entry) {
+        return entry >>> FREQUENCY_SHIFT;
+    }
+
+    /**
+     * Expands a packed entry.
+     *
+     * @param entry packed entry
+     * @return setting
+     */
+    private static setting unpack(long entry) {
+        setting setting = new setting();
+        setting.frequency = frequencyOf(entry);
+        setting.p = (int) (entry >>> P_SHIFT) & 0x3f;
+        setting.m = (int) (entry >>> M_SHIFT) & 0x3ff;
+        setting.s = (int) entry & 0x7;
+        return setting;
+    }
+
+    /** Reference clock and the VCO and divider ranges a PLL may use. */
+    public static class limits {
+        /** Reference clock in Hz. */
+        public final long reference;
+        /** Lowest VCO frequency in Hz. */
+        public final long vcoMin;
+        /** Highest VCO frequency in Hz. */
+        public final long vcoMax;
+        /** Smallest pre-divider. */
+        public final int pMin;
+        /** Largest pre-divider, at most 63. */
+        public final int pMax;
+        /** Smallest feedback multiplier. */
+        public final int mMin;
+        /** Largest feedback multiplier, at most 1023. */
+        public final int mMax;
+        /** Largest post-divider exponent, at most 7. */
+        public final int sMax;
+
+        /**
+         * Creates limits.
+         *
+         * @param reference reference clock in Hz
+         * @param vcoMin lowest VCO frequency in Hz
+         * @param vcoMax highest VCO frequency in Hz
+         * @param pMin smallest pre-divider
+         * @param pMax largest pre-divider
+         * @param mMin smallest feedback multiplier
+         * @param mMax largest feedback multiplier
+         * @param sMax largest post-divider exponent
+         */
+        public limits(long reference, long vcoMin, long vcoMax, int pMin, int pMax, int mMin,
+                      int mMax, int sMax) {
+            this.reference = reference;
+            this.vcoMin = vcoMin;
+            this.vcoMax = vcoMax;
+            this.pMin = pMin;
+            this.pMax = pMax;
+            this.mMin = mMin;
+            this.mMax = mMax;
+            this.sMax = sMax;
+        }
+    }
+
+    /** One PLL divider setting and the frequency it produces. */
+    public static class setting {
+        /** Output frequency in kHz, rounded down. */
+        public long frequency;
+        /** Pre-divider. */
+        public int p;
+        /** Feedback multiplier. */
+        public int m;
+        /** Post-divider exponent. */
+        public int s;
+        /** Fractional divider; always zero for integer-N PLLs. */
+        public int k;
+    }
+}
@@ -0,0 +1,184 @@
+package xzr.konabess.sim;
+
+import xzr.konabess.ect.AsvLookup;
+import xzr.konabess.ect.EctReader;
+import xzr.konabess.utils.GpuTable;
+
+/**
+ * Estimates GPU power from the ASV voltage of each level.
+ *
+ * <p>Power is the dynamic {@code C*V^2*f} term plus leakage modelled as a constant current at the
+ * level's voltage. Levels faster than the ASV table get a voltage extrapolated along the slope of
+ * its two fastest levels and rounded up to the next ASV step, so new top levels are costed
+ * pessimistically rather than at the old top voltage.
+ */
+public class EnergyModel implements PowerModel {
+    /** Effective switched capacitance of the Mali-G76 MP12 in the Exynos 9820 in farads. */
+    public static final double G76_MP12_CAPACITANCE = 9e-9;
+    /** Leakage current of the Exynos 9820 GPU rail in amperes. */
+    public static final double G76_MP12_LEAKAGE = 0.15;
+
+    /** Effective switched capacitance in farads. */
+    public final double capacitance;
+    /** Leakage current in amperes. */
+    public final double leakage;
+
+    private final AsvLookup asv;
+    private final String domain;
+    private final int group;
+    private final int[] levels;
+
+    /**
+     * Creates a model.
+     *
+     * @param asv ASV voltage tables
+     * @param domain ASV domain, such as {@code dvfs_g3d}
+     * @param group ASV group of the device
+     * @param capacitance effective switched capacitance in farads
+     * @param leakage leakage current in amperes
+     */
+    public EnergyModel(AsvLookup asv, String domain, int group, double capacitance, double leakage) {
+        this.asv = asv;
+        this.domain = domain;
+        this.group = group;
+        this.capacitance = capacitance;
+        this.leakage = leakage;
+        levels = asv.frequencies(domain);
+    }
+
+    /**
+     * Creates the model of a chip whose GPU has been calibrated.
+     *
+     * @param chip {@link xzr.konabess.ChipInfo.type} name, such as {@code exynos9820}
+     * @param asv ASV voltage tables
+     * @param domain ASV domain, such as {@code dvfs_g3d}
+     * @param group ASV group of the device
+     * @return model, or {@code null} if no calibration exists for the chip
+     */
+    public static EnergyModel forChip(String chip, AsvLookup asv, String domain, int group) {
+        return switch (chip) {
+            // The 9825 has the same GPU and rail as the 9820.
+            case "exynos9820", "exynos9825" -> new EnergyModel(asv, domain, group,
+                    G76_MP12_CAPACITANCE, G76_MP12_LEAKAGE);
+            default -> null;
+        };
+    }
+
+    /**
+     * Solves the capacitance that makes the model match one measurement.
+     *
+     * @param frequency measured frequency in kHz
+     * @param voltage voltage at that frequency in microvolts
+     * @param power measured power in milliwatts
+     * @param leakage leakage current in amperes
+     * @return effective switched capacitance in farads
+     * @throws IllegalArgumentException if the frequency or voltage is not positive, or leakage alone
+     *     exceeds the measurement
+     */
+    public static double calibrate(long frequency, int voltage, double power, double leakage) {
+        if (frequency <= 0 || voltage <= 0) {
+            throw new IllegalArgumentException("Calibration needs a positive frequency and voltage");
+        }
+        double volts = voltage / 1e6;
+        double dynamic = power / 1000 - leakage * volts;
+        if (dynamic <= 0) {
+            throw new IllegalArgumentException("Leakage of " + leakage * volts * 1000
+                    + " mW exceeds the measured " + power + " mW");
+        }
+        return dynamic / (volts * volts * frequency * 1000);
+    }
+
+    /**
+     * Returns the voltage the model uses at a frequency.
+     *
+     * @param frequency frequency in kHz
+     * @return voltage in microvolts, or {@link AsvLookup#UNKNOWN} if the domain has no usable level
+     */
+    public int voltage(long frequency) {
+        int voltage = asv.voltage(domain, frequency, group);
+        if (voltage != AsvLookup.UNKNOWN || levels.length < 2) {
+            return voltage;
+        }
+
+        int fastest = levels[levels.length - 1];
+        int next = levels[levels.length - 2];
+        int top = asv.voltage(domain, fastest * 1000L, group);
+        int below = asv.voltage(domain, next * 1000L, group);
+        if (top == AsvLookup.UNKNOWN || below == AsvLookup.UNKNOWN || frequency < fastest * 1000L) {
+            return AsvLookup.UNKNOWN;
+        }
+        double slope = (double) (top - below) / (fastest - next);
+        double extrapolated = top + slope * (frequency / 1000.0 - fastest);
+        int step = EctReader.VOLTAGE_STEP_UV;
+        return (int) Math.ceil(extrapolated / step) * step;
+    }
+
+    /**
+     * Estimates the power at a frequency.
+     *
+     * @param frequency frequency in kHz
+     * @return power in milliwatts, or NaN if the voltage is unknown
+     */
+    @Override
+    public double power(long frequency) {
+        int voltage = voltage(frequency);
+        if (voltage == AsvLookup.UNKNOWN) {
+            return Double.NaN;
+        }
+        double volts = voltage / 1e6;
+        return (capacitance * volts * volts * frequency * 1000 + leakage * volts) * 1000;
+    }
+
+    /**
+     * Costs every row of a table.
+     *
+     * <p>Performance is taken as proportional to frequency. The marginal cost of a row is the
+     * extra power per extra MHz over the next slower row, or the average cost for the slowest.
+     *
+     * @param table GPU table
+     * @return report indexed like the table rows
+     */
+    public report report(GpuTable table) {
+        int rows = table.rows();
+        report report = new report();
+        report.voltages = new int[rows];
+        report.powers = new double[rows];
+        report.perfPerWatt = new double[rows];
+        report.marginalCost = new double[rows];
+
+        for (int row = 0; row < rows; row++) {
+            long frequency = table.frequency(row);
+            report.voltages[row] = voltage(frequency);
+            report.powers[row] = power(frequency);
+            report.perfPerWatt[row] = frequency / report.powers[row];
+        }
+        for (int row = 0; row < rows; row++) {
+            long frequency = table.frequency(row);
+            int slower = -1;
+            for (int other = 0; other < rows; other++) {
+                long candidate = table.frequency(other);
+                if (candidate < frequency
+                        && (slower < 0 || candidate > table.frequency(slower))) {
+                    slower = other;
+                }
+            }
+            report.marginalCost[row] = slower < 0
+                    ? report.powers[row] / (frequency / 1000.0)
+                    : (report.powers[row] - report.powers[slower])
+                    / ((frequency - table.frequency(slower)) / 1000.0);
+        }
+        return report;
+    }
+
+    /** Estimated cost of each row of a table. */
+    public static class report {
+        /** Voltage of each row in microvolts, or {@link AsvLookup#UNKNOWN}. */
+        public int[] voltages;
+        /** Power of each row in milliwatts, or NaN. */
+        public double[] powers;
+        /** Frequency per power of each row, in MHz per watt. */
+        public double[] perfPerWatt;
+        /** Extra power per extra MHz over the next slower row, in mW per MHz. */
+        public double[] marginalCost;
+    }
+}
@@ -0,0 +1,258 @@
+package xzr.konabess.sim;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import xzr.konabess.utils.GpuTable;
+
+/**
+ * Replays utilization traces through the Mali DVFS governor against a GPU table.
+ *
+ * <p>The governor is the Exynos interactive one, driven by the metadata cells of each
+ * {@code gpu_dvfs_table} row. Above the row's max threshold it steps one level up at once, capped
+ * by {@code gpu_max_clock_limit}. Utilization cannot exceed 100%, and stock tables set every max
+ * threshold to 100, so a saturated sample also counts as above it. When a high-speed clock is set
+ * and the load exceeds {@link #highspeedLoad}, the step is instead a jump straight to that clock
+ * after {@link #highspeedDelay} further such samples. Below the min threshold it steps down after
+ * the row's down stay count of consecutive samples. Anywhere between, the stay count is re-armed.
+ * One trace sample is one polling interval.
+ *
+ * <p>A sample whose load exceeds the current level cannot finish in time. The share of its frames
+ * that the missing capacity represents is counted as missed.
+ */
+public class GovernorReplay {
+    /** Metadata cell holding the utilization below which the governor steps down. */
+    public static final int MIN_THRESHOLD = 0;
+    /** Metadata cell holding the utilization above which the governor steps up. */
+    public static final int MAX_THRESHOLD = 1;
+    /** Metadata cell holding how many low samples pass before stepping down. */
+    public static final int DOWN_STAYCOUNT = 2;
+
+    /** Traces replayed by one fork/join task; ranges are split down to single traces. */
+    private static final int TRACES_PER_TASK = 1;
+
+    private final long[] frequencies;
+    private final int[] minThresholds;
+    private final int[] maxThresholds;
+    private final int[] staycounts;
+    private final int top;
+    private final int bottom;
+    private final int start;
+
+    /** Frames per second the workload targets, used to estimate missed frames. */
+    public double frameRate = 60;
+    /**
+     * Clock in kHz the interactive governor jumps to under high load, from the kernel's GPU
+     * platform data, or 0 to always step one level.
+     */
+    public long highspeedClock;
+    /** Utilization in percent above which the governor jumps to {@link #highspeedClock}. */
+    public int highspeedLoad = 100;
+    /** Further high-load samples required before the jump to {@link #highspeedClock}. */
+    public int highspeedDelay;
+
+    /**
+     * Prepares a table for replay.
+     *
+     * <p>Rows stay in table order, fastest first. The governor never leaves the rows between
+     * {@code gpu_max_clock_limit} and {@code gpu_min_clock}.
+     *
+     * @param table GPU table
+     * @param startFrequency frequency in kHz the replay starts at, such as
+     *     {@code gpu_dvfs_start_clock}; the nearest allowed level is used
+     * @throws IllegalArgumentException if the table has no rows
+     */
+    public GovernorReplay(GpuTable table, long startFrequency) {
+        int rows = table.rows();
+        if (rows == 0) {
+            throw new IllegalArgumentException("GPU table has no rows");
+        }
+        frequencies = new long[rows];
+        minThresholds = new int[rows];
+        maxThresholds = new int[rows];
+        staycounts = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            frequencies[row] = table.frequency(row);
+            minThresholds[row] = table.meta(row, MIN_THRESHOLD);
+            maxThresholds[row] = table.meta(row, MAX_THRESHOLD);
+            staycounts[row] = Math.max(1, table.meta(row, DOWN_STAYCOUNT));
+        }
+
+        top = levelAtOrBelow(table.maxClockLimit);
+        bottom = Math.max(top, levelAtOrAbove(table.minClock));
+        start = Math.min(bottom, Math.max(top, levelAtOrBelow(startFrequency)));
+    }
+
+    /**
+     * Replays one trace.
+     *
+     * @param trace utilization trace
+     * @return time in state, transitions and missed frames
+     */
+    public result replay(UtilizationTrace trace) {
+        result result = new result();
+        result.name = trace.name;
+        result.timeInState = new double[frequencies.length];
+
+        int highspeed = highspeedClock > 0 ? Math.max(top, levelAtOrBelow(highspeedClock)) : -1;
+        int level = start;
+        int downRequirement = staycounts[level];
+        int delayCount = 0;
+        long transitions = 0;
+        double duration = 0;
+        double frames = 0;
+        double missed = 0;
+
+        for (int i = 0; i < trace.durations.length; i++) {
+            double seconds = trace.durations[i] / 1_000_000.0;
+            long demand = trace.demands[i];
+            long frequency = frequencies[level];
+
+            result.timeInState[level] += seconds;
+            duration += seconds;
+            double sampleFrames = seconds * frameRate;
+            frames += sampleFrames;
+            if (demand > frequency) {
+                missed += sampleFrames * (1 - (double) frequency / demand);
+            }
+
+            long utilization = frequency == 0 ? 100 : Math.min(100, demand * 100 / frequency);
+            int next = level;
+            if (level > top && (utilization > maxThresholds[level] || utilization == 100)) {
+                if (highspeed >= 0 && level > highspeed && utilization > highspeedLoad) {
+                    if (delayCount == highspeedDelay) {
+                        next = highspeed;
+                        delayCount = 0;
+                    } else {
+                        delayCount++;
+                    }
+                } else {
+                    next = level - 1;
+                    delayCount = 0;
+                }
+                downRequirement = staycounts[next];
+            } else if (level < bottom && utilization < minThresholds[level]) {
+                delayCount = 0;
+                if (--downRequirement <= 0) {
+                    next = level + 1;
+                    downRequirement = staycounts[next];
+                }
+            } else {
+                delayCount = 0;
+                downRequirement = staycounts[level];
+            }
+            if (next != level) {
+                transitions++;
+                level = next;
+            }
+        }
+
+        result.duration = duration;
+        result.transitions = transitions;
+        result.transitionsPerSecond = duration == 0 ? 0 : transitions / duration;
+        result.frames = frames;
+        result.missedFrames = missed;
+        return result;
+    }
+
+    /**
+     * Replays many traces in parallel on a fork/join pool.
+     *
+     * @param traces traces to replay
+     * @param pool pool to run on, such as {@link ForkJoinPool#commonPool()}
+     * @return results in trace order
+     */
+    public result[] replayAll(List<UtilizationTrace> traces, ForkJoinPool pool) {
+        result[] results = new result[traces.size()];
+        pool.invoke(new replayTask(traces, results, 0, results.length));
+        return results;
+    }
+
+    /**
+     * Finds the fastest row at or below a frequency.
+     *
+     * @param frequency frequency in kHz
+     * @return row index, or the slowest row when every row is faster
+     */
+    private int levelAtOrBelow(long frequency) {
+        for (int row = 0; row < frequencies.length; row++) {
+            if (frequencies[row] <= frequency) {
+                return row;
+            }
+        }
+        return frequencies.length - 1;
+    }
+
+    /**
+     * Finds the slowest row at or above a frequency.
+     *
+     * @param frequency frequency in kHz
+     * @return row index, or the fastest row when every row is slower
+     */
+    private int levelAtOrAbove(long frequency) {
+        for (int row = frequencies.length - 1; row >= 0; row--) {
+            if (frequencies[row] >= frequency) {
+                return row;
+            }
+        }
+        return 0;
+    }
+
+    /** Splits a range of traces until each task replays {@link #TRACES_PER_TASK} of them. */
+    private class replayTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<UtilizationTrace> traces;
+        private final result[] results;
+        private final int from;
+        private final int to;
+
+        /**
+         * Creates a task for a range of traces.
+         *
+         * @param traces all traces
+         * @param results receives one result per trace
+         * @param from first trace index
+         * @param to trace index after the last
+         */
+        replayTask(List<UtilizationTrace> traces, result[] results, int from, int to) {
+            this.traces = traces;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        /** Replays the range directly or splits it in half. */
+        @Override
+        protected void compute() {
+            if (to - from <= TRACES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    results[i] = replay(traces.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new replayTask(traces, results, from, middle),
+                    new replayTask(traces, results, middle, to));
+        }
+    }
+
+    /** Outcome of replaying one trace. */
+    public static class result {
+        /** Trace name. */
+        public String name;
+        /** Seconds spent at each row, indexed like the table. */
+        public double[] timeInState;
+        /** Replayed time in seconds. */
+        public double duration;
+        /** Level changes. */
+        public long transitions;
+        /** Level changes per second. */
+        public double transitionsPerSecond;
+        /** Frames the workload asked for. */
+        public double frames;
+        /** Estimated frames that missed their deadline. */
+        public double missedFrames;
+    }
+}
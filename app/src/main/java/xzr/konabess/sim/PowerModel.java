@@ -0,0 +1,12 @@
+package xzr.konabess.sim;
+
+/** Estimates the power the GPU draws while running flat out at one frequency. */
+public interface PowerModel {
+    /**
+     * Estimates the power at a frequency.
+     *
+     * @param frequency frequency in kHz
+     * @return power in milliwatts
+     */
+    double power(long frequency);
+}
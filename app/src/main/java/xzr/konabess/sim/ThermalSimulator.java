@@ -0,0 +1,327 @@
+package xzr.konabess.sim;
+
+import xzr.konabess.ect.EctReader;
+import xzr.konabess.utils.GpuTable;
+
+/**
+ * Offline model of the GPU thermal controller throttling a table under sustained full load.
+ *
+ * <p>The die is a single thermal mass coupled to the ambient through one thermal resistance,
+ * integrated with a fixed step. Every control period the power allocator from the ECT PIDTM
+ * block grants a power budget from the distance to its control temperature, and the GPU runs at
+ * the fastest level whose modelled power fits the budget and the AP thermal caps.
+ *
+ * <p>A simulator keeps its level arrays between runs and the result holder is supplied by the
+ * caller, so comparing many candidate tables does not allocate once the arrays have grown to the
+ * largest table.
+ */
+public class ThermalSimulator {
+    /** PIDTM parameter holding the proportional gain above the control temperature. */
+    public static final String K_PO = "k_po";
+    /** PIDTM parameter holding the proportional gain below the control temperature. */
+    public static final String K_PU = "k_pu";
+    /** PIDTM parameter holding the integral gain. */
+    public static final String K_I = "k_i";
+    /** PIDTM parameter holding the limit of the integral term. */
+    public static final String I_MAX = "i_max";
+    /** PIDTM parameter holding the error below which the integral accumulates. */
+    public static final String INTEGRAL_CUTOFF = "integral_cutoff";
+    /** PIDTM parameter holding the power budget at the control temperature. */
+    public static final String SUSTAINABLE_POWER = "p_control_t";
+
+    private final params params;
+    private long[] frequencies = new long[0];
+    private double[] powers = new double[0];
+    private int levels;
+
+    /**
+     * Creates a simulator.
+     *
+     * @param params controller and thermal parameters; read at every run
+     */
+    public ThermalSimulator(params params) {
+        this.params = params;
+    }
+
+    /**
+     * Builds controller parameters from a PIDTM block.
+     *
+     * <p>The second and third trigger temperatures are the switch-on and control temperatures,
+     * following the power allocator's trip layout. Thermal constants keep their defaults.
+     *
+     * @param block PIDTM block, such as {@code G3D}
+     * @return parameters
+     * @throws IllegalArgumentException if a trigger temperature or gain is missing
+     */
+    public static params fromPidtm(EctReader.pidtmBlock block) {
+        if (block.temperatures.length < 3) {
+            throw new IllegalArgumentException("PIDTM block " + block.name + " has "
+                    + block.temperatures.length + " trigger temperatures, expected at least 3");
+        }
+        params params = new params();
+        params.switchOnTemperature = block.temperatures[1];
+        params.controlTemperature = block.temperatures[2];
+        params.kPo = parameter(block, K_PO);
+        params.kPu = parameter(block, K_PU);
+        params.kI = parameter(block, K_I);
+        params.integralMax = parameter(block, I_MAX);
+        params.integralCutoff = parameter(block, INTEGRAL_CUTOFF);
+        params.sustainablePower = parameter(block, SUSTAINABLE_POWER);
+        return params;
+    }
+
+    /**
+     * Simulates a table from the editor.
+     *
+     * @param table GPU table; zero-frequency rows are ignored
+     * @param model power model evaluated once per level
+     * @param ambient ambient temperatures in degrees Celsius, one per {@code ambientStep}; the last
+     *     value holds afterwards
+     * @param ambientStep seconds between ambient samples
+     * @param out result holder, overwritten
+     * @return {@code out}
+     * @throws IllegalArgumentException if the table has no levels or the ambient profile is empty
+     */
+    public result run(GpuTable table, PowerModel model, double[] ambient, double ambientStep,
+                      result out) {
+        levels = 0;
+        ensureCapacity(table.rows());
+        for (int row = 0; row < table.rows(); row++) {
+            long frequency = table.frequency(row);
+            if (frequency != 0) {
+                addLevel(frequency, model.power(frequency));
+            }
+        }
+        return simulate(ambient, ambientStep, out);
+    }
+
+    /**
+     * Simulates levels whose power is already known.
+     *
+     * @param frequencies level frequencies in kHz, in any order
+     * @param powers power of each level in milliwatts
+     * @param ambient ambient temperatures in degrees Celsius, one per {@code ambientStep}
+     * @param ambientStep seconds between ambient samples
+     * @param out result holder, overwritten
+     * @return {@code out}
+     * @throws IllegalArgumentException if there are no levels, the arrays differ in length, or the
+     *     ambient profile is empty
+     */
+    public result run(long[] frequencies, double[] powers, double[] ambient, double ambientStep,
+                      result out) {
+        if (frequencies.length != powers.length) {
+            throw new IllegalArgumentException(frequencies.length + " frequencies but "
+                    + powers.length + " powers");
+        }
+        levels = 0;
+        ensureCapacity(frequencies.length);
+        for (int i = 0; i < frequencies.length; i++) {
+            addLevel(frequencies[i], powers[i]);
+        }
+        return simulate(ambient, ambientStep, out);
+    }
+
+    /**
+     * Integrates the thermal model and the controller over {@link params#duration}.
+     *
+     * @param ambient ambient temperatures in degrees Celsius
+     * @param ambientStep seconds between ambient samples
+     * @param out result holder
+     * @return {@code out}
+     */
+    private result simulate(double[] ambient, double ambientStep, result out) {
+        if (levels == 0) {
+            throw new IllegalArgumentException("No GPU levels to simulate");
+        }
+        if (ambient.length == 0 || ambientStep <= 0) {
+            throw new IllegalArgumentException("Empty ambient profile");
+        }
+
+        params p = params;
+        EctReader.thermalFunction caps = p.caps;
+        int steps = (int) Math.round(p.duration / p.step);
+        int stepsPerPeriod = Math.max(1, (int) Math.round(p.period / p.step));
+        int windowStart = Math.max(0, steps - (int) Math.round(p.window / p.step));
+
+        double temperature = Double.isNaN(p.initialTemperature) ? ambient[0] : p.initialTemperature;
+        double integral = 0;
+        int level = 0;
+
+        double frequencySum = 0;
+        double windowSum = 0;
+        double energy = 0;
+        double throttleTime = -1;
+        double peak = temperature;
+
+        for (int step = 0; step < steps; step++) {
+            if (step % stepsPerPeriod == 0) {
+                level = 0;
+                if (temperature >= p.switchOnTemperature) {
+                    double error = p.controlTemperature - temperature;
+                    if (error < p.integralCutoff) {
+                        // Clamping the sum rather than the term keeps it from winding up.
+                        integral += error;
+                        if (p.kI > 0) {
+                            double limit = p.integralMax / p.kI;
+                            integral = Math.max(-limit, Math.min(limit, integral));
+                        }
+                    }
+                    double budget = p.sustainablePower
+                            + (error < 0 ? p.kPo : p.kPu) * error + p.kI * integral;
+                    while (level < levels - 1 && powers[level] > budget) {
+                        level++;
+                    }
+                } else {
+                    integral = 0;
+                }
+                if (caps != null) {
+                    long cap = cap(caps, temperature);
+                    while (level < levels - 1 && frequencies[level] > cap) {
+                        level++;
+                    }
+                }
+                if (level > 0 && throttleTime < 0) {
+                    throttleTime = step * p.step;
+                }
+            }
+
+            int sample = Math.min(ambient.length - 1, (int) (step * p.step / ambientStep));
+            double power = powers[level] / 1000;
+            temperature += p.step * (power - (temperature - ambient[sample]) / p.resistance)
+                    / p.capacitance;
+
+            frequencySum += frequencies[level];
+            if (step >= windowStart) {
+                windowSum += frequencies[level];
+            }
+            energy += power * p.step;
+            peak = Math.max(peak, temperature);
+        }
+
+        out.averageFrequency = steps == 0 ? 0 : frequencySum / steps;
+        out.sustainedFrequency = steps == windowStart ? 0 : windowSum / (steps - windowStart);
+        out.throttleTime = throttleTime;
+        out.peakTemperature = peak;
+        out.finalTemperature = temperature;
+        out.energy = energy;
+        return out;
+    }
+
+    /**
+     * Finds the AP thermal frequency cap for a temperature.
+     *
+     * @param caps thermal function
+     * @param temperature temperature in degrees Celsius
+     * @return cap in kHz, or {@link Long#MAX_VALUE} below the first range
+     */
+    private static long cap(EctReader.thermalFunction caps, double temperature) {
+        long cap = Long.MAX_VALUE;
+        for (int i = 0; i < caps.lowerTemperatures.length; i++) {
+            if (temperature >= caps.lowerTemperatures[i]) {
+                cap = Integer.toUnsignedLong(caps.maxFrequencies[i]);
+            }
+        }
+        return cap;
+    }
+
+    /**
+     * Grows the level arrays.
+     *
+     * @param capacity levels needed
+     */
+    private void ensureCapacity(int capacity) {
+        if (frequencies.length < capacity) {
+            frequencies = new long[capacity];
+            powers = new double[capacity];
+        }
+    }
+
+    /**
+     * Inserts a level, keeping the levels ordered from fastest to slowest.
+     *
+     * @param frequency frequency in kHz
+     * @param power power in milliwatts
+     */
+    private void addLevel(long frequency, double power) {
+        int at = levels;
+        while (at > 0 && frequencies[at - 1] < frequency) {
+            frequencies[at] = frequencies[at - 1];
+            powers[at] = powers[at - 1];
+            at--;
+        }
+        frequencies[at] = frequency;
+        powers[at] = power;
+        levels++;
+    }
+
+    /**
+     * Reads a named PIDTM parameter.
+     *
+     * @param block PIDTM block
+     * @param name parameter name
+     * @return parameter value
+     * @throws IllegalArgumentException if the block lacks the parameter
+     */
+    private static double parameter(EctReader.pidtmBlock block, String name) {
+        for (int i = 0; i < block.parameterNames.length; i++) {
+            if (block.parameterNames[i].equals(name)) {
+                return block.parameterValues[i];
+            }
+        }
+        throw new IllegalArgumentException("PIDTM block " + block.name + " has no " + name);
+    }
+
+    /** Controller gains, thermal constants and run length. */
+    public static class params {
+        /** Temperature in degrees Celsius above which the controller is active. */
+        public double switchOnTemperature;
+        /** Temperature in degrees Celsius the controller steers towards. */
+        public double controlTemperature;
+        /** Proportional gain above the control temperature, in mW per degree. */
+        public double kPo;
+        /** Proportional gain below the control temperature, in mW per degree. */
+        public double kPu;
+        /** Integral gain, in mW per degree and control period. */
+        public double kI;
+        /** Limit of the integral term in mW. */
+        public double integralMax;
+        /** Error in degrees below which the integral accumulates. */
+        public double integralCutoff;
+        /** Power budget at the control temperature in mW. */
+        public double sustainablePower;
+        /** AP thermal frequency caps, or {@code null} for none. */
+        public EctReader.thermalFunction caps;
+
+        /** Die-to-ambient thermal resistance in degrees per watt. */
+        public double resistance = 20;
+        /** Heat capacity of the die and its spreader in joules per degree. */
+        public double capacitance = 8;
+        /** Starting temperature in degrees Celsius, or NaN to start at the ambient. */
+        public double initialTemperature = Double.NaN;
+
+        /** Integration step in seconds. */
+        public double step = 0.01;
+        /** Controller polling period in seconds. */
+        public double period = 0.1;
+        /** Simulated time in seconds. */
+        public double duration = 600;
+        /** Length of the final stretch averaged into the sustained frequency, in seconds. */
+        public double window = 60;
+    }
+
+    /** Outcome of one simulated run. */
+    public static class result {
+        /** Mean frequency over the final window in kHz. */
+        public double sustainedFrequency;
+        /** Mean frequency over the whole run in kHz. */
+        public double averageFrequency;
+        /** Seconds until the first level below the fastest was chosen, or -1 if never. */
+        public double throttleTime;
+        /** Highest temperature reached in degrees Celsius. */
+        public double peakTemperature;
+        /** Temperature at the end of the run in degrees Celsius. */
+        public double finalTemperature;
+        /** Energy drawn over the run in joules. */
+        public double energy;
+    }
+}
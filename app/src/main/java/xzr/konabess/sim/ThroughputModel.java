@@ -0,0 +1,131 @@
+package xzr.konabess.sim;
+
+import xzr.konabess.utils.GpuTable;
+
+/**
+ * Peak shader throughput of the Mali GPU in each supported chip.
+ *
+ * <p>Rates scale linearly with the GPU clock: each core issues a fixed number of FP32 operations,
+ * bilinear texels and pixels per clock. Fused multiply-adds count as two operations.
+ */
+public class ThroughputModel {
+    /** GPU name, such as {@code Mali-G76 MP12}. */
+    public final String gpu;
+    /** Shader cores. */
+    public final int cores;
+    /** FP32 operations per clock and core. */
+    public final int flopsPerClock;
+    /** Bilinear texels per clock and core. */
+    public final int texelsPerClock;
+    /** Pixels per clock and core. */
+    public final int pixelsPerClock;
+
+    /**
+     * Creates a model.
+     *
+     * @param gpu GPU name
+     * @param cores shader cores
+     * @param flopsPerClock FP32 operations per clock and core
+     * @param texelsPerClock bilinear texels per clock and core
+     * @param pixelsPerClock pixels per clock and core
+     */
+    public ThroughputModel(String gpu, int cores, int flopsPerClock, int texelsPerClock,
+                           int pixelsPerClock) {
+        this.gpu = gpu;
+        this.cores = cores;
+        this.flopsPerClock = flopsPerClock;
+        this.texelsPerClock = texelsPerClock;
+        this.pixelsPerClock = pixelsPerClock;
+    }
+
+    /**
+     * Returns the model of a chip.
+     *
+     * @param chip {@link xzr.konabess.ChipInfo.type} name, such as {@code exynos9820}
+     * @return model, or {@code null} for an unknown chip
+     */
+    public static ThroughputModel forChip(String chip) {
+        return switch (chip) {
+            // Bifrost: three engines of four FMA lanes per core.
+            case "exynos9810" -> new ThroughputModel("Mali-G72 MP18", 18, 24, 1, 1);
+            // Bifrost: three engines of eight FMA lanes per core.
+            case "exynos9820", "exynos9825" -> new ThroughputModel("Mali-G76 MP12", 12, 48, 2, 2);
+            // Valhall: two engines of sixteen FMA lanes per core.
+            case "exynos990" -> new ThroughputModel("Mali-G77 MP11", 11, 64, 4, 2);
+            default -> null;
+        };
+    }
+
+    /**
+     * Computes the peak rates at a frequency.
+     *
+     * @param frequency GPU clock in kHz
+     * @param out holder to fill
+     * @return {@code out}
+     */
+    public rates at(long frequency, rates out) {
+        return at((double) frequency, out);
+    }
+
+    /**
+     * Computes the peak rates at a possibly fractional frequency.
+     *
+     * @param frequency GPU clock in kHz
+     * @param out holder to fill
+     * @return {@code out}
+     */
+    private rates at(double frequency, rates out) {
+        double clock = frequency * 1000 * cores;
+        out.flops = clock * flopsPerClock;
+        out.texels = clock * texelsPerClock;
+        out.pixels = clock * pixelsPerClock;
+        return out;
+    }
+
+    /**
+     * Computes the peak rates of every row of a table.
+     *
+     * @param table GPU table
+     * @return rates indexed like the table rows
+     */
+    public rates[] levels(GpuTable table) {
+        rates[] levels = new rates[table.rows()];
+        for (int row = 0; row < levels.length; row++) {
+            levels[row] = at(table.frequency(row), new rates());
+        }
+        return levels;
+    }
+
+    /**
+     * Averages the rates of a table over a residency distribution.
+     *
+     * @param table GPU table
+     * @param residency time or share spent at each row, such as
+     *     {@link GovernorReplay.result#timeInState}
+     * @return time-weighted mean rates, or zeros when the residency is empty
+     * @throws IllegalArgumentException if the residency does not have one entry per row
+     */
+    public rates average(GpuTable table, double[] residency) {
+        if (residency.length != table.rows()) {
+            throw new IllegalArgumentException(residency.length + " residencies for "
+                    + table.rows() + " rows");
+        }
+        double total = 0;
+        double weighted = 0;
+        for (int row = 0; row < residency.length; row++) {
+            total += residency[row];
+            weighted += residency[row] * table.frequency(row);
+        }
+        return at(total == 0 ? 0 : weighted / total, new rates());
+    }
+
+    /** Peak rates at one clock. */
+    public static class rates {
+        /** FP32 operations per second. */
+        public double flops;
+        /** Bilinear texels per second. */
+        public double texels;
+        /** Pixels per second. */
+        public double pixels;
+    }
+}
@@ -0,0 +1,195 @@
+package xzr.konabess.sim;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Recorded GPU utilization, one sample per DVFS polling interval.
+ *
+ * <p>Each sample keeps the load as the frequency that would have been fully busy, that is the
+ * utilization times the clock it was measured at, so the trace can be replayed against levels
+ * other than the ones it was recorded on.
+ *
+ * <p>Traces are read from CSV with {@code time_ms,utilization,frequency_khz} rows, or from a
+ * compact little-endian binary form: the {@link #MAGIC} bytes, the sample count, then per sample
+ * the duration in microseconds, the utilization in percent as one byte and the frequency in kHz.
+ */
+public class UtilizationTrace {
+    /** Signature of the binary form. */
+    public static final String MAGIC = "KBUT";
+
+    private static final int SAMPLE_BYTES = 9;
+
+    /** Trace name, usually the file name. */
+    public final String name;
+    /** Duration of each sample in microseconds. */
+    public final int[] durations;
+    /** Load of each sample as the fully busy frequency in kHz. */
+    public final long[] demands;
+
+    /**
+     * Creates a trace.
+     *
+     * @param name trace name
+     * @param durations sample durations in microseconds
+     * @param demands sample loads in kHz
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public UtilizationTrace(String name, int[] durations, long[] demands) {
+        if (durations.length != demands.length) {
+            throw new IllegalArgumentException(durations.length + " durations but "
+                    + demands.length + " demands");
+        }
+        this.name = name;
+        this.durations = durations;
+        this.demands = demands;
+    }
+
+    /**
+     * Reads a trace in either form, telling them apart by the binary signature.
+     *
+     * @param path trace file
+     * @return trace named after the file
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static UtilizationTrace read(Path path) throws IOException {
+        byte[] head = new byte[MAGIC.length()];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.read(ByteBuffer.wrap(head), 0);
+        }
+        return MAGIC.equals(new String(head, StandardCharsets.US_ASCII))
+                ? readBinary(path)
+                : readCsv(path);
+    }
+
+    /**
+     * Reads a CSV trace.
+     *
+     * <p>Lines that do not start with a digit, such as a header, are skipped. A sample lasts
+     * until the next one starts; the last sample repeats the previous duration.
+     *
+     * @param path CSV file
+     * @return trace named after the file
+     * @throws IOException if the file cannot be read or a row is malformed
+     */
+    public static UtilizationTrace readCsv(Path path) throws IOException {
+        double[] times = new double[256];
+        long[] demands = new long[256];
+        int count = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || !Character.isDigit(line.charAt(0))) {
+                    continue;
+                }
+                String[] cells = line.split(",");
+                if (cells.length < 3) {
+                    throw new IOException("Expected time_ms,utilization,frequency_khz: " + line);
+                }
+                if (count == times.length) {
+                    times = Arrays.copyOf(times, count * 2);
+                    demands = Arrays.copyOf(demands, count * 2);
+                }
+                try {
+                    times[count] = Double.parseDouble(cells[0].trim());
+                    demands[count] = demand(Double.parseDouble(cells[1].trim()),
+                            Long.parseLong(cells[2].trim()));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed trace row: " + line, e);
+                }
+                count++;
+            }
+        }
+
+        int[] durations = new int[count];
+        for (int i = 0; i + 1 < count; i++) {
+            durations[i] = (int) Math.round((times[i + 1] - times[i]) * 1000);
+            if (durations[i] <= 0) {
+                throw new IOException("Trace time does not increase at row " + (i + 2)
+                        + " of " + path);
+            }
+        }
+        if (count > 1) {
+            durations[count - 1] = durations[count - 2];
+        }
+        return new UtilizationTrace(path.getFileName().toString(), durations,
+                Arrays.copyOf(demands, count));
+    }
+
+    /**
+     * Reads a binary trace through a read-only mapping.
+     *
+     * @param path binary file
+     * @return trace named after the file
+     * @throws IOException if the file cannot be mapped or is truncated
+     */
+    public static UtilizationTrace readBinary(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        int header = MAGIC.length() + 4;
+        int count = buffer.limit() >= header ? buffer.getInt(MAGIC.length()) : -1;
+        if (count < 0 || (long) count * SAMPLE_BYTES > buffer.limit() - header) {
+            throw new IOException("Truncated utilization trace: " + path);
+        }
+
+        int[] durations = new int[count];
+        long[] demands = new long[count];
+        for (int i = 0, p = header; i < count; i++, p += SAMPLE_BYTES) {
+            durations[i] = buffer.getInt(p);
+            demands[i] = demand(buffer.get(p + 4) & 0xff,
+                    Integer.toUnsignedLong(buffer.getInt(p + 5)));
+        }
+        return new UtilizationTrace(path.getFileName().toString(), durations, demands);
+    }
+
+    /**
+     * Writes the trace in binary form.
+     *
+     * <p>Loads are stored as full utilization at the demanded frequency, which replays the same.
+     *
+     * @param path destination file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeBinary(Path path) throws IOException {
+        int header = MAGIC.length() + 4;
+        ByteBuffer buffer = ByteBuffer.allocate(header + durations.length * SAMPLE_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC.getBytes(StandardCharsets.US_ASCII)).putInt(durations.length);
+        for (int i = 0; i < durations.length; i++) {
+            buffer.putInt(durations[i]).put((byte) 100).putInt((int) demands[i]);
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Converts a utilization sample to the frequency that would have been fully busy.
+     *
+     * @param utilization utilization in percent
+     * @param frequency clock the sample was measured at in kHz
+     * @return demand in kHz
+     */
+    private static long demand(double utilization, long frequency) {
+        return Math.round(Math.max(0, utilization) * frequency / 100);
+    }
+}
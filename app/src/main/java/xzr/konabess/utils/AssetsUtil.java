@@ -1,50 +1,293 @@
 package xzr.konabess.utils;
 
 import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /** Copies bundled native tools and libraries from APK assets to writable storage. */
 public class AssetsUtil {
+    /** Name of the manifest that records the exported assets inside the destination directory. */
+    public static final String MANIFEST_NAME = ".assets.manifest";
+
     /**
-     * Recursively copies an asset path to a filesystem path.
+     * Brings exported top-level assets up to date with the installed APK.
      *
-     * <p>A non-empty result from {@link android.content.res.AssetManager#list(String)} is treated as
-     * a directory; an empty result is opened as a file.
+     * <p>A manifest in {@code dir} records the APK version and update time together with the
+     * SHA-256 of every exported asset. When the APK is unchanged and every file is still present,
+     * nothing is read or written. Otherwise the assets are hashed in parallel, only those whose
+     * hash changed are copied, and assets identical to an earlier one, such as versioned
+     * {@code .so} aliases, become relative symlinks to it.
      *
      * @param context context that owns the APK assets
-     * @param src path relative to the APK asset root
-     * @param out destination file or directory path
-     * @throws IOException if an asset cannot be listed, opened, copied, or created
+     * @param names top-level asset names
+     * @param dir destination directory
+     * @return names of the regular files written or kept, excluding symlinks
+     * @throws IOException if an asset cannot be read, a file cannot be written, or a link cannot be
+     *     created
      */
-    public static void exportFiles(Context context, String src, String out) throws IOException {
-        AssetManager assetManager = context.getAssets();
-        File outFile = new File(out);
+    public static List<String> syncFiles(Context context, String[] names, File dir)
+            throws IOException {
+        Path manifestPath = new File(dir, MANIFEST_NAME).toPath();
+        String key = packageKey(context);
 
-        String[] fileNames = assetManager.list(src);
+        Map<String, String> recorded = new HashMap<>();
+        String recordedKey = readManifest(manifestPath, recorded);
 
-        if (fileNames != null && fileNames.length > 0) {
-            if (!outFile.exists() && !outFile.mkdirs()) {
-                throw new IOException("Failed to create directory: " + out);
+        if (key.equals(recordedKey) && allPresent(dir, names, recorded)) {
+            List<String> files = new ArrayList<>();
+            for (String name : names) {
+                if (!recorded.get(name).startsWith(">")) {
+                    files.add(name);
+                }
             }
+            return files;
+        }
 
-            for (String fileName : fileNames) {
-                exportFiles(context, src + "/" + fileName, out + "/" + fileName);
+        AssetManager assets = context.getAssets();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(names.length, Runtime.getRuntime().availableProcessors())));
+        try {
+            List<Future<String>> hashes = new ArrayList<>();
+            for (String name : names) {
+                hashes.add(executor.submit(() -> hashAsset(assets, name)));
             }
-        } else {
-            try (InputStream is = assetManager.open(src);
-                 FileOutputStream fos = new FileOutputStream(outFile)) {
-                byte[] buffer = new byte[8192];
-                int bytesRead;
 
-                while ((bytesRead = is.read(buffer)) != -1) {
-                    fos.write(buffer, 0, bytesRead);
+            Map<String, String> entries = new HashMap<>();
+            Map<String, String> primaryByHash = new HashMap<>();
+            List<Callable<Void>> copies = new ArrayList<>();
+            List<String> files = new ArrayList<>();
+
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i];
+                String hash = await(hashes.get(i));
+                Path target = new File(dir, name).toPath();
+
+                String primary = primaryByHash.putIfAbsent(hash, name);
+                if (primary != null) {
+                    entries.put(name, ">" + primary);
+                    Files.deleteIfExists(target);
+                    Files.createSymbolicLink(target, Paths.get(primary));
+                    continue;
                 }
+
+                entries.put(name, hash);
+                files.add(name);
+                if (!hash.equals(recorded.get(name))
+                        || !Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS)) {
+                    copies.add(() -> {
+                        copyAsset(assets, name, target);
+                        return null;
+                    });
+                }
+            }
+
+            for (Future<Void> copy : executor.invokeAll(copies)) {
+                await(copy);
+            }
+
+            writeManifest(manifestPath, key, names, entries);
+            return files;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while exporting assets", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Identifies the installed APK build.
+     *
+     * @param context application context
+     * @return version code and last update time
+     * @throws IOException if the package cannot be looked up
+     */
+    private static String packageKey(Context context) throws IOException {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            return info.getLongVersionCode() + ":" + info.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            throw new IOException("Package not found: " + context.getPackageName(), e);
+        }
+    }
+
+    /**
+     * Checks that every recorded asset still exists in the destination.
+     *
+     * @param dir destination directory
+     * @param names expected asset names
+     * @param recorded manifest entries
+     * @return {@code true} when every name has an entry and a file or symlink
+     */
+    private static boolean allPresent(File dir, String[] names, Map<String, String> recorded) {
+        for (String name : names) {
+            if (!recorded.containsKey(name)
+                    || !Files.exists(new File(dir, name).toPath(), LinkOption.NOFOLLOW_LINKS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hashes one asset, mapping it directly from the APK when it is stored uncompressed.
+     *
+     * @param assets asset manager
+     * @param name asset name
+     * @return SHA-256 in hexadecimal
+     * @throws IOException if the asset cannot be read
+     */
+    private static String hashAsset(AssetManager assets, String name) throws IOException {
+        try (AssetFileDescriptor fd = assets.openFd(name);
+             FileInputStream in = fd.createInputStream()) {
+            ByteBuffer data = in.getChannel()
+                    .map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+            return ImageDigest.toHex(ImageDigest.sha256(data));
+        } catch (FileNotFoundException compressed) {
+            try (InputStream in = assets.open(name)) {
+                return ImageDigest.toHex(ImageDigest.sha256(in));
+            }
+        }
+    }
+
+    /**
+     * Copies one asset through a temporary file and renames it into place.
+     *
+     * <p>Uncompressed assets are transferred channel to channel from the APK; compressed ones fall
+     * back to a stream copy.
+     *
+     * @param assets asset manager
+     * @param name asset name
+     * @param target destination file
+     * @throws IOException if the asset cannot be copied
+     */
+    private static void copyAsset(AssetManager assets, String name, Path target) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileChannel out = FileChannel.open(temp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            try (AssetFileDescriptor fd = assets.openFd(name);
+                 FileInputStream in = fd.createInputStream()) {
+                FileChannel channel = in.getChannel();
+                long position = fd.getStartOffset();
+                long end = position + fd.getLength();
+                while (position < end) {
+                    long transferred = channel.transferTo(position, end - position, out);
+                    if (transferred <= 0) {
+                        throw new IOException("Unexpected end of asset " + name);
+                    }
+                    position += transferred;
+                }
+            } catch (FileNotFoundException compressed) {
+                try (InputStream in = assets.open(name)) {
+                    byte[] buffer = new byte[ImageDigest.CHUNK_SIZE];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                        while (chunk.hasRemaining()) {
+                            out.write(chunk);
+                        }
+                    }
+                }
+            }
+        }
+
+        Files.deleteIfExists(target);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the manifest.
+     *
+     * @param path manifest file
+     * @param entries receives asset name to hash, or to {@code >primary} for symlinks
+     * @return recorded package key, or {@code null} when there is no readable manifest
+     */
+    private static String readManifest(Path path, Map<String, String> entries) {
+        try {
+            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            if (lines.isEmpty()) {
+                return null;
+            }
+            for (String line : lines.subList(1, lines.size())) {
+                int space = line.indexOf(' ');
+                if (space > 0) {
+                    entries.put(line.substring(space + 1), line.substring(0, space));
+                }
+            }
+            return lines.get(0);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the manifest.
+     *
+     * @param path manifest file
+     * @param key package key
+     * @param names asset names in export order
+     * @param entries hash or {@code >primary} per asset name
+     * @throws IOException if the manifest cannot be written
+     */
+    private static void writeManifest(Path path, String key, String[] names,
+                                      Map<String, String> entries) throws IOException {
+        StringBuilder manifest = new StringBuilder(key).append('\n');
+        for (String name : names) {
+            manifest.append(entries.get(name)).append(' ').append(name).append('\n');
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, manifest.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Waits for a task and unwraps its failure.
+     *
+     * @param future task result
+     * @param <T> result type
+     * @return task result
+     * @throws IOException if the task failed
+     * @throws InterruptedException if the wait is interrupted
+     */
+    private static <T> T await(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
             }
+            throw new IOException(cause);
         }
     }
 }
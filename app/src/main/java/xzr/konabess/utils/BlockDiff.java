@@ -0,0 +1,78 @@
+package xzr.konabess.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the aligned chunks in which two images differ.
+ *
+ * <p>The current contents are streamed, one chunk in memory at a time, so a partition never has
+ * to be copied to a file first. Adjacent differing chunks are merged into runs so each run can be
+ * written with a single block-sized {@code dd}.
+ */
+public class BlockDiff {
+    /** Default chunk size; a multiple of every common flash erase and page size. */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Compares a new image with partition contents read from a stream.
+     *
+     * <p>Exactly as many bytes as {@code next} holds are read; the rest of the stream is left
+     * unread, so a partition may be longer than the image.
+     *
+     * @param current current contents, such as the stdout of a {@code dd} of the partition
+     * @param next contents to be written, from position zero to the limit
+     * @param chunkSize comparison granularity in bytes
+     * @return differing runs in ascending order, expressed in whole chunks of {@code next}
+     * @throws IOException if the stream fails or ends before {@code next} does, as when the
+     *     reading process could not open the partition
+     */
+    public static List<run> diff(InputStream current, ByteBuffer next, int chunkSize)
+            throws IOException {
+        List<run> runs = new ArrayList<>();
+        int chunks = (next.limit() + chunkSize - 1) / chunkSize;
+        byte[] buffer = new byte[chunkSize];
+
+        run open = null;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = chunk * chunkSize;
+            int length = Math.min(chunkSize, next.limit() - from);
+
+            for (int filled = 0; filled < length; ) {
+                int read = current.read(buffer, filled, length - filled);
+                if (read < 0) {
+                    throw new IOException("Stream ended " + (next.limit() - from - filled)
+                            + " bytes early");
+                }
+                filled += read;
+            }
+
+            boolean same = ByteBuffer.wrap(buffer, 0, length)
+                    .equals(DtbExtractor.slice(next, from, length));
+            if (same) {
+                open = null;
+                continue;
+            }
+
+            if (open == null) {
+                open = new run();
+                open.firstChunk = chunk;
+                runs.add(open);
+            }
+            open.chunkCount++;
+        }
+
+        return runs;
+    }
+
+    /** A range of consecutive differing chunks. */
+    public static class run {
+        /** Index of the first differing chunk. */
+        public int firstChunk;
+        /** Number of consecutive differing chunks. */
+        public int chunkCount;
+    }
+}
@@ -0,0 +1,159 @@
+package xzr.konabess.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Matches several ASCII patterns at once over a byte stream (Aho-Corasick).
+ *
+ * <p>The automaton is built once with a dense transition table, so feeding a byte is a single
+ * array lookup and every pattern is found in one pass regardless of how many there are. Callers
+ * keep the current state themselves, which lets a scan continue across buffer boundaries.
+ */
+public class ByteMatcher {
+    /** State before any byte has been fed. */
+    public static final int START = 0;
+
+    private static final int[] NONE = new int[0];
+
+    private final int[][] next;
+    private final int[][] matches;
+    private final int[] lengths;
+
+    /**
+     * Builds the automaton.
+     *
+     * @param patterns non-empty ASCII patterns; their indices identify matches
+     * @throws IllegalArgumentException if a pattern is empty
+     */
+    public ByteMatcher(String... patterns) {
+        lengths = new int[patterns.length];
+
+        List<int[]> gotoTable = new ArrayList<>();
+        List<int[]> output = new ArrayList<>();
+        gotoTable.add(newRow());
+        output.add(NONE);
+
+        for (int p = 0; p < patterns.length; p++) {
+            byte[] bytes = patterns[p].getBytes(StandardCharsets.US_ASCII);
+            if (bytes.length == 0) {
+                throw new IllegalArgumentException("Empty pattern at index " + p);
+            }
+            lengths[p] = bytes.length;
+
+            int state = START;
+            for (byte b : bytes) {
+                int c = b & 0xff;
+                if (gotoTable.get(state)[c] < 0) {
+                    gotoTable.get(state)[c] = gotoTable.size();
+                    gotoTable.add(newRow());
+                    output.add(NONE);
+                }
+                state = gotoTable.get(state)[c];
+            }
+            output.set(state, append(output.get(state), p));
+        }
+
+        next = gotoTable.toArray(new int[0][]);
+        matches = output.toArray(new int[0][]);
+
+        // Breadth-first pass: fill missing transitions from the failure state and inherit the
+        // outputs of proper suffixes.
+        int[] fail = new int[next.length];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < 256; c++) {
+            if (next[START][c] < 0) {
+                next[START][c] = START;
+            } else {
+                fail[next[START][c]] = START;
+                queue.add(next[START][c]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            matches[state] = merge(matches[state], matches[fail[state]]);
+            for (int c = 0; c < 256; c++) {
+                int child = next[state][c];
+                if (child < 0) {
+                    next[state][c] = next[fail[state]][c];
+                } else {
+                    fail[child] = next[fail[state]][c];
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Advances the automaton by one byte.
+     *
+     * @param state current state, initially {@link #START}
+     * @param b next input byte
+     * @return new state
+     */
+    public int step(int state, byte b) {
+        return next[state][b & 0xff];
+    }
+
+    /**
+     * Returns the patterns that end at the last byte fed.
+     *
+     * @param state state returned by {@link #step(int, byte)}
+     * @return pattern indices, empty when nothing matches; the array must not be modified
+     */
+    public int[] matches(int state) {
+        return matches[state];
+    }
+
+    /**
+     * Returns the length of a pattern, for locating where a match started.
+     *
+     * @param pattern pattern index
+     * @return pattern length in bytes
+     */
+    public int length(int pattern) {
+        return lengths[pattern];
+    }
+
+    /**
+     * Creates a transition row with every entry unset.
+     *
+     * @return row of 256 entries set to {@code -1}
+     */
+    private static int[] newRow() {
+        int[] row = new int[256];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    /**
+     * Appends one pattern index.
+     *
+     * @param indices existing indices
+     * @param index index to add
+     * @return new array
+     */
+    private static int[] append(int[] indices, int index) {
+        int[] result = Arrays.copyOf(indices, indices.length + 1);
+        result[indices.length] = index;
+        return result;
+    }
+
+    /**
+     * Concatenates two index lists, sharing the input when one of them is empty.
+     *
+     * @param own indices of the state itself
+     * @param inherited indices of its failure state
+     * @return combined indices
+     */
+    private static int[] merge(int[] own, int[] inherited) {
+        if (inherited.length == 0) return own;
+        if (own.length == 0) return inherited;
+        int[] result = Arrays.copyOf(own, own.length + inherited.length);
+        System.arraycopy(inherited, 0, result, own.length, inherited.length);
+        return result;
+    }
+}
@@ -0,0 +1,84 @@
+package xzr.konabess.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the supported chip identifiers in a DTB with one multi-pattern pass.
+ *
+ * <p>The root node's {@code compatible} and {@code model} strings name the board, so they are
+ * searched first. Only when neither names a supported chip, or the blob cannot be walked as a
+ * flattened device tree, is the whole blob scanned. Every match is returned so that a blob naming
+ * several chips can be reported as ambiguous.
+ */
+public class ChipDetector {
+    /** Chip identifiers, indexed like {@link match#chip}. */
+    public static final String[] CHIPS = {"exynos9820", "exynos9825", "exynos990", "exynos9810"};
+
+    /** Root properties searched before falling back to a full scan. */
+    private static final String[] ROOT_PROPERTIES = {"compatible", "model"};
+
+    private static final ByteMatcher MATCHER = new ByteMatcher(CHIPS);
+
+    /**
+     * Detects the chips named by a DTB.
+     *
+     * @param fdt buffer whose position zero is the start of the blob
+     * @return matches in the order found, empty when no supported chip is named
+     */
+    public static List<match> detect(ByteBuffer fdt) {
+        List<match> matches = new ArrayList<>();
+        try {
+            FdtReader.property[] found = FdtReader.findProperties(fdt, ROOT_PROPERTIES);
+            for (FdtReader.property property : found) {
+                if (property != null && property.node.equals("/")) {
+                    int value = property.offset + 12;
+                    scan(fdt, value, value + property.length, property.name, matches);
+                }
+            }
+        } catch (IOException e) {
+            // Not walkable as an FDT; the full scan below still finds embedded strings.
+        }
+
+        if (matches.isEmpty()) {
+            scan(fdt, 0, fdt.limit(), null, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Feeds a byte range through the matcher.
+     *
+     * @param data buffer to scan
+     * @param from first offset
+     * @param to offset after the last byte
+     * @param property root property the range holds, or {@code null} for a full scan
+     * @param matches receives the matches
+     */
+    private static void scan(ByteBuffer data, int from, int to, String property,
+                             List<match> matches) {
+        int state = ByteMatcher.START;
+        for (int i = from; i < to; i++) {
+            state = MATCHER.step(state, data.get(i));
+            for (int chip : MATCHER.matches(state)) {
+                match match = new match();
+                match.chip = chip;
+                match.offset = i + 1 - MATCHER.length(chip);
+                match.property = property;
+                matches.add(match);
+            }
+        }
+    }
+
+    /** One occurrence of a chip identifier. */
+    public static class match {
+        /** Index into {@link #CHIPS}. */
+        public int chip;
+        /** Byte offset of the identifier from the start of the blob. */
+        public int offset;
+        /** Root property the identifier was found in, or {@code null} if found by a full scan. */
+        public String property;
+    }
+}
@@ -25,6 +25,9 @@ import xzr.konabess.R;
 
 /** Builds consistently themed error, progress, and content dialogs. */
 public class DialogUtil {
+    /** View ID of the message in dialogs built by {@link #getWaitDialog(Context, String)}. */
+    private static final int WAIT_MESSAGE_ID = View.generateViewId();
+
     /**
      * Displays a modal error dialog.
      *
@@ -93,6 +96,7 @@ public class DialogUtil {
         ProgressBar progressBar = createDynamicProgressBar(context);
 
         MaterialTextView textView = createDynamicTextView(context, message);
+        textView.setId(WAIT_MESSAGE_ID);
 
         LinearLayout layout = new LinearLayout(context);
         layout.setOrientation(LinearLayout.VERTICAL);
@@ -106,6 +110,19 @@ public class DialogUtil {
         return createAlertDialog(context, null, null, cardView, false);
     }
 
+    /**
+     * Replaces the message of a shown progress dialog.
+     *
+     * @param dialog dialog created by {@link #getWaitDialog(Context, String)}
+     * @param message new progress text
+     */
+    public static void setWaitMessage(AlertDialog dialog, String message) {
+        TextView textView = dialog.findViewById(WAIT_MESSAGE_ID);
+        if (textView != null) {
+            textView.setText(message);
+        }
+    }
+
     /**
      * Creates a cancelable text-only alert.
      *
@@ -0,0 +1,122 @@
+package xzr.konabess.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Locates the flattened device trees embedded in a {@code dtb}, {@code dtbo}, or {@code boot}
+ * image.
+ *
+ * <p>The image is memory-mapped and scanned for the FDT magic. Every candidate header is validated
+ * before it is accepted, and each blob is exposed as a slice of the mapping, so nothing is copied
+ * until a caller decides to write a blob out.
+ */
+public class DtbExtractor {
+    /**
+     * Maps an image read-only and indexes the DTBs it contains.
+     *
+     * @param path image file
+     * @return mapped image and its blobs in file order
+     * @throws IOException if the image cannot be mapped
+     */
+    public static image open(Path path) throws IOException {
+        image image = new image();
+        image.path = path;
+        image.buffer = FdtReader.map(path);
+        image.blobs = scan(image.buffer);
+        return image;
+    }
+
+    /**
+     * Finds every valid DTB in a buffer.
+     *
+     * <p>A match is accepted only when its header passes {@link FdtReader#readHeader(ByteBuffer)}
+     * inside the remaining bytes. Scanning resumes after {@code totalsize}, so magic values inside
+     * an accepted blob are never reported as separate blobs.
+     *
+     * @param image buffer to scan, from position zero to its limit
+     * @return blobs in ascending offset order
+     */
+    public static List<blob> scan(ByteBuffer image) {
+        List<blob> blobs = new ArrayList<>();
+
+        int limit = image.limit() - FdtReader.HEADER_SIZE;
+        int pos = 0;
+        while (pos <= limit) {
+            if (image.get(pos) != (byte) 0xd0 || image.getInt(pos) != FdtReader.FDT_MAGIC) {
+                pos++;
+                continue;
+            }
+
+            ByteBuffer candidate = slice(image, pos, image.limit() - pos);
+            int totalSize;
+            try {
+                totalSize = FdtReader.readHeader(candidate).totalSize;
+            } catch (IOException e) {
+                pos++;
+                continue;
+            }
+
+            blob blob = new blob();
+            blob.index = blobs.size();
+            blob.offset = pos;
+            blob.size = totalSize;
+            blob.data = slice(image, pos, totalSize);
+            blobs.add(blob);
+
+            pos += totalSize;
+        }
+
+        return blobs;
+    }
+
+    /**
+     * Creates an independent big-endian view of a byte range.
+     *
+     * @param buffer source buffer
+     * @param offset absolute start offset
+     * @param length view length
+     * @return slice whose position zero is {@code offset}
+     */
+    static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(offset + length).position(offset);
+        return view.slice();
+    }
+
+    /** A mapped image and the device trees found in it. */
+    public static class image {
+        /** Image file. */
+        public Path path;
+        /** Read-only mapping of the whole image. */
+        public ByteBuffer buffer;
+        /** Blobs in file order. */
+        public List<blob> blobs;
+    }
+
+    /** One device tree located inside an image. */
+    public static class blob {
+        /** Zero-based position among the image's blobs. */
+        public int index;
+        /** Byte offset of the blob header within the image. */
+        public int offset;
+        /** Blob length taken from its {@code totalsize} header field. */
+        public int size;
+        /** Zero-copy view of the blob; position zero is the FDT header. */
+        public ByteBuffer data;
+
+        /**
+         * Returns the filename used when this blob is written out, matching the names produced by
+         * {@code extract_dtb}.
+         *
+         * @return name such as {@code 01_dtbdump.dtb}
+         */
+        public String fileName() {
+            return String.format(Locale.ROOT, "%02d_dtbdump.dtb", index + 1);
+        }
+    }
+}
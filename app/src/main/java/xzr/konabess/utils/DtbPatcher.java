@@ -0,0 +1,132 @@
+package xzr.konabess.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Rewrites property values inside a flattened device tree without recompiling it.
+ *
+ * <p>Only the payloads of the replaced properties change. Bytes before, between, and after them are
+ * copied verbatim, so every untouched node stays byte-identical; when a payload grows or shrinks
+ * the following blocks move and the header sizes and offsets are adjusted to match.
+ */
+public class DtbPatcher {
+    /**
+     * Replaces the values of previously located properties.
+     *
+     * @param fdt source blob, starting at position zero
+     * @param properties properties located in {@code fdt} by {@link FdtReader}
+     * @param values new big-endian cell values, one array per entry of {@code properties}
+     * @return heap buffer holding the patched blob, positioned at zero
+     * @throws IOException if the source is malformed or a property lies outside the struct block
+     * @throws IllegalArgumentException if the two arrays differ in length
+     */
+    public static ByteBuffer patch(ByteBuffer fdt, FdtReader.property[] properties, int[][] values)
+            throws IOException {
+        if (properties.length != values.length) {
+            throw new IllegalArgumentException("Expected " + properties.length + " values, got "
+                    + values.length);
+        }
+
+        FdtReader.header header = FdtReader.readHeader(fdt);
+        int structEnd = header.offDtStruct + header.sizeDtStruct;
+
+        Integer[] order = new Integer[properties.length];
+        int delta = 0;
+        for (int i = 0; i < properties.length; i++) {
+            FdtReader.property property = properties[i];
+            if (property.offset < header.offDtStruct
+                    || property.offset + 12 + property.length > structEnd
+                    || fdt.getInt(property.offset) != FdtReader.FDT_PROP) {
+                throw new IOException("Property " + property.name + " is not at struct offset "
+                        + property.offset);
+            }
+            order[i] = i;
+            delta += FdtReader.align(values[i].length * 4) - FdtReader.align(property.length);
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> properties[i].offset));
+
+        ByteBuffer src = fdt.duplicate();
+        ByteBuffer out = ByteBuffer.allocate(header.totalSize + delta);
+
+        int cursor = 0;
+        for (int i : order) {
+            FdtReader.property property = properties[i];
+            if (property.offset < cursor) {
+                throw new IOException("Property " + property.name + " overlaps another edit");
+            }
+
+            // Token and nameoff are kept; only the length word and the payload are rewritten.
+            copy(src, out, cursor, property.offset + 4);
+            out.putInt(values[i].length * 4);
+            copy(src, out, property.offset + 8, property.offset + 12);
+            for (int cell : values[i]) {
+                out.putInt(cell);
+            }
+            while ((out.position() & 3) != 0) {
+                out.put((byte) 0);
+            }
+
+            cursor = FdtReader.align(property.offset + 12 + property.length);
+        }
+        copy(src, out, cursor, header.totalSize);
+
+        out.putInt(4, header.totalSize + delta);
+        out.putInt(36, header.sizeDtStruct + delta);
+        if (header.offDtStrings > header.offDtStruct) {
+            out.putInt(12, header.offDtStrings + delta);
+        }
+        if (header.offMemRsvmap > header.offDtStruct) {
+            out.putInt(16, header.offMemRsvmap + delta);
+        }
+
+        out.flip();
+        return out;
+    }
+
+    /**
+     * Replaces a file with a patched blob.
+     *
+     * <p>The blob is written to a sibling temporary file in one channel write and then renamed over
+     * the target, so a failed write never leaves a truncated DTB behind.
+     *
+     * @param blob patched blob; its remaining bytes are written
+     * @param path destination DTB
+     * @throws IOException if the temporary file cannot be written or renamed
+     */
+    public static void write(ByteBuffer blob, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer data = blob.duplicate();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Copies an absolute byte range of the source into the output at its current position.
+     *
+     * @param src source blob
+     * @param out destination buffer
+     * @param from inclusive source offset
+     * @param to exclusive source offset
+     */
+    private static void copy(ByteBuffer src, ByteBuffer out, int from, int to) {
+        src.limit(to).position(from);
+        out.put(src);
+    }
+}
@@ -0,0 +1,264 @@
+package xzr.konabess.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Rebuilds an image around replaced device trees.
+ *
+ * <p>Unchanged regions are transferred channel to channel from the source image; only replaced
+ * blobs, their padding, and the Android DT table header are written from memory. A blob that
+ * shrinks is zero-padded to its old slot so every following offset is preserved. A blob that grows
+ * first uses the zero padding after it; beyond that the following data moves by whole pages, which
+ * is only possible when an Android DT table describes the layout.
+ */
+public class DtbRepacker {
+    /** Magic of the Android DT table header produced by {@code mkdtimg}. */
+    public static final int DT_TABLE_MAGIC = 0xd7b7ab1e;
+
+    private static final int DT_TABLE_HEADER_SIZE = 32;
+    private static final int DT_ENTRY_MIN_SIZE = 8;
+    private static final int ZERO_CHUNK = 64 * 1024;
+
+    /**
+     * Writes a copy of an image in which some blobs are replaced.
+     *
+     * <p>The output has the same length as the source image. Growth is absorbed by the zero
+     * padding at the end of the image, which is part of the dumped partition.
+     *
+     * @param image source image indexed by {@link DtbExtractor}
+     * @param replacements new blob per entry of {@link DtbExtractor.image#blobs}, or {@code null}
+     *     to keep a blob unchanged; each buffer must start with an FDT header
+     * @param output destination image
+     * @throws IOException if a replacement is malformed, does not fit, or the output cannot be
+     *     written
+     * @throws IllegalArgumentException if the replacement count differs from the blob count
+     */
+    public static void repack(DtbExtractor.image image, ByteBuffer[] replacements, Path output)
+            throws IOException {
+        int count = image.blobs.size();
+        if (replacements.length != count) {
+            throw new IllegalArgumentException("Expected " + count + " replacements, got "
+                    + replacements.length);
+        }
+
+        ByteBuffer source = image.buffer;
+        int imageSize = source.limit();
+        int pageSize = dtTablePageSize(source);
+
+        ByteBuffer[] blobs = new ByteBuffer[count];
+        int[] slotEnd = new int[count];
+        int[] growth = new int[count];
+        int[] shift = new int[count + 1];
+
+        for (int i = 0; i < count; i++) {
+            DtbExtractor.blob blob = image.blobs.get(i);
+            shift[i + 1] = shift[i];
+            if (replacements[i] == null) {
+                continue;
+            }
+
+            int size = FdtReader.readHeader(replacements[i]).totalSize;
+            blobs[i] = DtbExtractor.slice(replacements[i], 0, size);
+
+            int next = i + 1 < count ? image.blobs.get(i + 1).offset : imageSize;
+            slotEnd[i] = zeroRunEnd(source, blob.offset + blob.size, next);
+
+            int available = slotEnd[i] - blob.offset;
+            if (size > available) {
+                if (pageSize <= 0) {
+                    throw new IOException("DTB " + blob.fileName() + " grew by "
+                            + (size - available) + " bytes and the image has no DT table");
+                }
+                growth[i] = roundUp(size - available, pageSize);
+                shift[i + 1] += growth[i];
+            }
+        }
+
+        int totalShift = shift[count];
+        int keptEnd = imageSize - totalShift;
+        if (totalShift > 0 && zeroRunEnd(source, keptEnd, imageSize) != imageSize) {
+            throw new IOException("Repacked image exceeds the partition by " + totalShift
+                    + " bytes");
+        }
+
+        try (FileChannel in = FileChannel.open(image.path, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output,
+                     StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+            int cursor = 0;
+
+            if (pageSize > 0) {
+                ByteBuffer table = patchDtTable(source, image, blobs, shift, totalShift);
+                writeFully(out, table);
+                cursor = table.limit();
+            }
+
+            for (int i = 0; i < count; i++) {
+                if (blobs[i] == null) {
+                    continue;
+                }
+                DtbExtractor.blob blob = image.blobs.get(i);
+
+                transfer(in, cursor, blob.offset, out);
+                writeFully(out, blobs[i].duplicate());
+                writeZeros(out, slotEnd[i] - blob.offset + growth[i] - blobs[i].limit());
+                cursor = slotEnd[i];
+            }
+
+            transfer(in, cursor, keptEnd, out);
+        }
+    }
+
+    /**
+     * Returns the page size of an Android DT table at the start of an image.
+     *
+     * @param source image buffer
+     * @return page size, or {@code 0} when the image does not start with a DT table
+     */
+    private static int dtTablePageSize(ByteBuffer source) {
+        if (source.limit() < DT_TABLE_HEADER_SIZE || source.getInt(0) != DT_TABLE_MAGIC) {
+            return 0;
+        }
+        int pageSize = source.getInt(24);
+        return pageSize > 0 ? pageSize : 0;
+    }
+
+    /**
+     * Copies the DT table header and entries with sizes, offsets, and total size updated.
+     *
+     * <p>Each entry is matched to a blob by its offset. Entries that point elsewhere are moved by
+     * the shift of the nearest preceding blob.
+     *
+     * @param source image buffer
+     * @param image indexed image
+     * @param blobs replacement per blob, or {@code null}
+     * @param shift cumulative shift; {@code shift[i]} applies to blob {@code i}
+     * @param totalShift shift of everything after the last blob
+     * @return heap copy of the table, positioned at zero
+     * @throws IOException if the table is malformed or overlaps the first blob
+     */
+    private static ByteBuffer patchDtTable(ByteBuffer source, DtbExtractor.image image,
+                                           ByteBuffer[] blobs, int[] shift, int totalShift)
+            throws IOException {
+        int headerSize = source.getInt(8);
+        int entrySize = source.getInt(12);
+        int entryCount = source.getInt(16);
+        int entriesOffset = source.getInt(20);
+
+        long tableEnd = (long) entriesOffset + (long) entrySize * entryCount;
+        int firstBlob = image.blobs.isEmpty() ? source.limit() : image.blobs.get(0).offset;
+        if (headerSize < DT_TABLE_HEADER_SIZE || entrySize < DT_ENTRY_MIN_SIZE || entryCount < 0
+                || entriesOffset < headerSize || tableEnd > firstBlob) {
+            throw new IOException("Invalid DT table header");
+        }
+
+        ByteBuffer table = ByteBuffer.allocate((int) tableEnd);
+        table.put(DtbExtractor.slice(source, 0, (int) tableEnd));
+
+        table.putInt(4, source.getInt(4) + totalShift);
+
+        for (int e = 0; e < entryCount; e++) {
+            int entry = entriesOffset + e * entrySize;
+            int offset = table.getInt(entry + 4);
+
+            int applied = 0;
+            for (int i = 0; i < image.blobs.size(); i++) {
+                DtbExtractor.blob blob = image.blobs.get(i);
+                if (blob.offset > offset) {
+                    break;
+                }
+                applied = shift[i];
+                if (blob.offset == offset && blobs[i] != null) {
+                    table.putInt(entry, blobs[i].limit());
+                }
+            }
+            table.putInt(entry + 4, offset + applied);
+        }
+
+        table.position(0);
+        return table;
+    }
+
+    /**
+     * Finds the end of a run of zero bytes.
+     *
+     * @param source buffer to inspect
+     * @param from first offset of the run
+     * @param to exclusive upper bound
+     * @return first non-zero offset in the range, or {@code to}
+     */
+    private static int zeroRunEnd(ByteBuffer source, int from, int to) {
+        int pos = from;
+        while (pos < to && source.get(pos) == 0) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Rounds a positive value up to a multiple of {@code unit}.
+     *
+     * @param value value to round
+     * @param unit positive alignment
+     * @return smallest multiple of {@code unit} not below {@code value}
+     */
+    private static int roundUp(int value, int unit) {
+        return (value + unit - 1) / unit * unit;
+    }
+
+    /**
+     * Transfers a source range to the end of the output without copying through the heap.
+     *
+     * @param in source channel
+     * @param from inclusive source offset
+     * @param to exclusive source offset
+     * @param out destination channel
+     * @throws IOException if the transfer fails
+     */
+    private static void transfer(FileChannel in, long from, long to, FileChannel out)
+            throws IOException {
+        long position = from;
+        while (position < to) {
+            long transferred = in.transferTo(position, to - position, out);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of image at offset " + position);
+            }
+            position += transferred;
+        }
+    }
+
+    /**
+     * Writes all remaining bytes of a buffer.
+     *
+     * @param out destination channel
+     * @param data bytes to write
+     * @throws IOException if the write fails
+     */
+    private static void writeFully(FileChannel out, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            out.write(data);
+        }
+    }
+
+    /**
+     * Writes zero padding.
+     *
+     * @param out destination channel
+     * @param length number of zero bytes
+     * @throws IOException if the write fails
+     */
+    private static void writeZeros(FileChannel out, int length) throws IOException {
+        ByteBuffer zeros = ByteBuffer.allocate(Math.min(length, ZERO_CHUNK));
+        int remaining = length;
+        while (remaining > 0) {
+            zeros.clear().limit(Math.min(remaining, zeros.capacity()));
+            remaining -= zeros.remaining();
+            writeFully(out, zeros);
+        }
+    }
+}
@@ -13,28 +13,83 @@ public class DtsHelper {
      * @throws IllegalArgumentException if normalization does not produce exactly three characters
      */
     public static int decode_stringed_int(String input) throws IllegalArgumentException {
-        input = input.replaceAll("\"|;|\\\\\"", "")
-                .replace("\\a", "\7")
-                .replace("\\b", "\b")
-                .replace("\\f", "\f")
-                .replace("\\n", "\n")
-                .replace("\\r", "\r")
-                .replace("\\t", "\t")
-                .replace("\\v", "\11")
-                .replace("\\\\", "\\")
-                .replace("\\'", "'")
-                .trim();
-
-        if (input.length() != 3) {
-            throw new IllegalArgumentException(
-                    "Invalid input length. Expected 3 characters, got: " + input.length());
+        return decode_stringed_int(input, 0, input.length());
+    }
+
+    /**
+     * Decodes a quoted three-character DTS value in a character range without copying it.
+     *
+     * <p>Quotes and semicolons are dropped, escape sequences are converted in the same pass, and
+     * control characters and spaces at either end of the decoded value are ignored.
+     *
+     * @param input text containing the value
+     * @param start first index of the value
+     * @param end index after the value
+     * @return packed value in source order
+     * @throws IllegalArgumentException if the decoded value is not exactly three characters long
+     */
+    public static int decode_stringed_int(CharSequence input, int start, int end)
+            throws IllegalArgumentException {
+        int value = 0;
+        int length = 0;
+        int pending = 0;
+        int pendingLength = 0;
+
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c == '"' || c == ';') {
+                continue;
+            }
+            if (c == '\\' && i + 1 < end) {
+                char escaped = input.charAt(i + 1);
+                if (escaped == '"') {
+                    i++;
+                    continue;
+                }
+                int decoded = unescape(escaped);
+                if (decoded >= 0) {
+                    c = (char) decoded;
+                    i++;
+                }
+            }
+
+            if (c <= ' ' && pendingLength == 0) {
+                continue;
+            }
+            pending = (pending << 8) | c;
+            pendingLength++;
+            if (c > ' ') {
+                value = pending;
+                length = pendingLength;
+            }
         }
 
-        int result = 0;
-        for (int i = 0; i < input.length(); i++) {
-            result = (result << 8) | input.charAt(i);
+        if (length != 3) {
+            throw new IllegalArgumentException(
+                    "Invalid input length. Expected 3 characters, got: " + length);
         }
-        return result;
+        return value;
+    }
+
+    /**
+     * Maps the character after a backslash to the character it stands for.
+     *
+     * @param escaped character following the backslash
+     * @return decoded character, or {@code -1} if the sequence is kept verbatim
+     */
+    private static int unescape(char escaped) {
+        return switch (escaped) {
+            case 'a' -> 7;
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            case 'v' -> 11;
+            case '\\' -> '\\';
+            case '\'' -> '\'';
+            default -> -1;
+        };
     }
 
     /**
@@ -50,22 +105,96 @@ public class DtsHelper {
 
         intLine intLine = new intLine();
         intLine.name = line;
-        String value = line;
+        intLine.value = decode_int(line, 0, line.length());
+        return intLine;
+    }
 
-        try {
-            if (value.contains("\"")) {
-                intLine.value = decode_stringed_int(value);
-            } else if (value.startsWith("0x") || value.startsWith("0X")) {
-                intLine.value = Long.parseLong(value.substring(2).trim(), 16);
-            } else {
-                intLine.value = Long.parseLong(value.trim());
+    /**
+     * Parses one scalar token in a character range without copying it.
+     *
+     * <p>Surrounding whitespace is ignored. Tokens containing a quote are decoded with
+     * {@link #decode_stringed_int(CharSequence, int, int)}, tokens starting with {@code 0x} as
+     * hexadecimal, and anything else as a signed decimal.
+     *
+     * @param input text containing the token
+     * @param start first index of the token
+     * @param end index after the token
+     * @return parsed value
+     * @throws IllegalArgumentException if the token has an unsupported numeric form or overflows
+     *     a {@code long}
+     */
+    public static long decode_int(CharSequence input, int start, int end)
+            throws IllegalArgumentException {
+        while (start < end && input.charAt(start) <= ' ') start++;
+        while (end > start && input.charAt(end - 1) <= ' ') end--;
+
+        for (int i = start; i < end; i++) {
+            if (input.charAt(i) == '"') {
+                return decode_stringed_int(input, start, end);
             }
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException(
-                    "Invalid number format in line: " + line, e);
         }
 
-        return intLine;
+        if (end - start > 2 && input.charAt(start) == '0'
+                && (input.charAt(start + 1) == 'x' || input.charAt(start + 1) == 'X')) {
+            long value = 0;
+            for (int i = start + 2; i < end; i++) {
+                int digit = Character.digit(input.charAt(i), 16);
+                if (digit < 0 || value > Long.MAX_VALUE >> 4) {
+                    throw invalidNumber(input, start, end);
+                }
+                value = (value << 4) | digit;
+            }
+            return value;
+        }
+
+        return decode_decimal(input, start, end);
+    }
+
+    /**
+     * Parses a signed decimal integer in a character range.
+     *
+     * @param input text containing the number
+     * @param start first index of the number
+     * @param end index after the number
+     * @return parsed value
+     * @throws IllegalArgumentException if the range is not a decimal {@code long}
+     */
+    private static long decode_decimal(CharSequence input, int start, int end)
+            throws IllegalArgumentException {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+')) {
+            negative = input.charAt(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            throw invalidNumber(input, start, end);
+        }
+
+        // Accumulate negatively so Long.MIN_VALUE parses without overflow.
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = Character.digit(input.charAt(i), 10);
+            if (digit < 0 || value < (limit + digit) / 10) {
+                throw invalidNumber(input, start, end);
+            }
+            value = value * 10 - digit;
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * Builds the exception reported for a malformed token.
+     *
+     * @param input text containing the token
+     * @param start first index of the token
+     * @param end index after the token
+     * @return exception naming the token
+     */
+    private static IllegalArgumentException invalidNumber(CharSequence input, int start, int end) {
+        return new IllegalArgumentException(
+                "Invalid number format in line: " + input.subSequence(start, end));
     }
 
     /**
@@ -90,12 +219,37 @@ public class DtsHelper {
      * @throws IllegalArgumentException if {@code input} is not a Java {@code int}
      */
     public static String inputToHex(String input) {
+        long parsed;
         try {
-            int parsed = Integer.parseInt(input);
-            return String.format("0x%X", parsed);
-        } catch (NumberFormatException e) {
+            parsed = decode_decimal(input, 0, input.length());
+        } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Invalid input: " + input, e);
         }
+        if (parsed != (int) parsed) {
+            throw new IllegalArgumentException("Invalid input: " + input);
+        }
+        return append_hex(new StringBuilder(10), (int) parsed, true).toString();
+    }
+
+    /**
+     * Appends a cell as a {@code 0x}-prefixed hexadecimal token without intermediate strings.
+     *
+     * <p>The value is treated as unsigned, so negative cells print as their two's-complement bits.
+     *
+     * @param out builder receiving the token
+     * @param value cell value
+     * @param upperCase whether the digits use {@code A-F} instead of {@code a-f}
+     * @return {@code out}
+     */
+    public static StringBuilder append_hex(StringBuilder out, int value, boolean upperCase) {
+        out.append('0').append('x');
+        int shift = Math.max(0, (31 - Integer.numberOfLeadingZeros(value)) & ~3);
+        char ten = upperCase ? 'A' : 'a';
+        for (; shift >= 0; shift -= 4) {
+            int digit = (value >>> shift) & 0xf;
+            out.append((char) (digit < 10 ? '0' + digit : ten + digit - 10));
+        }
+        return out;
     }
 
     /** Parsed scalar token and its numeric value. */
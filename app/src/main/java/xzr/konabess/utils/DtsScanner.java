@@ -0,0 +1,182 @@
+package xzr.konabess.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Locates property lines in a decompiled DTS in one streaming pass.
+ *
+ * <p>The file is read through a channel in fixed-size chunks and fed to a {@link ByteMatcher}, so
+ * every pattern is matched in the same pass and no line is decoded into a string. Matching lines
+ * are reported as byte ranges; only the first occurrence of each pattern is read back as text.
+ */
+public class DtsScanner {
+    /**
+     * Line markers of the GPU properties, indexed like the {@code type} argument of
+     * {@link xzr.konabess.GpuTableEditor#genTable}.
+     */
+    public static final String[] GPU_PATTERNS = {
+            "gpu_dvfs_table_size = <",
+            "gpu_dvfs_table = ",
+            "gpu_max_clock = <",
+            "gpu_max_clock_limit = <",
+            "gpu_min_clock = <"
+    };
+
+    private static final ByteMatcher GPU_MATCHER = new ByteMatcher(GPU_PATTERNS);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Scans a DTS for the GPU property lines.
+     *
+     * @param path DTS file
+     * @return matching lines; pattern indices follow {@link #GPU_PATTERNS}
+     * @throws IOException if the file cannot be read
+     */
+    public static result scanGpuProperties(Path path) throws IOException {
+        return scan(path, GPU_MATCHER, GPU_PATTERNS.length);
+    }
+
+    /**
+     * Scans a file for lines containing any pattern of a matcher.
+     *
+     * <p>A line containing several patterns is attributed to the lowest pattern index.
+     *
+     * @param path file to scan
+     * @param matcher compiled patterns
+     * @param patternCount number of patterns in {@code matcher}
+     * @return matching lines
+     * @throws IOException if the file cannot be read
+     */
+    public static result scan(Path path, ByteMatcher matcher, int patternCount) throws IOException {
+        result result = new result();
+        result.ranges = new ArrayList<>();
+        result.first = new range[patternCount];
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            byte[] bytes = buffer.array();
+
+            long base = 0;
+            long lineStart = 0;
+            int line = 0;
+            int state = ByteMatcher.START;
+            int lineMatch = -1;
+
+            int read;
+            while ((read = channel.read(buffer)) >= 0) {
+                for (int i = 0; i < read; i++) {
+                    byte b = bytes[i];
+                    if (b == '\n') {
+                        if (lineMatch >= 0) {
+                            addRange(result, lineMatch, lineStart, base + i + 1, line);
+                        }
+                        lineStart = base + i + 1;
+                        line++;
+                        lineMatch = -1;
+                        state = ByteMatcher.START;
+                        continue;
+                    }
+
+                    state = matcher.step(state, b);
+                    for (int pattern : matcher.matches(state)) {
+                        if (lineMatch < 0 || pattern < lineMatch) {
+                            lineMatch = pattern;
+                        }
+                    }
+                }
+                base += read;
+                buffer.clear();
+            }
+
+            if (lineMatch >= 0) {
+                addRange(result, lineMatch, lineStart, base, line);
+            }
+            result.size = base;
+
+            for (range first : result.first) {
+                if (first != null) {
+                    first.text = readLine(channel, first);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Records one matching line.
+     *
+     * @param result scan result
+     * @param pattern attributed pattern index
+     * @param start offset of the first byte of the line
+     * @param end offset after the line terminator
+     * @param line zero-based line number
+     */
+    private static void addRange(result result, int pattern, long start, long end, int line) {
+        range range = new range();
+        range.pattern = pattern;
+        range.offset = start;
+        range.length = (int) (end - start);
+        range.line = line;
+        result.ranges.add(range);
+
+        if (result.first[pattern] == null) {
+            result.first[pattern] = range;
+        }
+    }
+
+    /**
+     * Reads a matched line without its terminator.
+     *
+     * @param channel open file
+     * @param range matched line
+     * @return line text
+     * @throws IOException if the range cannot be read
+     */
+    private static String readLine(FileChannel channel, range range) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(range.length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, range.offset + buffer.position()) < 0) {
+                throw new IOException("File shrank while reading line " + (range.line + 1));
+            }
+        }
+
+        int length = range.length;
+        while (length > 0 && (buffer.get(length - 1) == '\n' || buffer.get(length - 1) == '\r')) {
+            length--;
+        }
+        return new String(buffer.array(), 0, length, StandardCharsets.UTF_8);
+    }
+
+    /** Lines found by one scan. */
+    public static class result {
+        /** Every matching line in file order. */
+        public List<range> ranges;
+        /** First matching line per pattern index, or {@code null} when a pattern never occurs. */
+        public range[] first;
+        /** Number of bytes scanned. */
+        public long size;
+    }
+
+    /** One matching line. */
+    public static class range {
+        /** Pattern the line is attributed to. */
+        public int pattern;
+        /** Byte offset of the start of the line. */
+        public long offset;
+        /** Line length in bytes, including its terminator when present. */
+        public int length;
+        /** Zero-based line number. */
+        public int line;
+        /** Line text without its terminator; only set for the entries of {@link result#first}. */
+        public String text;
+    }
+}
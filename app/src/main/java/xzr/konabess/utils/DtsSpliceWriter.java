@@ -0,0 +1,102 @@
+package xzr.konabess.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Rewrites property lines of a DTS located by {@link DtsScanner}.
+ *
+ * <p>Bytes outside the replaced lines are transferred channel to channel from the original file,
+ * so saving costs one sequential copy plus the regenerated text. The result is written to a
+ * sibling temporary file and renamed over the original.
+ */
+public class DtsSpliceWriter {
+    /**
+     * Replaces scanned property lines in place.
+     *
+     * <p>For each pattern with a replacement, its first line is replaced by the new text, indented
+     * like the original line, and any later occurrences are dropped. Lines of patterns without a
+     * replacement are kept.
+     *
+     * @param path DTS scanned by {@code scan}
+     * @param scan scan of the current file contents
+     * @param replacements new single-line text per pattern index, or {@code null} to keep a pattern
+     * @throws IOException if the file cannot be read, written, or renamed
+     */
+    public static void splice(Path path, DtsScanner.result scan, String[] replacements)
+            throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(temp,
+                     StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+            long cursor = 0;
+
+            for (DtsScanner.range range : scan.ranges) {
+                String replacement = range.pattern < replacements.length
+                        ? replacements[range.pattern]
+                        : null;
+                if (replacement == null) {
+                    continue;
+                }
+
+                transfer(in, cursor, range.offset, out);
+                if (range == scan.first[range.pattern]) {
+                    String line = indentOf(range.text) + replacement + "\n";
+                    ByteBuffer bytes = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+                    while (bytes.hasRemaining()) {
+                        out.write(bytes);
+                    }
+                }
+                cursor = range.offset + range.length;
+            }
+
+            transfer(in, cursor, scan.size, out);
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the leading whitespace of a line.
+     *
+     * @param line line text
+     * @return spaces and tabs before the first other character
+     */
+    private static String indentOf(String line) {
+        int end = 0;
+        while (end < line.length() && (line.charAt(end) == ' ' || line.charAt(end) == '\t')) {
+            end++;
+        }
+        return line.substring(0, end);
+    }
+
+    /**
+     * Transfers a source range to the end of the output without copying through the heap.
+     *
+     * @param in source channel
+     * @param from inclusive source offset
+     * @param to exclusive source offset
+     * @param out destination channel
+     * @throws IOException if the transfer fails or the source is shorter than expected
+     */
+    private static void transfer(FileChannel in, long from, long to, FileChannel out)
+            throws IOException {
+        long position = from;
+        while (position < to) {
+            long transferred = in.transferTo(position, to - position, out);
+            if (transferred <= 0) {
+                throw new IOException("DTS changed while saving at offset " + position);
+            }
+            position += transferred;
+        }
+    }
+}
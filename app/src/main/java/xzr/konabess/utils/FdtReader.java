@@ -0,0 +1,380 @@
+package xzr.konabess.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads properties from a flattened device tree (DTB) without decompiling it to DTS.
+ *
+ * <p>The blob is walked in place: the header locates the structure and strings blocks, and
+ * property names are compared against the strings block byte-for-byte. All multi-byte fields are
+ * big-endian as required by the devicetree specification.
+ */
+public class FdtReader {
+    /** Magic number stored in the first header word of every DTB. */
+    public static final int FDT_MAGIC = 0xd00dfeed;
+    /** Size of a version 17 header in bytes. */
+    public static final int HEADER_SIZE = 40;
+
+    /**
+     * GPU properties edited by the app, indexed like the {@code type} argument of
+     * {@link xzr.konabess.GpuTableEditor#genTable}.
+     */
+    public static final String[] GPU_PROPERTIES = {
+            "gpu_dvfs_table_size",
+            "gpu_dvfs_table",
+            "gpu_max_clock",
+            "gpu_max_clock_limit",
+            "gpu_min_clock"
+    };
+
+    static final int FDT_BEGIN_NODE = 0x1;
+    static final int FDT_END_NODE = 0x2;
+    static final int FDT_PROP = 0x3;
+    static final int FDT_NOP = 0x4;
+    static final int FDT_END = 0x9;
+
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * Maps a DTB file read-only.
+     *
+     * @param path DTB file
+     * @return big-endian buffer covering the whole file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Reads and validates the header at position zero of a DTB buffer.
+     *
+     * @param fdt buffer whose position zero is the start of the blob
+     * @return decoded header
+     * @throws IOException if the magic is wrong or a block lies outside {@code totalsize}
+     */
+    public static header readHeader(ByteBuffer fdt) throws IOException {
+        if (fdt.limit() < HEADER_SIZE) {
+            throw new IOException("DTB is shorter than its header: " + fdt.limit() + " bytes");
+        }
+
+        if (fdt.getInt(0) != FDT_MAGIC) {
+            throw new IOException(String.format("Bad DTB magic: 0x%08x", fdt.getInt(0)));
+        }
+
+        header header = new header();
+        header.totalSize = fdt.getInt(4);
+        header.offDtStruct = fdt.getInt(8);
+        header.offDtStrings = fdt.getInt(12);
+        header.offMemRsvmap = fdt.getInt(16);
+        header.version = fdt.getInt(20);
+        header.lastCompVersion = fdt.getInt(24);
+        header.bootCpuidPhys = fdt.getInt(28);
+        header.sizeDtStrings = fdt.getInt(32);
+        header.sizeDtStruct = fdt.getInt(36);
+
+        if (header.version < 17) {
+            throw new IOException("Unsupported DTB version: " + header.version);
+        }
+
+        if (header.totalSize < HEADER_SIZE || header.totalSize > fdt.limit()) {
+            throw new IOException("DTB totalsize " + header.totalSize + " does not fit in "
+                    + fdt.limit() + " bytes");
+        }
+
+        checkBlock("struct", header.offDtStruct, header.sizeDtStruct, header.totalSize);
+        checkBlock("strings", header.offDtStrings, header.sizeDtStrings, header.totalSize);
+        checkBlock("memory reservation", header.offMemRsvmap, 0, header.totalSize);
+
+        return header;
+    }
+
+    /**
+     * Ensures that a header block lies inside the blob.
+     *
+     * @param name block name used in the error message
+     * @param offset block offset
+     * @param size block size
+     * @param totalSize blob size
+     * @throws IOException if the block exceeds the blob
+     */
+    private static void checkBlock(String name, int offset, int size, int totalSize) throws IOException {
+        if (offset < HEADER_SIZE || size < 0 || (long) offset + size > totalSize) {
+            throw new IOException("DTB " + name + " block out of range: offset=" + offset
+                    + " size=" + size + " totalsize=" + totalSize);
+        }
+    }
+
+    /**
+     * Finds the first occurrence of each named property anywhere in the tree.
+     *
+     * <p>The walk stops as soon as every name has been located.
+     *
+     * @param fdt buffer whose position zero is the start of the blob
+     * @param names property names to look up
+     * @return properties in the order of {@code names}; missing entries are {@code null}
+     * @throws IOException if the header or structure block is malformed
+     */
+    public static property[] findProperties(ByteBuffer fdt, String... names) throws IOException {
+        header header = readHeader(fdt);
+
+        byte[][] wanted = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            wanted[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        }
+
+        property[] found = new property[names.length];
+        int remaining = names.length;
+
+        int[] nodeNames = new int[MAX_DEPTH];
+        int depth = 0;
+
+        int pos = header.offDtStruct;
+        int end = header.offDtStruct + header.sizeDtStruct;
+
+        while (pos < end && remaining > 0) {
+            int token = fdt.getInt(pos);
+            int tokenOffset = pos;
+            pos += 4;
+
+            switch (token) {
+                case FDT_BEGIN_NODE -> {
+                    if (depth == MAX_DEPTH) {
+                        throw new IOException("DTB nesting deeper than " + MAX_DEPTH);
+                    }
+                    nodeNames[depth++] = pos;
+                    pos = align(skipString(fdt, pos, end) + 1);
+                }
+                case FDT_END_NODE -> {
+                    if (depth == 0) {
+                        throw new IOException("Unbalanced FDT_END_NODE at " + tokenOffset);
+                    }
+                    depth--;
+                }
+                case FDT_PROP -> {
+                    int length = fdt.getInt(pos);
+                    int nameOffset = fdt.getInt(pos + 4);
+                    int valueOffset = pos + 8;
+
+                    if (length < 0 || valueOffset + length > end) {
+                        throw new IOException("Property at " + tokenOffset + " overruns the struct block");
+                    }
+
+                    int nameStart = header.offDtStrings + nameOffset;
+                    for (int i = 0; i < wanted.length; i++) {
+                        if (found[i] == null && nameEquals(fdt, nameStart, wanted[i])) {
+                            found[i] = readProperty(fdt, names[i], tokenOffset, length,
+                                    nodeNames, depth);
+                            remaining--;
+                            break;
+                        }
+                    }
+
+                    pos = align(valueOffset + length);
+                }
+                case FDT_NOP -> {
+                }
+                case FDT_END -> pos = end;
+                default -> throw new IOException(String.format(
+                        "Unknown FDT token 0x%08x at %d", token, tokenOffset));
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Reads the five GPU properties edited by the app.
+     *
+     * @param fdt buffer whose position zero is the start of the blob
+     * @return decoded GPU properties
+     * @throws IOException if the blob is malformed or a GPU property is missing
+     */
+    public static gpuProperties readGpuProperties(ByteBuffer fdt) throws IOException {
+        property[] found = findProperties(fdt, GPU_PROPERTIES);
+
+        for (int i = 0; i < found.length; i++) {
+            if (found[i] == null) {
+                throw new IOException("DTB has no " + GPU_PROPERTIES[i] + " property");
+            }
+        }
+
+        gpuProperties gpu = new gpuProperties();
+        gpu.properties = found;
+        gpu.dvfsTableSize = found[0].cells;
+        gpu.dvfsTable = found[1].cells;
+        gpu.maxClock = found[2].unsignedCell(0);
+        gpu.maxClockLimit = found[3].unsignedCell(0);
+        gpu.minClock = found[4].unsignedCell(0);
+        return gpu;
+    }
+
+    /**
+     * Builds a property record, decoding its value into 32-bit cells.
+     *
+     * @param fdt DTB buffer
+     * @param name property name
+     * @param tokenOffset offset of the {@code FDT_PROP} token
+     * @param length value length in bytes
+     * @param nodeNames offsets of the enclosing node names, outermost first
+     * @param depth number of valid entries in {@code nodeNames}
+     * @return decoded property
+     */
+    private static property readProperty(ByteBuffer fdt, String name, int tokenOffset, int length,
+                                         int[] nodeNames, int depth) {
+        property property = new property();
+        property.name = name;
+        property.offset = tokenOffset;
+        property.length = length;
+
+        property.cells = new int[length / 4];
+        int valueOffset = tokenOffset + 12;
+        for (int i = 0; i < property.cells.length; i++) {
+            property.cells[i] = fdt.getInt(valueOffset + i * 4);
+        }
+
+        StringBuilder path = new StringBuilder();
+        // Depth zero is the unnamed root node.
+        for (int i = 1; i < depth; i++) {
+            path.append('/');
+            appendString(fdt, nodeNames[i], path);
+        }
+        property.node = path.length() == 0 ? "/" : path.toString();
+
+        return property;
+    }
+
+    /**
+     * Compares a NUL-terminated string in the blob against an ASCII name.
+     *
+     * @param fdt DTB buffer
+     * @param offset start of the blob string
+     * @param name expected bytes, without terminator
+     * @return {@code true} when the strings are equal
+     */
+    private static boolean nameEquals(ByteBuffer fdt, int offset, byte[] name) {
+        if (offset + name.length >= fdt.limit()) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (fdt.get(offset + i) != name[i]) {
+                return false;
+            }
+        }
+        return fdt.get(offset + name.length) == 0;
+    }
+
+    /**
+     * Finds the terminator of a NUL-terminated string.
+     *
+     * @param fdt DTB buffer
+     * @param offset first character
+     * @param end exclusive search bound
+     * @return offset of the terminating NUL
+     * @throws IOException if no terminator appears before {@code end}
+     */
+    private static int skipString(ByteBuffer fdt, int offset, int end) throws IOException {
+        for (int i = offset; i < end; i++) {
+            if (fdt.get(i) == 0) {
+                return i;
+            }
+        }
+        throw new IOException("Unterminated node name at " + offset);
+    }
+
+    /**
+     * Appends a NUL-terminated ASCII string from the blob.
+     *
+     * @param fdt DTB buffer
+     * @param offset first character
+     * @param out destination
+     */
+    private static void appendString(ByteBuffer fdt, int offset, StringBuilder out) {
+        for (int i = offset; i < fdt.limit(); i++) {
+            byte b = fdt.get(i);
+            if (b == 0) {
+                return;
+            }
+            out.append((char) (b & 0xff));
+        }
+    }
+
+    /**
+     * Rounds an offset up to the four-byte structure alignment.
+     *
+     * @param offset unaligned offset
+     * @return aligned offset
+     */
+    static int align(int offset) {
+        return (offset + 3) & ~3;
+    }
+
+    /** Decoded DTB header fields. */
+    public static class header {
+        /** Size of the whole blob, including padding. */
+        public int totalSize;
+        /** Offset of the structure block. */
+        public int offDtStruct;
+        /** Offset of the strings block. */
+        public int offDtStrings;
+        /** Offset of the memory reservation map. */
+        public int offMemRsvmap;
+        /** Format version. */
+        public int version;
+        /** Lowest version this blob is backwards compatible with. */
+        public int lastCompVersion;
+        /** Physical ID of the boot CPU. */
+        public int bootCpuidPhys;
+        /** Size of the strings block. */
+        public int sizeDtStrings;
+        /** Size of the structure block. */
+        public int sizeDtStruct;
+    }
+
+    /** One property located in the structure block. */
+    public static class property {
+        /** Property name. */
+        public String name;
+        /** Full path of the node containing the property. */
+        public String node;
+        /** Offset of the {@code FDT_PROP} token, relative to the start of the blob. */
+        public int offset;
+        /** Value length in bytes. */
+        public int length;
+        /** Value decoded as big-endian 32-bit cells; a trailing partial cell is dropped. */
+        public int[] cells;
+
+        /**
+         * Returns one cell as an unsigned value.
+         *
+         * @param index cell index
+         * @return cell value in the range {@code 0..0xffffffff}
+         */
+        public long unsignedCell(int index) {
+            return cells[index] & 0xffffffffL;
+        }
+    }
+
+    /** The GPU properties edited by the app, decoded from one DTB. */
+    public static class gpuProperties {
+        /** Located properties, indexed like {@link #GPU_PROPERTIES}. */
+        public property[] properties;
+        /** {@code gpu_dvfs_table_size} cells: row count followed by column count. */
+        public int[] dvfsTableSize;
+        /** {@code gpu_dvfs_table} cells in row-major order. */
+        public int[] dvfsTable;
+        /** {@code gpu_max_clock} in kHz. */
+        public long maxClock;
+        /** {@code gpu_max_clock_limit} in kHz. */
+        public long maxClockLimit;
+        /** {@code gpu_min_clock} in kHz. */
+        public long minClock;
+    }
+}
@@ -0,0 +1,257 @@
+package xzr.konabess.utils;
+
+import java.util.Arrays;
+
+/**
+ * Columnar model of a Samsung GPU DVFS table and its companion clock properties.
+ *
+ * <p>Each row of {@code gpu_dvfs_table} is one frequency followed by {@link #META_CELLS} metadata
+ * cells. Frequencies and metadata are held in primitive arrays with spare capacity, so reading and
+ * editing rows neither parses text nor allocates; text and cells are produced only when the table
+ * is serialized.
+ */
+public class GpuTable {
+    /** Metadata cells that follow the frequency in each table row. */
+    public static final int META_CELLS = 7;
+
+    /**
+     * Property names, indexed like the {@code type} argument of
+     * {@link xzr.konabess.GpuTableEditor#genTable}.
+     */
+    public static final String[] PROPERTIES = FdtReader.GPU_PROPERTIES;
+
+    private long[] freqs;
+    private int[][] meta;
+    private int rows;
+
+    /** Second cell of {@code gpu_dvfs_table_size}: cells per row. */
+    public int rowCells;
+    /** Value of {@code gpu_max_clock}. */
+    public long maxClock;
+    /** Value of {@code gpu_max_clock_limit}. */
+    public long maxClockLimit;
+    /** Value of {@code gpu_min_clock}. */
+    public long minClock;
+
+    /**
+     * Builds a table from the cells of the five GPU properties.
+     *
+     * @param size {@code gpu_dvfs_table_size} cells: row count and cells per row
+     * @param table {@code gpu_dvfs_table} cells, row-major
+     * @param max {@code gpu_max_clock} cells
+     * @param maxLimit {@code gpu_max_clock_limit} cells
+     * @param min {@code gpu_min_clock} cells
+     * @return decoded table
+     * @throws IllegalArgumentException if a property is empty or the table is not whole rows
+     */
+    public static GpuTable fromCells(int[] size, int[] table, int[] max, int[] maxLimit, int[] min) {
+        int width = 1 + META_CELLS;
+        if (size.length < 1 || max.length < 1 || maxLimit.length < 1 || min.length < 1) {
+            throw new IllegalArgumentException("Empty GPU clock property");
+        }
+        if (table.length == 0 || table.length % width != 0) {
+            throw new IllegalArgumentException("gpu_dvfs_table has " + table.length
+                    + " cells, expected a multiple of " + width);
+        }
+
+        GpuTable result = new GpuTable();
+        result.rows = table.length / width;
+        result.freqs = new long[result.rows];
+        result.meta = new int[result.rows][];
+        for (int row = 0; row < result.rows; row++) {
+            result.freqs[row] = Integer.toUnsignedLong(table[row * width]);
+            result.meta[row] = Arrays.copyOfRange(table, row * width + 1, (row + 1) * width);
+        }
+
+        result.rowCells = size.length > 1 ? size[1] : width;
+        result.maxClock = Integer.toUnsignedLong(max[0]);
+        result.maxClockLimit = Integer.toUnsignedLong(maxLimit[0]);
+        result.minClock = Integer.toUnsignedLong(min[0]);
+        return result;
+    }
+
+    /**
+     * Parses the cells of a single-line {@code name = <cells>;} DTS statement.
+     *
+     * @param line property line
+     * @return cell values
+     * @throws IllegalArgumentException if the line has no cell list or a cell is not a number
+     */
+    public static int[] parseCells(String line) {
+        int open = line.indexOf('<');
+        int close = line.lastIndexOf('>');
+        if (open < 0 || close < open) {
+            throw new IllegalArgumentException("No cell list in: " + line);
+        }
+
+        int count = 0;
+        for (int i = open + 1; i < close; ) {
+            while (i < close && line.charAt(i) <= ' ') i++;
+            if (i == close) break;
+            count++;
+            while (i < close && line.charAt(i) > ' ') i++;
+        }
+
+        int[] cells = new int[count];
+        int cell = 0;
+        for (int i = open + 1; cell < count; ) {
+            while (line.charAt(i) <= ' ') i++;
+            int start = i;
+            while (i < close && line.charAt(i) > ' ') i++;
+            cells[cell++] = (int) DtsHelper.decode_int(line, start, i);
+        }
+        return cells;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return row count
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the frequency of a row.
+     *
+     * @param row row index
+     * @return frequency in kHz
+     */
+    public long frequency(int row) {
+        checkRow(row);
+        return freqs[row];
+    }
+
+    /**
+     * Replaces the frequency of a row.
+     *
+     * @param row row index
+     * @param frequency frequency in kHz
+     */
+    public void setFrequency(int row, long frequency) {
+        checkRow(row);
+        freqs[row] = frequency;
+    }
+
+    /**
+     * Returns one metadata cell of a row.
+     *
+     * @param row row index
+     * @param cell metadata index below {@link #META_CELLS}
+     * @return cell value
+     */
+    public int meta(int row, int cell) {
+        checkRow(row);
+        return meta[row][cell];
+    }
+
+    /**
+     * Inserts a copy of an existing row.
+     *
+     * @param at index the copy will occupy, from zero to {@link #rows()}
+     * @param from row to copy, indexed before the insertion
+     */
+    public void insertCopy(int at, int from) {
+        checkRow(from);
+        if (at < 0 || at > rows) {
+            throw new IndexOutOfBoundsException("Row " + at + " of " + rows);
+        }
+
+        if (rows == freqs.length) {
+            int capacity = Math.max(4, rows * 2);
+            freqs = Arrays.copyOf(freqs, capacity);
+            meta = Arrays.copyOf(meta, capacity);
+        }
+
+        long freq = freqs[from];
+        int[] cells = meta[from].clone();
+
+        System.arraycopy(freqs, at, freqs, at + 1, rows - at);
+        System.arraycopy(meta, at, meta, at + 1, rows - at);
+        freqs[at] = freq;
+        meta[at] = cells;
+        rows++;
+    }
+
+    /**
+     * Removes a row.
+     *
+     * @param row row index
+     */
+    public void remove(int row) {
+        checkRow(row);
+        System.arraycopy(freqs, row + 1, freqs, row, rows - row - 1);
+        System.arraycopy(meta, row + 1, meta, row, rows - row - 1);
+        rows--;
+        meta[rows] = null;
+    }
+
+    /**
+     * Derives the clock limits from the rows, which are ordered from fastest to slowest.
+     *
+     * <p>The maximum clock and its limit become the first frequency and the minimum clock becomes
+     * the last.
+     */
+    public void syncLimits() {
+        maxClock = freqs[0];
+        maxClockLimit = freqs[0];
+        minClock = freqs[rows - 1];
+    }
+
+    /**
+     * Produces the cells of one property.
+     *
+     * @param type property index in {@link #PROPERTIES}
+     * @return big-endian cell values
+     * @throws IllegalArgumentException if {@code type} is out of range
+     */
+    public int[] cells(int type) {
+        return switch (type) {
+            case 0 -> new int[]{rows, rowCells};
+            case 1 -> {
+                int width = 1 + META_CELLS;
+                int[] cells = new int[rows * width];
+                for (int row = 0; row < rows; row++) {
+                    cells[row * width] = (int) freqs[row];
+                    System.arraycopy(meta[row], 0, cells, row * width + 1, META_CELLS);
+                }
+                yield cells;
+            }
+            case 2 -> new int[]{(int) maxClock};
+            case 3 -> new int[]{(int) maxClockLimit};
+            case 4 -> new int[]{(int) minClock};
+            default -> throw new IllegalArgumentException("Invalid type: " + type);
+        };
+    }
+
+    /**
+     * Formats one property as a single-line DTS statement with lowercase hexadecimal cells.
+     *
+     * @param type property index in {@link #PROPERTIES}
+     * @return statement such as {@code gpu_max_clock = <0xab630>;}
+     * @throws IllegalArgumentException if {@code type} is out of range
+     */
+    public String format(int type) {
+        int[] cells = cells(type);
+        StringBuilder line = new StringBuilder(PROPERTIES[type].length() + 4 + cells.length * 11);
+        line.append(PROPERTIES[type]).append(" = <");
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) line.append(' ');
+            DtsHelper.append_hex(line, cells[i], false);
+        }
+        return line.append(">;").toString();
+    }
+
+    /**
+     * Rejects row indices outside the table.
+     *
+     * @param row row index
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    private void checkRow(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package xzr.konabess.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/** Computes SHA-256 digests of images and partition read-backs. */
+public class ImageDigest {
+    /** Read size used for streamed input. */
+    public static final int CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Digests the remaining bytes of a buffer without changing its position.
+     *
+     * @param data image contents
+     * @return SHA-256 digest
+     */
+    public static byte[] sha256(ByteBuffer data) {
+        MessageDigest digest = newDigest();
+        digest.update(data.duplicate());
+        return digest.digest();
+    }
+
+    /**
+     * Digests a stream to its end in {@link #CHUNK_SIZE} reads.
+     *
+     * @param in stream to read
+     * @return SHA-256 digest
+     * @throws IOException if the stream fails
+     */
+    public static byte[] sha256(InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[CHUNK_SIZE];
+
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Digests exactly {@code length} bytes of a stream in {@link #CHUNK_SIZE} reads.
+     *
+     * <p>Bytes after {@code length} are left unread, so a partition may be longer than the image
+     * it is compared with.
+     *
+     * @param in stream to read
+     * @param length number of bytes to digest
+     * @return SHA-256 digest
+     * @throws IOException if the stream fails or ends early
+     */
+    public static byte[] sha256(InputStream in, long length) throws IOException {
+        MessageDigest digest = newDigest();
+        update(digest, in, length);
+        return digest.digest();
+    }
+
+    /**
+     * Feeds exactly {@code length} bytes of a stream into a digest in {@link #CHUNK_SIZE} reads.
+     *
+     * @param digest digest to update
+     * @param in stream to read
+     * @param length number of bytes to read
+     * @throws IOException if the stream fails or ends early
+     */
+    public static void update(MessageDigest digest, InputStream in, long length)
+            throws IOException {
+        byte[] buffer = new byte[(int) Math.min(CHUNK_SIZE, Math.max(length, 1))];
+
+        long remaining = length;
+        while (remaining > 0) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new IOException("Stream ended " + remaining + " bytes early");
+            }
+            digest.update(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    /**
+     * Formats a digest as lowercase hexadecimal.
+     *
+     * @param digest digest bytes
+     * @return hexadecimal string
+     */
+    public static String toHex(byte[] digest) {
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Creates a SHA-256 digest instance.
+     *
+     * @return new digest
+     * @throws IllegalStateException if the platform lacks SHA-256
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is unavailable", e);
+        }
+    }
+}
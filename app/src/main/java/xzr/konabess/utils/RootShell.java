@@ -0,0 +1,188 @@
+package xzr.konabess.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long-lived {@code su} session shared by every privileged operation.
+ *
+ * <p>The root manager is consulted once, when the session starts. Commands are then written to the
+ * shell's stdin one at a time; each is followed by a marker line carrying its exit status, which
+ * frames its combined stdout and stderr on the way back. A reader thread drains the shell so
+ * commands can time out without blocking on the pipe.
+ */
+public class RootShell {
+    /** Timeout applied by {@link #exec(String)}. */
+    public static final long DEFAULT_TIMEOUT_SECONDS = 300L;
+
+    /** Queued by the reader thread after the shell's output ends; never equal to a line. */
+    private static final Object EOF = new Object();
+
+    private static RootShell session;
+
+    private final Process process;
+    private final Writer stdin;
+    /** Output lines of the shell, followed by {@link #EOF} once it exits. */
+    private final BlockingQueue<Object> lines = new LinkedBlockingQueue<>();
+    private final String marker = "__konabess_" + UUID.randomUUID().toString().replace("-", "");
+
+    /**
+     * Starts {@code su} and the thread that drains its output.
+     *
+     * @throws IOException if {@code su} cannot be started
+     */
+    private RootShell() throws IOException {
+        process = new ProcessBuilder("su").redirectErrorStream(true).start();
+        stdin = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+
+        Thread pump = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            } catch (IOException ignored) {
+                // The shell is gone; waiting commands are released by the EOF marker below.
+            }
+            lines.add(EOF);
+        }, "RootShell");
+        pump.setDaemon(true);
+        pump.start();
+    }
+
+    /**
+     * Runs a command in the shared root session with {@link #DEFAULT_TIMEOUT_SECONDS}.
+     *
+     * @param command shell command line; stdin is redirected from {@code /dev/null}
+     * @return exit status and output
+     * @throws IOException if the session cannot be started, dies, or the command times out
+     */
+    public static result exec(String command) throws IOException {
+        return exec(command, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Runs a command in the shared root session, starting it on first use.
+     *
+     * <p>Commands are serialized. A command that times out or loses its shell discards the session,
+     * and the next call starts a new one.
+     *
+     * @param command shell command line; stdin is redirected from {@code /dev/null}
+     * @param timeout maximum time to wait for the command, including a first {@code su} grant
+     * @param unit unit of {@code timeout}
+     * @return exit status and output
+     * @throws IOException if the session cannot be started, dies, the command times out, or the
+     *     calling thread is interrupted
+     */
+    public static synchronized result exec(String command, long timeout, TimeUnit unit)
+            throws IOException {
+        if (session == null || !session.process.isAlive()) {
+            session = new RootShell();
+        }
+
+        try {
+            return session.run(command, unit.toNanos(timeout));
+        } catch (IOException e) {
+            session.process.destroyForcibly();
+            session = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a command in the background of the shared root session and streams its stdout.
+     *
+     * <p>The session frames text lines, so binary output, such as a partition read, goes through a
+     * FIFO instead: the command is started with its stdout redirected into {@code fifo}, the call
+     * returns as soon as it is launched, and the returned stream reads the FIFO in process. No new
+     * {@code su} is started and the session is free for other commands while the stream is read.
+     * The command's stderr is discarded, so a command that fails ends the stream early. Closing
+     * the stream before the end stops the command with {@code SIGPIPE}.
+     *
+     * @param command shell command line
+     * @param fifo path for the FIFO, in a directory the app can read; replaced if it exists
+     * @return stream of the command's stdout; the caller closes it
+     * @throws IOException if the FIFO cannot be created or opened, or the session fails
+     */
+    public static InputStream stream(String command, File fifo) throws IOException {
+        String path = fifo.getAbsolutePath();
+        // Root creates the FIFO, so it has to be opened up for the app to read.
+        result result = exec("rm -f " + path + " && mkfifo -m 0666 " + path + " && { ( "
+                + command + " ) >" + path + " 2>/dev/null & }");
+        if (result.exitCode != 0) {
+            throw new IOException("Cannot create " + path + ": " + result.output);
+        }
+
+        // Blocks until the background command opens its end, which it does before running.
+        InputStream in = new FileInputStream(fifo);
+        // Both ends are open, so the name is no longer needed; the next call replaces a leftover.
+        fifo.delete();
+        return in;
+    }
+
+    /**
+     * Writes one framed command and collects its output up to the marker line.
+     *
+     * @param command shell command line
+     * @param timeoutNanos time budget
+     * @return exit status and output
+     * @throws IOException if the shell dies, the command times out, or the thread is interrupted
+     */
+    private result run(String command, long timeoutNanos) throws IOException {
+        // The extra echo guarantees the marker starts a line even when output lacks a newline.
+        stdin.write("{\n" + command + "\n} </dev/null 2>&1; __rc=$?; echo; echo \"" + marker
+                + " $__rc\"\n");
+        stdin.flush();
+
+        long deadline = System.nanoTime() + timeoutNanos;
+        List<String> output = new ArrayList<>();
+        try {
+            while (true) {
+                Object next = lines.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    throw new IOException("Root command timed out: " + command);
+                }
+                if (next == EOF) {
+                    throw new IOException("Root shell exited while running: " + command);
+                }
+                String line = (String) next;
+                if (line.startsWith(marker + " ")) {
+                    if (!output.isEmpty() && output.get(output.size() - 1).isEmpty()) {
+                        output.remove(output.size() - 1);
+                    }
+
+                    result result = new result();
+                    result.exitCode = Integer.parseInt(line.substring(marker.length() + 1).trim());
+                    result.output = String.join("\n", output);
+                    return result;
+                }
+                output.add(line);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running: " + command, e);
+        }
+    }
+
+    /** Exit status and combined output of one command. */
+    public static class result {
+        /** Shell exit status of the command. */
+        public int exitCode;
+        /** Combined stdout and stderr, without a trailing newline. */
+        public String output;
+    }
+}
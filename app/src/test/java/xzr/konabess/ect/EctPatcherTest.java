@@ -0,0 +1,195 @@
+package xzr.konabess.ect;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/** Inserts a GPU level into the Exynos 9820 ECT dump shipped in {@code ect_dump}. */
+public class EctPatcherTest {
+    /** Bytes a {@code dvfs_g3d} level adds to the DVFS section: level record and one clock. */
+    private static final int DVFS_GROWTH = 8 + 4;
+    /** Bytes it adds to the ASV section: level word, then per table an enable word and 16 steps. */
+    private static final int ASV_GROWTH = 4 + 7 * (4 + 16);
+
+    private byte[] original;
+    private EctReader before;
+    private EctReader after;
+    private int dvfsOffset;
+    private int asvOffset;
+
+    /**
+     * Reads the dump and inserts a 754 MHz level above the fastest one.
+     *
+     * @throws IOException if the dump cannot be read or patched
+     */
+    @Before
+    public void insertLevel() throws IOException {
+        original = Files.readAllBytes(blob());
+        before = EctReader.wrap(ByteBuffer.wrap(original.clone()));
+        dvfsOffset = before.dvfsDomain(EctPatcher.G3D).offset;
+        asvOffset = before.asvDomain(EctPatcher.G3D).offset;
+
+        EctPatcher patcher = EctPatcher.wrap(ByteBuffer.wrap(original.clone()));
+        patcher.insertLevel(EctPatcher.G3D, 0, 754000, null);
+        after = patcher.reader();
+    }
+
+    /** The new level leads the DVFS and ASV level lists and copies its neighbour's voltages. */
+    @Test
+    public void levelIsInsertedInBothSections() throws IOException {
+        long[] levels = before.dvfsDomain(EctPatcher.G3D).levels;
+        long[] expected = new long[levels.length + 1];
+        expected[0] = 754000;
+        System.arraycopy(levels, 0, expected, 1, levels.length);
+        assertArrayEquals(expected, after.dvfsDomain(EctPatcher.G3D).levels);
+
+        EctReader.asvDomain oldAsv = before.asvDomain(EctPatcher.G3D);
+        EctReader.asvDomain newAsv = after.asvDomain(EctPatcher.G3D);
+        assertEquals(754, newAsv.levels[0]);
+        assertArrayEquals(oldAsv.levels, Arrays.copyOfRange(newAsv.levels, 1,
+                newAsv.levels.length));
+        for (int t = 0; t < oldAsv.tables.length; t++) {
+            for (int g = 0; g < oldAsv.groups; g++) {
+                assertEquals(oldAsv.voltage(t, 0, g), newAsv.voltage(t, 0, g));
+                for (int level = 0; level < oldAsv.levels.length; level++) {
+                    assertEquals(oldAsv.voltage(t, level, g), newAsv.voltage(t, level + 1, g));
+                }
+            }
+        }
+    }
+
+    /** TOTAL SIZE and every section offset move by exactly the bytes inserted before them. */
+    @Test
+    public void sizeAndOffsetsStayConsistent() throws IOException {
+        assertEquals(before.totalSize + DVFS_GROWTH + ASV_GROWTH, after.totalSize);
+        assertEquals(before.sections.length, after.sections.length);
+        for (int i = 0; i < before.sections.length; i++) {
+            EctReader.section old = before.sections[i];
+            EctReader.section section = after.sections[i];
+            assertEquals(old.name, section.name);
+            assertEquals(old.name, old.offset + shift(old.offset), section.offset);
+        }
+        assertEquals(before.section(EctReader.DVFS).size + DVFS_GROWTH,
+                after.section(EctReader.DVFS).size);
+        assertEquals(before.section(EctReader.ASV).size + ASV_GROWTH,
+                after.section(EctReader.ASV).size);
+
+        // Every section still decodes from its new offset.
+        after.plls();
+        after.genTables();
+        after.timingTables();
+        after.pidtmBlocks();
+        after.minlockDomains();
+        after.thermalFunctions();
+    }
+
+    /** Every byte outside the GPU domains is unchanged, only moved. */
+    @Test
+    public void otherDomainsAreByteIdentical() throws IOException {
+        for (EctReader.section old : before.sections) {
+            if (old.name.equals(EctReader.DVFS) || old.name.equals(EctReader.ASV)) {
+                continue;
+            }
+            assertRangeMoved(old.name, old.offset, old.offset + old.size);
+        }
+
+        EctReader.dvfsDomain[] dvfs = before.dvfsDomains();
+        int[] dvfsOffsets = new int[dvfs.length];
+        for (int i = 0; i < dvfs.length; i++) {
+            dvfsOffsets[i] = dvfs[i].offset;
+        }
+        assertDomainsMoved(before.section(EctReader.DVFS), dvfsOffsets, dvfs.length,
+                i -> dvfs[i].name);
+
+        EctReader.asvDomain[] asv = before.asvDomains();
+        int[] asvOffsets = new int[asv.length];
+        for (int i = 0; i < asv.length; i++) {
+            asvOffsets[i] = asv[i].offset;
+        }
+        assertDomainsMoved(before.section(EctReader.ASV), asvOffsets, asv.length,
+                i -> asv[i].name);
+
+        EctReader.dvfsDomain[] patched = after.dvfsDomains();
+        for (int i = 0; i < dvfs.length; i++) {
+            if (!dvfs[i].name.equals(EctPatcher.G3D)) {
+                assertArrayEquals(dvfs[i].name, dvfs[i].levels, patched[i].levels);
+                assertArrayEquals(dvfs[i].name, dvfs[i].values, patched[i].values);
+            }
+        }
+    }
+
+    /**
+     * Checks that every domain of a section except the GPU one was moved without changes.
+     *
+     * @param section section in the original blob
+     * @param offsets absolute domain offsets in the original blob
+     * @param count number of domains
+     * @param names domain names by index
+     */
+    private void assertDomainsMoved(EctReader.section section, int[] offsets, int count,
+                                    IntFunction<String> names) {
+        int[] sorted = offsets.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < count; i++) {
+            if (names.apply(i).equals(EctPatcher.G3D)) {
+                continue;
+            }
+            int index = Arrays.binarySearch(sorted, offsets[i]);
+            int end = index + 1 < sorted.length
+                    ? sorted[index + 1]
+                    : section.offset + section.size;
+            assertRangeMoved(names.apply(i), offsets[i], end);
+        }
+    }
+
+    /**
+     * Checks that a byte range of the original blob appears unchanged at its shifted offset.
+     *
+     * @param name what the range holds, for the failure message
+     * @param from first byte in the original blob
+     * @param to byte after the last one
+     */
+    private void assertRangeMoved(String name, int from, int to) {
+        byte[] expected = Arrays.copyOfRange(original, from, to);
+        byte[] actual = new byte[to - from];
+        after.buffer.duplicate().position(from + shift(from)).get(actual);
+        assertArrayEquals(name, expected, actual);
+    }
+
+    /**
+     * Returns how far the insertion moved an offset of the original blob.
+     *
+     * @param offset absolute offset in the original blob
+     * @return bytes inserted before it
+     */
+    private int shift(int offset) {
+        int shift = 0;
+        if (offset > dvfsOffset) {
+            shift += DVFS_GROWTH;
+        }
+        if (offset > asvOffset) {
+            shift += ASV_GROWTH;
+        }
+        return shift;
+    }
+
+    /**
+     * Locates the dump from the module or the repository root.
+     *
+     * @return path of {@code raw_blob.bin}
+     */
+    private static Path blob() {
+        Path path = Paths.get("../ect_dump/raw_blob.bin");
+        return Files.exists(path) ? path : Paths.get("ect_dump/raw_blob.bin");
+    }
+}
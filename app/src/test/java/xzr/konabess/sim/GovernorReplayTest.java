@@ -0,0 +1,109 @@
+package xzr.konabess.sim;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import xzr.konabess.utils.GpuTable;
+
+/** Replays synthetic traces against the stock Exynos 9820 table. */
+public class GovernorReplayTest {
+    /** Frequencies of the stock 9820 {@code gpu_dvfs_table}, fastest first, in kHz. */
+    private static final long[] STOCK_9820 = {702000, 676000, 650000, 598000, 572000, 433000,
+            377000, 325000, 260000, 200000, 156000, 100000};
+
+    /**
+     * Builds the stock table, whose rows all have a min threshold of 78 and a max of 100.
+     *
+     * @return table limited to its fastest row
+     */
+    private static GpuTable stockTable() {
+        int width = 1 + GpuTable.META_CELLS;
+        int[] cells = new int[STOCK_9820.length * width];
+        for (int row = 0; row < STOCK_9820.length; row++) {
+            cells[row * width] = (int) STOCK_9820[row];
+            cells[row * width + 1] = 78;
+            cells[row * width + 2] = 100;
+            cells[row * width + 3] = 1;
+        }
+        return GpuTable.fromCells(new int[]{STOCK_9820.length, width}, cells,
+                new int[]{702000}, new int[]{702000}, new int[]{100000});
+    }
+
+    /**
+     * Creates a trace of constant load.
+     *
+     * @param samples number of 20 ms samples
+     * @param demand load in kHz
+     * @return trace
+     */
+    private static UtilizationTrace constant(int samples, long demand) {
+        int[] durations = new int[samples];
+        long[] demands = new long[samples];
+        Arrays.fill(durations, 20_000);
+        Arrays.fill(demands, demand);
+        return new UtilizationTrace("constant", durations, demands);
+    }
+
+    /** A saturated GPU climbs to gpu_max_clock_limit although no row's max threshold is exceeded. */
+    @Test
+    public void saturatedTraceClimbsToMaxClockLimit() {
+        GpuTable table = stockTable();
+        GovernorReplay.result result = new GovernorReplay(table, 260000)
+                .replay(constant(200, 702000));
+
+        assertEquals(8, result.transitions);
+        assertTrue(result.timeInState[0] > result.duration * 0.9);
+        assertTrue(result.missedFrames < result.frames * 0.1);
+    }
+
+    /** The high-speed clock is reached in one jump once the delay has passed. */
+    @Test
+    public void highspeedClockIsReachedInOneJump() {
+        GovernorReplay replay = new GovernorReplay(stockTable(), 260000);
+        replay.highspeedClock = 572000;
+        replay.highspeedLoad = 95;
+        replay.highspeedDelay = 1;
+        GovernorReplay.result result = replay.replay(constant(200, 702000));
+
+        // One jump from 260 to 572 MHz, then four single steps up to 702 MHz.
+        assertEquals(5, result.transitions);
+        assertEquals(0.04, result.timeInState[8], 1e-9);
+        assertTrue(result.timeInState[0] > result.duration * 0.9);
+    }
+
+    /** Replaying traces in parallel gives each trace the result of replaying it alone. */
+    @Test
+    public void replayAllMatchesSerialReplays() {
+        GovernorReplay replay = new GovernorReplay(stockTable(), 260000);
+        List<UtilizationTrace> traces = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            int[] durations = new int[300];
+            long[] demands = new long[300];
+            Arrays.fill(durations, 16667);
+            for (int sample = 0; sample < demands.length; sample++) {
+                // A square wave whose period and peak differ per trace.
+                demands[sample] = (sample / (5 + i)) % 2 == 0 ? 100000 : 300000 + 50000L * i;
+            }
+            traces.add(new UtilizationTrace("trace" + i, durations, demands));
+        }
+
+        GovernorReplay.result[] results = replay.replayAll(traces, new ForkJoinPool(4));
+
+        assertEquals(traces.size(), results.length);
+        for (int i = 0; i < traces.size(); i++) {
+            GovernorReplay.result serial = replay.replay(traces.get(i));
+            assertEquals(serial.name, results[i].name);
+            assertEquals(serial.transitions, results[i].transitions);
+            assertEquals(serial.missedFrames, results[i].missedFrames, 0);
+            assertArrayEquals(serial.timeInState, results[i].timeInState, 0);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package xzr.konabess.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import xzr.konabess.ect.EctReader;
+
+/**
+ * Checks the simulator against the closed-form response of its single thermal mass.
+ *
+ * <p>With a 20 degree per watt resistance and an 8 joule per degree capacity the die follows
+ * {@code T(t) = Ta + P*R*(1 - exp(-t/(R*C)))} until the controller steps in.
+ */
+public class ThermalSimulatorTest {
+    private static final long[] FREQUENCIES = {700000, 300000};
+    private static final double AMBIENT = 25;
+
+    /**
+     * Builds a proportional controller that throttles a 3 W level once the die passes 50 C.
+     *
+     * @return parameters with no integral term
+     */
+    private static ThermalSimulator.params proportional() {
+        ThermalSimulator.params params = new ThermalSimulator.params();
+        params.switchOnTemperature = 50;
+        params.controlTemperature = 60;
+        params.kPo = 100;
+        params.kPu = 100;
+        params.sustainablePower = 2000;
+        return params;
+    }
+
+    /**
+     * Returns the time the die takes to heat from the ambient to a temperature.
+     *
+     * @param power constant power in milliwatts
+     * @param temperature temperature in degrees Celsius
+     * @param params thermal constants
+     * @return seconds
+     */
+    private static double timeToReach(double power, double temperature,
+                                      ThermalSimulator.params params) {
+        double rise = power / 1000 * params.resistance;
+        return -params.resistance * params.capacitance
+                * Math.log(1 - (temperature - AMBIENT) / rise);
+    }
+
+    /** A table whose top level fits the thermal envelope never throttles. */
+    @Test
+    public void coolTableNeverThrottles() {
+        ThermalSimulator.result result = new ThermalSimulator(proportional())
+                .run(FREQUENCIES, new double[]{1000, 500}, new double[]{AMBIENT}, 1,
+                        new ThermalSimulator.result());
+
+        // 1 W settles 20 C above the ambient, below the 50 C switch-on.
+        assertEquals(-1, result.throttleTime, 0);
+        assertEquals(700000, result.sustainedFrequency, 0);
+        assertEquals(700000, result.averageFrequency, 0);
+        assertTrue(result.peakTemperature < 45);
+    }
+
+    /** The first throttle and the sustained frequency match the closed-form solution. */
+    @Test
+    public void hotTableThrottlesAndSettlesAtTheBudget() {
+        ThermalSimulator.params params = proportional();
+        ThermalSimulator.result result = new ThermalSimulator(params)
+                .run(FREQUENCIES, new double[]{3000, 1000}, new double[]{AMBIENT}, 1,
+                        new ThermalSimulator.result());
+
+        // The budget 2000 + 100 * (60 - T) drops below 3 W once the die passes 50 C.
+        assertEquals(timeToReach(3000, 50, params), result.throttleTime, 0.2);
+
+        // Held at 50 C the die sheds (50 - 25) / 20 = 1.25 W, so the fast level runs 1/8 of
+        // the time: 700 * 1/8 + 300 * 7/8 = 350 MHz.
+        assertEquals(350000, result.sustainedFrequency, 350000 * 0.02);
+        assertEquals(50, result.peakTemperature, 0.5);
+    }
+
+    /** AP thermal caps lower the level even while the power allocator is idle. */
+    @Test
+    public void thermalCapsThrottleBelowSwitchOn() {
+        ThermalSimulator.params params = proportional();
+        EctReader.thermalFunction caps = new EctReader.thermalFunction();
+        caps.name = "G3D";
+        caps.lowerTemperatures = new int[]{20, 40};
+        caps.upperTemperatures = new int[]{39, 120};
+        caps.maxFrequencies = new int[]{700000, 300000};
+        caps.swTrips = new int[2];
+        caps.flags = new int[2];
+        params.caps = caps;
+
+        ThermalSimulator.result result = new ThermalSimulator(params)
+                .run(FREQUENCIES, new double[]{3000, 1000}, new double[]{AMBIENT}, 1,
+                        new ThermalSimulator.result());
+
+        // Capped at 40 C; the slow level alone settles at 45 C, below the switch-on.
+        assertEquals(timeToReach(3000, 40, params), result.throttleTime, 0.2);
+        assertEquals(300000, result.sustainedFrequency, 0);
+    }
+
+    /** Reusing one simulator for tables of different sizes gives the same results as new ones. */
+    @Test
+    public void reusedSimulatorMatchesFreshOnes() {
+        ThermalSimulator reused = new ThermalSimulator(proportional());
+        ThermalSimulator.result out = new ThermalSimulator.result();
+        long[] large = {700000, 650000, 500000, 300000};
+        double[] largePowers = {3000, 2500, 1800, 1000};
+
+        reused.run(large, largePowers, new double[]{AMBIENT}, 1, out);
+        reused.run(FREQUENCIES, new double[]{3000, 1000}, new double[]{AMBIENT}, 1, out);
+        ThermalSimulator.result fresh = new ThermalSimulator(proportional())
+                .run(FREQUENCIES, new double[]{3000, 1000}, new double[]{AMBIENT}, 1,
+                        new ThermalSimulator.result());
+
+        assertEquals(fresh.sustainedFrequency, out.sustainedFrequency, 0);
+        assertEquals(fresh.throttleTime, out.throttleTime, 0);
+        assertEquals(fresh.energy, out.energy, 0);
+    }
+
+    /** The GPU block of the Exynos 9820 dump supplies the trip temperatures and gains. */
+    @Test
+    public void paramsComeFromThePidtmBlock() throws IOException {
+        Path path = Paths.get("../ect_dump/raw_blob.bin");
+        EctReader reader = EctReader.open(Files.exists(path)
+                ? path : Paths.get("ect_dump/raw_blob.bin"));
+        EctReader.pidtmBlock g3d = null;
+        for (EctReader.pidtmBlock block : reader.pidtmBlocks()) {
+            if (block.name.equals("G3D")) {
+                g3d = block;
+            }
+        }
+
+        ThermalSimulator.params params = ThermalSimulator.fromPidtm(g3d);
+        assertEquals(65, params.switchOnTemperature, 0);
+        assertEquals(88, params.controlTemperature, 0);
+        assertEquals(60, params.kPo, 0);
+        assertEquals(10, params.kI, 0);
+        assertEquals(600, params.integralMax, 0);
+        assertEquals(1700, params.sustainablePower, 0);
+    }
+}
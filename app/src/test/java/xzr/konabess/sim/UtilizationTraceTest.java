@@ -0,0 +1,106 @@
+package xzr.konabess.sim;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Reads and writes both trace forms. */
+public class UtilizationTraceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes a text file into the temporary folder.
+     *
+     * @param name file name
+     * @param text file contents
+     * @return path of the file
+     * @throws IOException if the file cannot be written
+     */
+    private Path write(String name, String text) throws IOException {
+        Path path = folder.getRoot().toPath().resolve(name);
+        Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    /** CSV rows become demands in kHz; the header is skipped and the last duration repeats. */
+    @Test
+    public void csvRowsBecomeDemands() throws IOException {
+        Path path = write("game.csv", "time_ms,utilization,frequency_khz\n"
+                + "0,50,702000\n"
+                + "20,100,260000\n"
+                + "\n"
+                + "36.5,25.5,100000\n");
+
+        UtilizationTrace trace = UtilizationTrace.readCsv(path);
+
+        assertEquals("game.csv", trace.name);
+        assertArrayEquals(new int[]{20000, 16500, 16500}, trace.durations);
+        assertArrayEquals(new long[]{351000, 260000, 25500}, trace.demands);
+    }
+
+    /** Time that does not increase and short rows are rejected. */
+    @Test
+    public void malformedCsvIsRejected() throws IOException {
+        Path backwards = write("backwards.csv", "0,50,702000\n20,50,702000\n20,50,702000\n");
+        Path shortRow = write("short.csv", "0,50\n");
+        Path letters = write("letters.csv", "0,half,702000\n");
+
+        assertThrows(IOException.class, () -> UtilizationTrace.readCsv(backwards));
+        assertThrows(IOException.class, () -> UtilizationTrace.readCsv(shortRow));
+        assertThrows(IOException.class, () -> UtilizationTrace.readCsv(letters));
+    }
+
+    /** A trace written in binary reads back with the same durations and demands. */
+    @Test
+    public void binaryRoundTrip() throws IOException {
+        UtilizationTrace trace = new UtilizationTrace("trace",
+                new int[]{16667, 20000, 33333}, new long[]{0, 598000, 754000});
+        Path path = folder.getRoot().toPath().resolve("trace.kbut");
+
+        trace.writeBinary(path);
+        UtilizationTrace read = UtilizationTrace.readBinary(path);
+
+        assertEquals("trace.kbut", read.name);
+        assertArrayEquals(trace.durations, read.durations);
+        assertArrayEquals(trace.demands, read.demands);
+        assertEquals(4 + 4 + 3 * 9, Files.size(path));
+    }
+
+    /** {@link UtilizationTrace#read} tells the two forms apart by the signature. */
+    @Test
+    public void readDetectsTheForm() throws IOException {
+        Path csv = write("trace.csv", "0,100,572000\n20,100,572000\n");
+        Path binary = folder.getRoot().toPath().resolve("trace.bin");
+        UtilizationTrace.readCsv(csv).writeBinary(binary);
+
+        UtilizationTrace fromCsv = UtilizationTrace.read(csv);
+        UtilizationTrace fromBinary = UtilizationTrace.read(binary);
+
+        assertArrayEquals(fromCsv.durations, fromBinary.durations);
+        assertArrayEquals(fromCsv.demands, fromBinary.demands);
+    }
+
+    /** A binary trace whose sample count exceeds the file is rejected. */
+    @Test
+    public void truncatedBinaryIsRejected() throws IOException {
+        UtilizationTrace trace = new UtilizationTrace("trace", new int[]{20000, 20000},
+                new long[]{1, 2});
+        Path path = folder.getRoot().toPath().resolve("truncated.bin");
+        trace.writeBinary(path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThrows(IOException.class, () -> UtilizationTrace.readBinary(path));
+    }
+}
@@ -0,0 +1,185 @@
+package xzr.konabess.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Repacks a synthetic {@code dtbo.img}: an Android DT table with 256-byte pages and two blobs.
+ *
+ * <p>Blob A sits at 256 with 200 bytes and blob B at 512 with 300 bytes; each is followed by zero
+ * padding to the next page, and the image ends with 1024 zero bytes.
+ */
+public class DtbRepackerTest {
+    private static final int PAGE_SIZE = 256;
+    private static final int IMAGE_SIZE = 2048;
+    private static final int A_OFFSET = 256;
+    private static final int A_SIZE = 200;
+    private static final int B_OFFSET = 512;
+    private static final int B_SIZE = 300;
+    /** Offset of the first DT table entry; the second follows 32 bytes later. */
+    private static final int ENTRIES = 32;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Builds a minimal FDT: header, empty reservation map, and a struct block holding
+     * {@code FDT_END} followed by filler.
+     *
+     * @param size total size in bytes
+     * @param fill non-zero filler byte, so each blob is recognizable and ends in non-zero data
+     * @return blob bytes
+     */
+    private static byte[] blob(int size, int fill) {
+        ByteBuffer blob = ByteBuffer.allocate(size);
+        blob.putInt(0, FdtReader.FDT_MAGIC)
+                .putInt(4, size)
+                .putInt(8, 56)
+                .putInt(12, size)
+                .putInt(16, 40)
+                .putInt(20, 17)
+                .putInt(24, 16)
+                .putInt(36, size - 56)
+                .putInt(56, 0x9);
+        for (int i = 60; i < size; i++) {
+            blob.put(i, (byte) fill);
+        }
+        return blob.array();
+    }
+
+    /**
+     * Writes the image, with or without its DT table.
+     *
+     * @param dtTable whether the image starts with a DT table; without one, B directly follows A
+     * @return indexed image
+     * @throws IOException if the image cannot be written or mapped
+     */
+    private DtbExtractor.image image(boolean dtTable) throws IOException {
+        ByteBuffer image = ByteBuffer.allocate(IMAGE_SIZE);
+        if (dtTable) {
+            image.putInt(0, DtbRepacker.DT_TABLE_MAGIC)
+                    .putInt(4, B_OFFSET + B_SIZE)
+                    .putInt(8, 32)
+                    .putInt(12, 32)
+                    .putInt(16, 2)
+                    .putInt(20, ENTRIES)
+                    .putInt(24, PAGE_SIZE)
+                    .putInt(ENTRIES, A_SIZE)
+                    .putInt(ENTRIES + 4, A_OFFSET)
+                    .putInt(ENTRIES + 32, B_SIZE)
+                    .putInt(ENTRIES + 36, B_OFFSET);
+            image.put(A_OFFSET, blob(A_SIZE, 0x5a));
+            image.put(B_OFFSET, blob(B_SIZE, 0x6b));
+        } else {
+            image.put(0, blob(A_SIZE, 0x5a));
+            image.put(A_SIZE, blob(B_SIZE, 0x6b));
+        }
+
+        Path path = folder.getRoot().toPath().resolve("dtbo.img");
+        Files.write(path, image.array());
+        return DtbExtractor.open(path);
+    }
+
+    /**
+     * Replaces blob A and repacks the image.
+     *
+     * @param image source image
+     * @param replacement new blob A
+     * @return repacked image
+     * @throws IOException if the repack fails
+     */
+    private ByteBuffer repackA(DtbExtractor.image image, byte[] replacement) throws IOException {
+        Path output = folder.getRoot().toPath().resolve("dtbo_new.img");
+        DtbRepacker.repack(image, new ByteBuffer[]{ByteBuffer.wrap(replacement), null}, output);
+        return ByteBuffer.wrap(Files.readAllBytes(output));
+    }
+
+    /**
+     * Returns a range of a buffer as an array.
+     *
+     * @param data source buffer
+     * @param offset first byte
+     * @param length number of bytes
+     * @return copied bytes
+     */
+    private static byte[] range(ByteBuffer data, int offset, int length) {
+        return Arrays.copyOfRange(data.array(), offset, offset + length);
+    }
+
+    /** A smaller blob is zero-padded to its old slot and nothing after it moves. */
+    @Test
+    public void shrinkIsZeroPadded() throws IOException {
+        byte[] replacement = blob(120, 0x7c);
+        ByteBuffer out = repackA(image(true), replacement);
+
+        assertEquals(IMAGE_SIZE, out.limit());
+        assertArrayEquals(replacement, range(out, A_OFFSET, 120));
+        assertArrayEquals(new byte[B_OFFSET - A_OFFSET - 120], range(out, A_OFFSET + 120,
+                B_OFFSET - A_OFFSET - 120));
+        assertArrayEquals(blob(B_SIZE, 0x6b), range(out, B_OFFSET, B_SIZE));
+        assertEquals(120, out.getInt(ENTRIES));
+        assertEquals(A_OFFSET, out.getInt(ENTRIES + 4));
+        assertEquals(B_OFFSET, out.getInt(ENTRIES + 36));
+        assertEquals(B_OFFSET + B_SIZE, out.getInt(4));
+    }
+
+    /** A larger blob that fits in the zeros after it leaves every offset in place. */
+    @Test
+    public void growthWithinPaddingKeepsOffsets() throws IOException {
+        byte[] replacement = blob(B_OFFSET - A_OFFSET, 0x7c);
+        ByteBuffer out = repackA(image(true), replacement);
+
+        assertEquals(IMAGE_SIZE, out.limit());
+        assertArrayEquals(replacement, range(out, A_OFFSET, replacement.length));
+        assertArrayEquals(blob(B_SIZE, 0x6b), range(out, B_OFFSET, B_SIZE));
+        assertEquals(replacement.length, out.getInt(ENTRIES));
+        assertEquals(B_OFFSET, out.getInt(ENTRIES + 36));
+        assertEquals(B_OFFSET + B_SIZE, out.getInt(4));
+    }
+
+    /**
+     * A blob that outgrows its padding moves the following blob by whole pages, and the DT table's
+     * {@code total_size}, {@code dt_size} and {@code dt_offset} follow.
+     */
+    @Test
+    public void growthBeyondPaddingShiftsByPages() throws IOException {
+        byte[] replacement = blob(400, 0x7c);
+        ByteBuffer out = repackA(image(true), replacement);
+
+        // 400 bytes need 144 more than the 256-byte slot, rounded up to one page.
+        int moved = B_OFFSET + PAGE_SIZE;
+        assertEquals(IMAGE_SIZE, out.limit());
+        assertArrayEquals(replacement, range(out, A_OFFSET, replacement.length));
+        assertArrayEquals(new byte[moved - A_OFFSET - 400], range(out, A_OFFSET + 400,
+                moved - A_OFFSET - 400));
+        assertArrayEquals(blob(B_SIZE, 0x6b), range(out, moved, B_SIZE));
+        assertArrayEquals(new byte[IMAGE_SIZE - moved - B_SIZE], range(out, moved + B_SIZE,
+                IMAGE_SIZE - moved - B_SIZE));
+
+        assertEquals(B_OFFSET + B_SIZE + PAGE_SIZE, out.getInt(4));
+        assertEquals(400, out.getInt(ENTRIES));
+        assertEquals(A_OFFSET, out.getInt(ENTRIES + 4));
+        assertEquals(B_SIZE, out.getInt(ENTRIES + 32));
+        assertEquals(moved, out.getInt(ENTRIES + 36));
+    }
+
+    /** Without a DT table there is no way to move the following blob. */
+    @Test
+    public void growthWithoutDtTableThrows() throws IOException {
+        DtbExtractor.image image = image(false);
+        assertEquals(2, image.blobs.size());
+
+        assertThrows(IOException.class, () -> repackA(image, blob(A_SIZE + 4, 0x7c)));
+    }
+}
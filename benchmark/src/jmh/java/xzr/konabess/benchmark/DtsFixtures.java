@@ -0,0 +1,93 @@
+package xzr.konabess.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes decompiled DTS files for the editor benchmarks.
+ *
+ * <p>Every fixture is a flat list of peripheral nodes with the Exynos 9820 GPU node placed after
+ * three fifths of them, so the scan has to cover most of the file on either side of it. Only the
+ * node count differs between sizes, so scores scale with the bytes that have to be scanned.
+ */
+final class DtsFixtures {
+    /** Fixture name for a board-sized Exynos 9820 tree. */
+    static final String EXYNOS9820 = "exynos9820";
+
+    /** Peripheral nodes in the board-sized fixture, which comes to about 1.3 MiB. */
+    private static final int EXYNOS9820_NODES = 11500;
+
+    /** Approximate size of one peripheral node in bytes. */
+    private static final int NODE_BYTES = 114;
+
+    /** GPU properties of the Exynos 9820 {@code g3d} node. */
+    static final String GPU_PROPERTIES = """
+            \t\tgpu_max_clock = <0xab630>;
+            \t\tgpu_max_clock_limit = <0xab630>;
+            \t\tgpu_min_clock = <0x186a0>;
+            \t\tgpu_dvfs_table_size = <0xc 0x8>;
+            \t\tgpu_dvfs_table = <%s>;
+            \t\tgpu_dvfs_start_clock = <0x3f7a0>;
+            \t\tgpu_dvfs_polling_time = <0x20>;
+            \t\tgpu_pmqos_cpu_cluster_num = <0x3>;
+            """.formatted(DtsHelperBenchmark.GPU_DVFS_TABLE);
+
+    private DtsFixtures() {
+    }
+
+    /**
+     * Writes one fixture.
+     *
+     * @param name {@link #EXYNOS9820} or a size such as {@code 64k} or {@code 8m}
+     * @param path destination file
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the name is not a known fixture
+     */
+    static void write(String name, Path path) throws IOException {
+        int nodes = name.equals(EXYNOS9820) ? EXYNOS9820_NODES : (int) (parseSize(name) / NODE_BYTES);
+
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("/dts-v1/;\n\n/ {\n");
+            out.write("\tmodel = \"Samsung BEYOND1LTE EUR OPEN 26 board based on EXYNOS9820\";\n");
+            out.write("\tcompatible = \"samsung,exynos9820\";\n");
+            out.write("\t#address-cells = <0x2>;\n\t#size-cells = <0x1>;\n\n");
+
+            int gpu = nodes * 3 / 5;
+            for (int i = 0; i < nodes; i++) {
+                if (i == gpu) {
+                    out.write("\tmali@18500000 {\n\t\tcompatible = \"arm,mali\";\n");
+                    out.write("\t\treg = <0x0 0x18500000 0x0 0x5000>;\n");
+                    out.write(GPU_PROPERTIES);
+                    out.write("\t};\n\n");
+                }
+                long address = 0x10000000L + i * 0x1000L;
+                out.write("\tdev@" + Long.toHexString(address) + " {\n");
+                out.write("\t\tcompatible = \"samsung,dummy-" + i + "\";\n");
+                out.write("\t\treg = <0x0 0x" + Long.toHexString(address) + " 0x0 0x1000>;\n");
+                out.write("\t\tstatus = \"okay\";\n\t};\n\n");
+            }
+            out.write("};\n");
+        }
+    }
+
+    /**
+     * Parses a size with an optional {@code k} or {@code m} suffix.
+     *
+     * @param size size text
+     * @return size in bytes
+     * @throws IllegalArgumentException if the text is not a size
+     */
+    private static long parseSize(String size) {
+        char unit = Character.toLowerCase(size.charAt(size.length() - 1));
+        long scale = unit == 'k' ? 1024 : unit == 'm' ? 1024 * 1024 : 1;
+        String digits = scale == 1 ? size : size.substring(0, size.length() - 1);
+        try {
+            return Long.parseLong(digits) * scale;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown fixture: " + size, e);
+        }
+    }
+}
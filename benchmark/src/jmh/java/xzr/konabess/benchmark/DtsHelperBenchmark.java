@@ -0,0 +1,128 @@
+package xzr.konabess.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import xzr.konabess.utils.DtsHelper;
+
+/**
+ * Compares the string-based scalar decoding with the range-scanning {@link DtsHelper} paths.
+ *
+ * <p>Each operation covers every token of the Exynos 9820 {@code gpu_dvfs_table}, so scores are
+ * per table rather than per token.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DtsHelperBenchmark {
+    /** {@code gpu_dvfs_table} cells from the Exynos 9820 device tree. */
+    static final String GPU_DVFS_TABLE = "0xab630 0x4e 0x64 0x1 0x1fefc8 0x0 0x0 0x234f10 "
+            + "0xa50a0 0x4e 0x64 0x1 0x1fefc8 0x0 0x0 0x234f10 "
+            + "0x9eb10 0x4e 0x64 0x1 0x1fefc8 0x0 0x0 0x234f10 "
+            + "0x91ff0 0x4e 0x64 0x1 0x1fefc8 0x0 0x0 0x0 "
+            + "0x8ba60 0x4e 0x64 0x1 0x1fefc8 0x0 0x0 0x0 "
+            + "0x69b68 0x4e 0x64 0x1 0x1fefc8 0x0 0x0 0x0 "
+            + "0x5c0a8 0x4e 0x64 0x1 0x1fefc8 0x0 0x0 0x0 "
+            + "0x4f588 0x4e 0x64 0x1 0x1fefc8 0x0 0x0 0x0 "
+            + "0x3f7a0 0x4e 0x64 0x1 0x1fefc8 0x0 0x0 0x0 "
+            + "0x30d40 0x4e 0x64 0x1 0x1fefc8 0x0 0x0 0x0 "
+            + "0x26160 0x4e 0x64 0x1 0x1fefc8 0x0 0x0 0x0 "
+            + "0x186a0 0x4e 0x64 0x1 0x1fefc8 0x0 0x0 0x0";
+
+    /** Quoted three-character values with and without escapes. */
+    static final String[] STRINGED = {"\"G3D\";", "\"A\\tB\"", "\"a\\\\b\";", "\"\\'x'\""};
+
+    private String[] tokens;
+    private int[] starts;
+    private int[] ends;
+    private String[] decimals;
+    private int[] values;
+    private StringBuilder out;
+
+    /** Splits the fixture once so both paths see the same tokens. */
+    @Setup
+    public void setup() {
+        tokens = GPU_DVFS_TABLE.split(" ");
+        starts = new int[tokens.length];
+        ends = new int[tokens.length];
+        decimals = new String[tokens.length];
+        values = new int[tokens.length];
+
+        int position = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            starts[i] = position;
+            ends[i] = position + tokens[i].length();
+            position = ends[i] + 1;
+            values[i] = (int) Long.parseLong(tokens[i].substring(2), 16);
+            decimals[i] = Integer.toString(values[i]);
+        }
+        out = new StringBuilder(GPU_DVFS_TABLE.length());
+    }
+
+    /** Baseline: trimmed substring per token, parsed by {@link Long#parseLong(String, int)}. */
+    @Benchmark
+    public long decodeIntLegacy() {
+        long sum = 0;
+        for (String token : tokens) {
+            sum += LegacyDtsHelper.decode_int_line(token);
+        }
+        return sum;
+    }
+
+    /** Parses each token in place inside the property text. */
+    @Benchmark
+    public long decodeIntRange() {
+        long sum = 0;
+        for (int i = 0; i < starts.length; i++) {
+            sum += DtsHelper.decode_int(GPU_DVFS_TABLE, starts[i], ends[i]);
+        }
+        return sum;
+    }
+
+    /** Baseline: regex removal and chained replacements per value. */
+    @Benchmark
+    public int decodeStringedLegacy() {
+        int sum = 0;
+        for (String value : STRINGED) {
+            sum += LegacyDtsHelper.decode_stringed_int(value);
+        }
+        return sum;
+    }
+
+    /** Decodes quotes and escapes in a single pass per value. */
+    @Benchmark
+    public int decodeStringedRange() {
+        int sum = 0;
+        for (String value : STRINGED) {
+            sum += DtsHelper.decode_stringed_int(value, 0, value.length());
+        }
+        return sum;
+    }
+
+    /** Baseline: one {@link String#format(String, Object...)} per edited value. */
+    @Benchmark
+    public int inputToHexLegacy() {
+        int length = 0;
+        for (String decimal : decimals) {
+            length += LegacyDtsHelper.inputToHex(decimal).length();
+        }
+        return length;
+    }
+
+    /** Emits every cell into one reused builder. */
+    @Benchmark
+    public int appendHex() {
+        out.setLength(0);
+        for (int value : values) {
+            DtsHelper.append_hex(out, value, true).append(' ');
+        }
+        return out.length();
+    }
+}
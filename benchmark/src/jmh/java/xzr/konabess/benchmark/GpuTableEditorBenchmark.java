@@ -0,0 +1,129 @@
+package xzr.konabess.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import xzr.konabess.utils.DtsScanner;
+import xzr.konabess.utils.DtsSpliceWriter;
+import xzr.konabess.utils.GpuTable;
+
+/**
+ * Drives the DTS-mode steps of {@code GpuTableEditor} on fixtures of increasing size.
+ *
+ * <p>The editor itself needs an Android activity, so each benchmark calls the utilities it
+ * delegates to in the same order: {@code init} scans the file, {@code decode} parses the first
+ * line of each property into a {@link GpuTable}, {@code genTable} formats every property, and
+ * {@code writeOut} splices them back and scans again. Writing an unchanged table reproduces the
+ * file byte for byte, so every invocation sees the same input.
+ *
+ * <p>Throughput and sampled latency, including p99, are reported for every step; run with the
+ * {@code gc} profiler for allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GpuTableEditorBenchmark {
+    /** Fixture to load: a synthetic size or the board-sized Exynos 9820 tree. */
+    @Param({"64k", "1m", "8m", DtsFixtures.EXYNOS9820})
+    public String fixture;
+
+    private Path dir;
+    private Path dts;
+    private DtsScanner.result scan;
+    private GpuTable table;
+
+    /**
+     * Writes the fixture and decodes it once for the later steps.
+     *
+     * @throws IOException if the fixture cannot be written or scanned
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("konabess-bench");
+        dts = dir.resolve(fixture + ".dts");
+        DtsFixtures.write(fixture, dts);
+
+        scan = DtsScanner.scanGpuProperties(dts);
+        table = decode();
+    }
+
+    /**
+     * Deletes the fixture directory.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    /**
+     * Scans the DTS for the GPU property lines, as {@code GpuTableEditor.init} does.
+     *
+     * @return scan result
+     * @throws IOException if the fixture cannot be read
+     */
+    @Benchmark
+    public DtsScanner.result init() throws IOException {
+        return DtsScanner.scanGpuProperties(dts);
+    }
+
+    /**
+     * Parses the scanned property lines into a table, as {@code GpuTableEditor.decode} does.
+     *
+     * @return decoded table
+     */
+    @Benchmark
+    public GpuTable decode() {
+        int[][] cells = new int[GpuTable.PROPERTIES.length][];
+        for (int type = 0; type < cells.length; type++) {
+            cells[type] = GpuTable.parseCells(scan.first[type].text);
+        }
+        return GpuTable.fromCells(cells[0], cells[1], cells[2], cells[3], cells[4]);
+    }
+
+    /**
+     * Formats every property, as the {@code GpuTableEditor.genTable} calls of a save do.
+     *
+     * @return formatted properties
+     */
+    @Benchmark
+    public String[] genTable() {
+        String[] properties = new String[GpuTable.PROPERTIES.length];
+        for (int type = 0; type < properties.length; type++) {
+            properties[type] = table.format(type);
+        }
+        return properties;
+    }
+
+    /**
+     * Splices the formatted properties into the DTS and scans it again, as
+     * {@code GpuTableEditor.writeOut} does.
+     *
+     * @return scan of the rewritten file
+     * @throws IOException if the fixture cannot be rewritten
+     */
+    @Benchmark
+    public DtsScanner.result writeOut() throws IOException {
+        DtsSpliceWriter.splice(dts, scan, genTable());
+        return DtsScanner.scanGpuProperties(dts);
+    }
+}
@@ -0,0 +1,67 @@
+package xzr.konabess.benchmark;
+
+/**
+ * Frozen copy of the string-based {@code DtsHelper} scalar decoding, kept as the benchmark
+ * baseline.
+ */
+final class LegacyDtsHelper {
+    private LegacyDtsHelper() {
+    }
+
+    /**
+     * Decodes a quoted three-character value with a regex and chained replacements.
+     *
+     * @param input quoted DTS value
+     * @return packed value in source order
+     */
+    static int decode_stringed_int(String input) {
+        input = input.replaceAll("\"|;|\\\\\"", "")
+                .replace("\\a", "\7")
+                .replace("\\b", "\b")
+                .replace("\\f", "\f")
+                .replace("\\n", "\n")
+                .replace("\\r", "\r")
+                .replace("\\t", "\t")
+                .replace("\\v", "\11")
+                .replace("\\\\", "\\")
+                .replace("\\'", "'")
+                .trim();
+
+        if (input.length() != 3) {
+            throw new IllegalArgumentException(
+                    "Invalid input length. Expected 3 characters, got: " + input.length());
+        }
+
+        int result = 0;
+        for (int i = 0; i < input.length(); i++) {
+            result = (result << 8) | input.charAt(i);
+        }
+        return result;
+    }
+
+    /**
+     * Parses one scalar token through substrings and {@link Long#parseLong(String, int)}.
+     *
+     * @param line scalar value token
+     * @return parsed value
+     */
+    static long decode_int_line(String line) {
+        line = line.trim();
+        if (line.contains("\"")) {
+            return decode_stringed_int(line);
+        } else if (line.startsWith("0x") || line.startsWith("0X")) {
+            return Long.parseLong(line.substring(2).trim(), 16);
+        }
+        return Long.parseLong(line.trim());
+    }
+
+    /**
+     * Formats a decimal integer string through {@link String#format(String, Object...)}.
+     *
+     * @param input decimal integer
+     * @return value prefixed with {@code 0x}
+     */
+    static String inputToHex(String input) {
+        return String.format("0x%X", Integer.parseInt(input));
+    }
+}
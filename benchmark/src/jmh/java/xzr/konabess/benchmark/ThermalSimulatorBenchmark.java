@@ -0,0 +1,93 @@
+package xzr.konabess.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import xzr.konabess.sim.PowerModel;
+import xzr.konabess.sim.ThermalSimulator;
+import xzr.konabess.utils.GpuTable;
+
+/**
+ * Runs a batch of candidate GPU tables through one {@link ThermalSimulator}, as the CLI's
+ * {@code thermal} command does.
+ *
+ * <p>Candidates are the stock Exynos 9820 table with its fastest row raised in 13 MHz steps. The
+ * simulator and result holder are reused, so with the {@code gc} profiler
+ * {@code gc.alloc.rate.norm} should stay near zero bytes per operation however many candidates a
+ * batch holds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ThermalSimulatorBenchmark {
+    /** Frequencies of the stock 9820 {@code gpu_dvfs_table}, fastest first, in kHz. */
+    private static final long[] STOCK_9820 = {702000, 676000, 650000, 598000, 572000, 433000,
+            377000, 325000, 260000, 200000, 156000, 100000};
+
+    /** Candidate tables simulated per operation. */
+    @Param({"1", "100"})
+    public int candidates;
+
+    private GpuTable[] tables;
+    private ThermalSimulator simulator;
+    private ThermalSimulator.result result;
+    private PowerModel model;
+    private double[] ambient;
+
+    /** Builds the candidates, the simulator and a ten-minute ambient ramp. */
+    @Setup
+    public void setup() {
+        int width = 1 + GpuTable.META_CELLS;
+        tables = new GpuTable[candidates];
+        for (int i = 0; i < candidates; i++) {
+            int[] cells = new int[STOCK_9820.length * width];
+            for (int row = 0; row < STOCK_9820.length; row++) {
+                cells[row * width] = (int) STOCK_9820[row];
+            }
+            cells[0] += 13000 * i;
+            tables[i] = GpuTable.fromCells(new int[]{STOCK_9820.length, width}, cells,
+                    new int[]{cells[0]}, new int[]{cells[0]}, new int[]{100000});
+        }
+
+        ThermalSimulator.params params = new ThermalSimulator.params();
+        params.switchOnTemperature = 65;
+        params.controlTemperature = 88;
+        params.kPo = 60;
+        params.kPu = 60;
+        params.kI = 10;
+        params.integralMax = 600;
+        params.integralCutoff = 23;
+        params.sustainablePower = 1700;
+        simulator = new ThermalSimulator(params);
+        result = new ThermalSimulator.result();
+
+        // Roughly cubic in frequency, reaching 4 W at 702 MHz.
+        model = frequency -> 4000 * Math.pow(frequency / 702000.0, 3);
+        ambient = new double[600];
+        for (int i = 0; i < ambient.length; i++) {
+            ambient[i] = 25 + i / 60.0;
+        }
+    }
+
+    /**
+     * Simulates every candidate.
+     *
+     * @return sum of the sustained frequencies, so the runs are not eliminated
+     */
+    @Benchmark
+    public double simulateBatch() {
+        double sum = 0;
+        for (GpuTable table : tables) {
+            sum += simulator.run(table, model, ambient, 1, result).sustainedFrequency;
+        }
+        return sum;
+    }
+}
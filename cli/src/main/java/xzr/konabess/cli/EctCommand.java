@@ -0,0 +1,87 @@
+package xzr.konabess.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import xzr.konabess.ect.EctPatcher;
+import xzr.konabess.ect.EctReader;
+
+/**
+ * Adds a GPU level to a dump of the ECT firmware blob.
+ *
+ * <p>The input blob is copied to the output and the copy is patched in place: a
+ * {@code dvfs_g3d} level is inserted with the clock values of its neighbour, together with a row
+ * in every ASV voltage table holding the neighbour's voltages, and the blob's size and offsets are
+ * adjusted to match.
+ *
+ * <pre>
+ * konabess ect &lt;blob&gt; &lt;level&gt; &lt;kHz&gt; &lt;output blob&gt;
+ * </pre>
+ */
+public class EctCommand {
+    /**
+     * Runs the command.
+     *
+     * @param args input blob, level index, frequency in kHz and output blob
+     * @return exit status: 0 on success, 1 if the blob cannot be patched, 2 on a usage error
+     */
+    static int run(String[] args) {
+        if (args.length != 4) {
+            System.err.println("Usage: konabess ect <blob> <level> <kHz> <output blob>");
+            return 2;
+        }
+
+        int level;
+        long frequency;
+        try {
+            level = Integer.parseInt(args[1]);
+            frequency = Long.parseLong(args[2]);
+        } catch (NumberFormatException e) {
+            System.err.println("Malformed number: " + e.getMessage());
+            return 2;
+        }
+        if (frequency <= 0 || frequency > 0xffffffffL) {
+            System.err.println("Frequency out of range: " + frequency);
+            return 2;
+        }
+
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[3]);
+        if (input.toAbsolutePath().normalize().equals(output.toAbsolutePath().normalize())) {
+            System.err.println("Output blob must differ from the input blob");
+            return 2;
+        }
+        try {
+            Files.copy(input, output, StandardCopyOption.REPLACE_EXISTING);
+
+            EctPatcher patcher = EctPatcher.open(output);
+            long[] before = patcher.reader().dvfsDomain(EctPatcher.G3D).levels;
+            patcher.insertLevel(EctPatcher.G3D, level, frequency, null);
+            patcher.force();
+
+            EctReader reader = patcher.reader();
+            long changed = 0;
+            for (int[] range : patcher.dirtyRanges()) {
+                changed += range[1];
+            }
+            System.out.println("Before: " + Arrays.toString(before));
+            System.out.println("After:  "
+                    + Arrays.toString(reader.dvfsDomain(EctPatcher.G3D).levels));
+            System.out.println("Total size " + reader.totalSize + " bytes, " + changed
+                    + " bytes rewritten");
+            return 0;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            try {
+                Files.deleteIfExists(output);
+            } catch (IOException ignored) {
+                // The message above already reports the failure.
+            }
+            return 1;
+        }
+    }
+}
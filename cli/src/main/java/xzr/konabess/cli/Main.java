@@ -0,0 +1,388 @@
+package xzr.konabess.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import xzr.konabess.ect.PllSolver;
+import xzr.konabess.utils.ChipDetector;
+import xzr.konabess.utils.DtbExtractor;
+import xzr.konabess.utils.DtbPatcher;
+import xzr.konabess.utils.DtbRepacker;
+import xzr.konabess.utils.DtsScanner;
+import xzr.konabess.utils.DtsSpliceWriter;
+import xzr.konabess.utils.FdtReader;
+import xzr.konabess.utils.GpuTable;
+
+/**
+ * Applies one {@link TableSpec} to every image and DTS in a directory, without a device.
+ *
+ * <p>Each file goes through the editor's steps: the GPU properties are decoded into a
+ * {@link GpuTable}, the spec edits it, and the generated properties are written back. Images
+ * ({@code dtb.img}, {@code dtbo.img} or {@code boot.img}) get every embedded DTB that carries a
+ * GPU table patched in place and are repacked to the same length. A bare DTB has no container
+ * size to keep, so it is written out patched and may grow. DTS files get the property lines
+ * spliced over the originals. The chip is detected per DTB, or per DTS, so that {@code set}
+ * frequencies are snapped to the GPU PLL only where its limits are known; every snapped value is
+ * listed under its file in the summary. Files are processed in parallel, one per core, and the
+ * results are written under the output directory with their original names.
+ *
+ * <pre>
+ * konabess &lt;input dir&gt; &lt;table spec&gt; &lt;output dir&gt;
+ * </pre>
+ *
+ * <p>The exit status is 1 if any file failed and 2 on a usage error. A first argument naming a
+ * subcommand runs that command instead: {@code ect} patches an ECT blob, see
+ * {@link EctCommand}, {@code thermal} compares tables under sustained load, see
+ * {@link ThermalCommand}, and {@code replay} runs utilization traces through the governor, see
+ * {@link ReplayCommand}.
+ */
+public class Main {
+    /**
+     * Runs the batch and prints a per-file summary.
+     *
+     * @param args input directory, spec file and output directory
+     */
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            String[] rest = Arrays.copyOfRange(args, 1, args.length);
+            switch (args[0]) {
+                case "ect" -> System.exit(EctCommand.run(rest));
+                case "thermal" -> System.exit(ThermalCommand.run(rest));
+                case "replay" -> System.exit(ReplayCommand.run(rest));
+            }
+        }
+        if (args.length != 3) {
+            System.err.println("Usage: konabess <input dir> <table spec> <output dir>");
+            System.err.println("       konabess ect <blob> <level> <kHz> <output blob>");
+            System.err.println("       konabess thermal <ect blob> <asv group> <ambient> <table...>");
+            System.err.println("       konabess replay <table> <trace...>");
+            System.exit(2);
+        }
+
+        try {
+            Path input = Paths.get(args[0]);
+            Path output = Paths.get(args[2]);
+            TableSpec spec = TableSpec.read(Paths.get(args[1]));
+            Files.createDirectories(output);
+            if (Files.isSameFile(input, output)) {
+                throw new IOException("Output directory must differ from the input directory");
+            }
+
+            long start = System.nanoTime();
+            List<result> results = run(list(input), spec, output);
+            long wall = System.nanoTime() - start;
+
+            System.exit(summarize(results, wall) ? 0 : 1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Lists the files of a directory the runner can process.
+     *
+     * @param directory input directory
+     * @return {@code .img}, {@code .dtb} and {@code .dts} files in name order
+     * @throws IOException if the directory cannot be listed or holds no such file
+     */
+    static List<Path> list(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            entries.filter(Files::isRegularFile)
+                    .filter(path -> {
+                        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+                        return name.endsWith(".img") || name.endsWith(".dtb")
+                                || name.endsWith(".dts");
+                    })
+                    .sorted()
+                    .forEach(files::add);
+        }
+        if (files.isEmpty()) {
+            throw new IOException("No .img, .dtb or .dts file in " + directory);
+        }
+        return files;
+    }
+
+    /**
+     * Processes files in parallel on a pool sized to the machine.
+     *
+     * @param files files to process
+     * @param spec edits to apply
+     * @param output output directory
+     * @return results in file order
+     * @throws IOException if the batch is interrupted
+     */
+    static List<result> run(List<Path> files, TableSpec spec, Path output) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(files.size(), Runtime.getRuntime().availableProcessors())));
+        try {
+            List<Callable<result>> tasks = new ArrayList<>();
+            for (Path file : files) {
+                tasks.add(() -> process(file, spec, output.resolve(file.getFileName())));
+            }
+
+            List<result> results = new ArrayList<>();
+            for (Future<result> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing images", e);
+        } catch (ExecutionException e) {
+            // process() reports its own failures, so this is a bug in the runner.
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Processes one file and times it.
+     *
+     * @param file input file
+     * @param spec edits to apply
+     * @param target output file
+     * @return outcome; failures are recorded rather than thrown
+     */
+    static result process(Path file, TableSpec spec, Path target) {
+        result result = new result();
+        result.file = file;
+        long start = System.nanoTime();
+        try {
+            if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".dts")) {
+                processDts(file, spec, target, result);
+            } else {
+                processImage(file, spec, target, result);
+            }
+        } catch (IOException | RuntimeException e) {
+            result.error = e.getMessage() != null ? e.getMessage() : e.toString();
+            try {
+                Files.deleteIfExists(target);
+            } catch (IOException ignored) {
+                // The summary already reports the file as failed.
+            }
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Patches every DTB of an image that carries a GPU table and repacks the image.
+     *
+     * <p>A file that is a single bare DTB is written patched, free to grow.
+     *
+     * @param file input image
+     * @param spec edits to apply
+     * @param target output image
+     * @param result receives the blob counts
+     * @throws IOException if the image is malformed, has no GPU table, or cannot be written
+     */
+    private static void processImage(Path file, TableSpec spec, Path target, result result)
+            throws IOException {
+        DtbExtractor.image image = DtbExtractor.open(file);
+        if (image.blobs.isEmpty()) {
+            throw new IOException("No DTB found");
+        }
+
+        ByteBuffer[] replacements = new ByteBuffer[image.blobs.size()];
+        for (DtbExtractor.blob blob : image.blobs) {
+            FdtReader.gpuProperties gpu;
+            try {
+                gpu = FdtReader.readGpuProperties(blob.data.duplicate());
+            } catch (IOException e) {
+                // Variants for other boards may lack the GPU node; leave them untouched.
+                continue;
+            }
+
+            FdtReader.property[] properties = gpu.properties;
+            GpuTable table = GpuTable.fromCells(properties[0].cells, properties[1].cells,
+                    properties[2].cells, properties[3].cells, properties[4].cells);
+            record(result, spec.apply(table, pll(blob.data.duplicate())));
+
+            int[][] values = new int[GpuTable.PROPERTIES.length][];
+            for (int type = 0; type < values.length; type++) {
+                values[type] = table.cells(type);
+            }
+            replacements[blob.index] = DtbPatcher.patch(blob.data.duplicate(), properties, values);
+            result.rows = table.rows();
+            result.patched++;
+        }
+        result.blobs = image.blobs.size();
+        if (result.patched == 0) {
+            throw new IOException("No DTB has a GPU table");
+        }
+
+        if (image.blobs.size() == 1 && image.blobs.get(0).offset == 0
+                && image.blobs.get(0).size == image.buffer.limit()) {
+            DtbPatcher.write(replacements[0], target);
+        } else {
+            DtbRepacker.repack(image, replacements, target);
+        }
+    }
+
+    /**
+     * Splices the edited GPU properties into a copy of a DTS.
+     *
+     * @param file input DTS
+     * @param spec edits to apply
+     * @param target output DTS
+     * @param result receives the row count
+     * @throws IOException if a GPU property is missing or the copy cannot be written
+     */
+    private static void processDts(Path file, TableSpec spec, Path target, result result)
+            throws IOException {
+        DtsScanner.result scan = DtsScanner.scanGpuProperties(file);
+        int[][] cells = new int[DtsScanner.GPU_PATTERNS.length][];
+        for (int type = 0; type < cells.length; type++) {
+            DtsScanner.range first = scan.first[type];
+            if (first == null) {
+                throw new IOException("Missing " + GpuTable.PROPERTIES[type]);
+            }
+            cells[type] = GpuTable.parseCells(first.text);
+        }
+        GpuTable table = GpuTable.fromCells(cells[0], cells[1], cells[2], cells[3], cells[4]);
+        record(result, spec.apply(table, pll(ByteBuffer.wrap(Files.readAllBytes(file)))));
+
+        String[] properties = new String[cells.length];
+        for (int type = 0; type < properties.length; type++) {
+            properties[type] = table.format(type);
+        }
+
+        Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+        DtsSpliceWriter.splice(target, scan, properties);
+        result.blobs = 1;
+        result.patched = 1;
+        result.rows = table.rows();
+    }
+
+    /**
+     * Picks the PLL index for the chip a DTB or DTS names.
+     *
+     * @param data blob or DTS text, starting at position zero
+     * @return solver of the first chip named, or {@code null} if no chip with known PLL limits is
+     *     named
+     */
+    private static PllSolver pll(ByteBuffer data) {
+        List<ChipDetector.match> matches = ChipDetector.detect(data);
+        return matches.isEmpty() ? null
+                : PllSolver.forChip(ChipDetector.CHIPS[matches.get(0).chip]);
+    }
+
+    /**
+     * Adds snapping messages to a file's result, once each across its DTBs.
+     *
+     * @param result result of the file
+     * @param adjustments messages returned by {@link TableSpec#apply}
+     */
+    private static void record(result result, List<String> adjustments) {
+        for (String adjustment : adjustments) {
+            if (!result.adjustments.contains(adjustment)) {
+                result.adjustments.add(adjustment);
+            }
+        }
+    }
+
+    /**
+     * Reads the first GPU table of an image, DTB or DTS.
+     *
+     * @param file input file
+     * @return decoded table
+     * @throws IOException if the file is malformed or carries no GPU table
+     */
+    static GpuTable readTable(Path file) throws IOException {
+        if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".dts")) {
+            DtsScanner.result scan = DtsScanner.scanGpuProperties(file);
+            int[][] cells = new int[DtsScanner.GPU_PATTERNS.length][];
+            for (int type = 0; type < cells.length; type++) {
+                if (scan.first[type] == null) {
+                    throw new IOException("Missing " + GpuTable.PROPERTIES[type]);
+                }
+                cells[type] = GpuTable.parseCells(scan.first[type].text);
+            }
+            return GpuTable.fromCells(cells[0], cells[1], cells[2], cells[3], cells[4]);
+        }
+
+        for (DtbExtractor.blob blob : DtbExtractor.open(file).blobs) {
+            FdtReader.property[] properties;
+            try {
+                properties = FdtReader.readGpuProperties(blob.data.duplicate()).properties;
+            } catch (IOException e) {
+                continue;
+            }
+            return GpuTable.fromCells(properties[0].cells, properties[1].cells,
+                    properties[2].cells, properties[3].cells, properties[4].cells);
+        }
+        throw new IOException("No DTB has a GPU table");
+    }
+
+    /**
+     * Prints one line per file and the totals.
+     *
+     * @param results results in file order
+     * @param wall elapsed time of the whole batch in nanoseconds
+     * @return {@code true} if every file succeeded
+     */
+    private static boolean summarize(List<result> results, long wall) {
+        int width = 4;
+        for (result result : results) {
+            width = Math.max(width, result.file.getFileName().toString().length());
+        }
+
+        long busy = 0;
+        int failed = 0;
+        for (result result : results) {
+            busy += result.nanos;
+            String status = result.error == null
+                    ? String.format(Locale.ROOT, "%d/%d DTBs, %d rows", result.patched,
+                    result.blobs, result.rows)
+                    : "FAILED: " + result.error;
+            if (result.error != null) {
+                failed++;
+            }
+            System.out.printf(Locale.ROOT, "%-" + width + "s %9.1f ms  %s%n",
+                    result.file.getFileName(), result.nanos / 1e6, status);
+            if (result.error == null) {
+                for (String adjustment : result.adjustments) {
+                    System.out.println("  " + adjustment);
+                }
+            }
+        }
+        System.out.printf(Locale.ROOT, "%d files, %d failed, %.1f ms wall, %.1f ms total%n",
+                results.size(), failed, wall / 1e6, busy / 1e6);
+        return failed == 0;
+    }
+
+    /** Outcome of one file. */
+    static class result {
+        /** Input file. */
+        Path file;
+        /** DTBs in the file; a DTS counts as one. */
+        int blobs;
+        /** DTBs whose GPU table was patched. */
+        int patched;
+        /** Rows of the last patched table. */
+        int rows;
+        /** Processing time in nanoseconds. */
+        long nanos;
+        /** Frequencies snapped to the GPU PLL, in spec line order. */
+        final List<String> adjustments = new ArrayList<>();
+        /** Failure message, or {@code null} on success. */
+        String error;
+    }
+}
@@ -0,0 +1,65 @@
+package xzr.konabess.cli;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import xzr.konabess.sim.GovernorReplay;
+import xzr.konabess.sim.UtilizationTrace;
+import xzr.konabess.utils.GpuTable;
+
+/**
+ * Replays recorded GPU utilization traces through the DVFS governor against a table.
+ *
+ * <p>The table is read from an image, DTB or DTS and the replay starts at its
+ * {@code gpu_min_clock}. Traces are CSV or binary, as read by {@link UtilizationTrace#read}, and
+ * are replayed in parallel. For each trace the command prints the transitions per second, the
+ * share of frames missed and the time spent at every row.
+ *
+ * <pre>
+ * konabess replay &lt;table&gt; &lt;trace...&gt;
+ * </pre>
+ */
+public class ReplayCommand {
+    /**
+     * Runs the command.
+     *
+     * @param args image, DTB or DTS file followed by one or more trace files
+     * @return exit status: 0 on success, 1 if a file cannot be read, 2 on a usage error
+     */
+    static int run(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: konabess replay <table> <trace...>");
+            return 2;
+        }
+
+        GpuTable table;
+        List<UtilizationTrace> traces = new ArrayList<>();
+        try {
+            table = Main.readTable(Paths.get(args[0]));
+            for (int i = 1; i < args.length; i++) {
+                traces.add(UtilizationTrace.read(Paths.get(args[i])));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+
+        GovernorReplay replay = new GovernorReplay(table, table.minClock);
+        GovernorReplay.result[] results = replay.replayAll(traces, ForkJoinPool.commonPool());
+        for (GovernorReplay.result result : results) {
+            System.out.printf(Locale.ROOT, "%s: %.1f s, %.2f transitions/s, %.1f%% frames missed%n",
+                    result.name, result.duration, result.transitionsPerSecond,
+                    result.frames == 0 ? 0 : result.missedFrames * 100 / result.frames);
+            for (int row = 0; row < table.rows(); row++) {
+                System.out.printf(Locale.ROOT, "  %4d MHz %6.1f%%%n", table.frequency(row) / 1000,
+                        result.duration == 0 ? 0
+                                : result.timeInState[row] * 100 / result.duration);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,190 @@
+package xzr.konabess.cli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import xzr.konabess.ect.PllSolver;
+import xzr.konabess.utils.GpuTable;
+
+/**
+ * Edits to apply to every GPU table of a batch, in the order the editor would make them.
+ *
+ * <p>A spec is a text file with one operation per line. Rows are indexed like the editor's list,
+ * fastest first, and {@code last} names the slowest row at the time the operation runs. Blank
+ * lines and text after {@code #} are ignored.
+ *
+ * <pre>
+ * insert 0 0         # copy row 0 above itself, like the prepend row
+ * set 0 754000       # frequency of row 0 in kHz
+ * insert last last   # copy the slowest row below itself, like the append row
+ * remove last
+ * </pre>
+ *
+ * <p>On a chip whose PLL limits are known, frequencies given to {@code set} are snapped to the
+ * nearest one the GPU PLL can produce and every change is reported, since the batch has no one to
+ * confirm it the way the editor asks. Elsewhere they are written as given. After the operations
+ * the clock limits are derived from the rows, as the editor does before every save.
+ */
+public class TableSpec {
+    /** Stands for the slowest row, or for the end of the table as an insertion point. */
+    private static final long LAST = -1;
+
+    private final List<operation> operations = new ArrayList<>();
+
+    /**
+     * Reads a spec file.
+     *
+     * @param path spec file
+     * @return parsed spec
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public static TableSpec read(Path path) throws IOException {
+        return parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses spec text.
+     *
+     * @param text spec text
+     * @return parsed spec
+     * @throws IOException if a line is malformed
+     */
+    public static TableSpec parse(String text) throws IOException {
+        TableSpec spec = new TableSpec();
+        String[] lines = text.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            String[] words = line.split("\\s+");
+            operation operation = new operation();
+            operation.line = i + 1;
+            operation.action = words[0];
+            int arguments = switch (operation.action) {
+                case "set", "insert" -> 2;
+                case "remove" -> 1;
+                default -> throw new IOException("Unknown operation on line " + operation.line
+                        + ": " + words[0]);
+            };
+            if (words.length != arguments + 1) {
+                throw new IOException("Expected " + arguments + " arguments on line "
+                        + operation.line + ": " + line);
+            }
+            try {
+                operation.first = row(words[1]);
+                if (arguments == 2) {
+                    operation.second = operation.action.equals("set")
+                            ? Long.parseLong(words[2])
+                            : row(words[2]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed number on line " + operation.line + ": " + line, e);
+            }
+            if (operation.action.equals("set")
+                    && (operation.second <= 0 || operation.second > 0xffffffffL)) {
+                throw new IOException("Frequency out of range on line " + operation.line + ": "
+                        + operation.second);
+            }
+            spec.operations.add(operation);
+        }
+        return spec;
+    }
+
+    /**
+     * Applies the operations to a table and derives its clock limits.
+     *
+     * @param table table to edit
+     * @param pll {@code PLL_G3D} index of the table's chip, or {@code null} to write frequencies
+     *     as given
+     * @return one message per snapped {@code set}, in line order
+     * @throws IllegalArgumentException if an operation addresses a missing row or would leave the
+     *     table empty
+     */
+    public List<String> apply(GpuTable table, PllSolver pll) {
+        List<String> adjustments = new ArrayList<>();
+        for (operation operation : operations) {
+            try {
+                switch (operation.action) {
+                    case "set" -> {
+                        long frequency = pll == null ? operation.second
+                                : pll.nearest(operation.second).frequency;
+                        if (frequency != operation.second) {
+                            adjustments.add("line " + operation.line + ": " + operation.second
+                                    + " kHz cannot be produced by the GPU PLL; wrote "
+                                    + frequency + " kHz instead");
+                        }
+                        table.setFrequency(resolve(operation.first, table), frequency);
+                    }
+                    case "insert" -> {
+                        // As an insertion point, "last" is the end of the table.
+                        int at = operation.first == LAST ? table.rows() : (int) operation.first;
+                        table.insertCopy(at, resolve(operation.second, table));
+                    }
+                    case "remove" -> {
+                        if (table.rows() == 1) {
+                            throw new IllegalArgumentException("Cannot remove the only row");
+                        }
+                        table.remove(resolve(operation.first, table));
+                    }
+                }
+            } catch (IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Line " + operation.line + ": "
+                        + e.getMessage(), e);
+            }
+        }
+        table.syncLimits();
+        return adjustments;
+    }
+
+    /**
+     * Parses a row argument.
+     *
+     * @param word row index or {@code last}
+     * @return row index, or {@link #LAST}
+     * @throws NumberFormatException if the word is neither
+     */
+    private static long row(String word) {
+        if (word.equals("last")) {
+            return LAST;
+        }
+        int row = Integer.parseInt(word);
+        if (row < 0) {
+            throw new NumberFormatException("Negative row: " + word);
+        }
+        return row;
+    }
+
+    /**
+     * Resolves a row argument against the current table.
+     *
+     * @param row row index, or {@link #LAST}
+     * @param table table being edited
+     * @return row index
+     */
+    private static int resolve(long row, GpuTable table) {
+        return row == LAST ? table.rows() - 1 : (int) row;
+    }
+
+    /** One parsed spec line. */
+    private static class operation {
+        /** One-based line number, for error messages. */
+        int line;
+        /** {@code set}, {@code insert} or {@code remove}. */
+        String action;
+        /** Target row, or {@link #LAST}. */
+        long first;
+        /** Frequency in kHz for {@code set}, source row for {@code insert}. */
+        long second;
+    }
+}
@@ -0,0 +1,192 @@
+package xzr.konabess.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import xzr.konabess.ect.AsvLookup;
+import xzr.konabess.ect.EctReader;
+import xzr.konabess.sim.EnergyModel;
+import xzr.konabess.sim.ThermalSimulator;
+import xzr.konabess.utils.ChipDetector;
+import xzr.konabess.utils.GpuTable;
+
+/**
+ * Compares candidate GPU tables under sustained full load with {@link ThermalSimulator}.
+ *
+ * <p>The controller gains and trip temperatures come from the {@code G3D} PIDTM block of an ECT
+ * blob, and the power of each level from {@link EnergyModel} over the blob's ASV tables for the
+ * chip named by the table file. The ambient is a temperature in degrees Celsius, or a file holding
+ * one temperature per line for each second. Every table is run through the same simulator and
+ * result holder, and one line per table reports its sustained and average frequency, the time to
+ * the first throttle and the peak temperature.
+ *
+ * <pre>
+ * konabess thermal &lt;ect blob&gt; &lt;asv group&gt; &lt;ambient&gt; &lt;table...&gt;
+ * </pre>
+ */
+public class ThermalCommand {
+    /** PIDTM block and AP thermal function of the GPU. */
+    private static final String G3D = "G3D";
+    /** ASV domain of the GPU. */
+    private static final String ASV_DOMAIN = "dvfs_g3d";
+
+    /**
+     * Runs the command.
+     *
+     * @param args ECT blob, ASV group, ambient and one or more image, DTB or DTS files
+     * @return exit status: 0 on success, 1 if any table failed, 2 on a usage error
+     */
+    static int run(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Usage: konabess thermal <ect blob> <asv group> <ambient> "
+                    + "<table...>");
+            return 2;
+        }
+
+        ThermalSimulator simulator;
+        AsvLookup asv;
+        int group;
+        double[] ambient;
+        try {
+            group = Integer.parseInt(args[1]);
+            ambient = ambient(args[2]);
+            EctReader reader = EctReader.open(Paths.get(args[0]));
+            simulator = new ThermalSimulator(params(reader));
+            asv = AsvLookup.from(reader);
+        } catch (NumberFormatException e) {
+            System.err.println("Malformed number: " + e.getMessage());
+            return 2;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+
+        int width = 4;
+        for (int i = 3; i < args.length; i++) {
+            width = Math.max(width, Paths.get(args[i]).getFileName().toString().length());
+        }
+        System.out.printf(Locale.ROOT, "%-" + width + "s %14s %14s %10s %8s%n", "file",
+                "sustained MHz", "average MHz", "throttle s", "peak C");
+
+        boolean failed = false;
+        ThermalSimulator.result result = new ThermalSimulator.result();
+        for (int i = 3; i < args.length; i++) {
+            Path file = Paths.get(args[i]);
+            String name = file.getFileName().toString();
+            try {
+                GpuTable table = Main.readTable(file);
+                EnergyModel model = model(file, asv, group);
+                for (int row = 0; row < table.rows(); row++) {
+                    long frequency = table.frequency(row);
+                    if (frequency != 0 && Double.isNaN(model.power(frequency))) {
+                        throw new IOException("No ASV voltage for " + frequency + " kHz");
+                    }
+                }
+
+                simulator.run(table, model, ambient, 1, result);
+                System.out.printf(Locale.ROOT, "%-" + width + "s %14.1f %14.1f %10s %8.1f%n",
+                        name, result.sustainedFrequency / 1000, result.averageFrequency / 1000,
+                        result.throttleTime < 0 ? "never"
+                                : String.format(Locale.ROOT, "%.1f", result.throttleTime),
+                        result.peakTemperature);
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                System.out.printf(Locale.ROOT, "%-" + width + "s FAILED: %s%n", name,
+                        e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }
+        return failed ? 1 : 0;
+    }
+
+    /**
+     * Builds the controller parameters of the GPU from an ECT blob.
+     *
+     * @param reader ECT reader
+     * @return parameters with the AP thermal caps of the GPU, if the blob has any
+     * @throws IOException if the blob has no {@code G3D} PIDTM block
+     */
+    private static ThermalSimulator.params params(EctReader reader) throws IOException {
+        ThermalSimulator.params params = null;
+        for (EctReader.pidtmBlock block : reader.pidtmBlocks()) {
+            if (block.name.equals(G3D)) {
+                params = ThermalSimulator.fromPidtm(block);
+            }
+        }
+        if (params == null) {
+            throw new IOException("ECT has no " + G3D + " PIDTM block");
+        }
+        for (EctReader.thermalFunction function : reader.thermalFunctions()) {
+            if (function.name.equals(G3D)) {
+                params.caps = function;
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Builds the power model of the chip a table file was made for.
+     *
+     * @param file image, DTB or DTS
+     * @param asv ASV voltage tables
+     * @param group ASV group
+     * @return calibrated model
+     * @throws IOException if the file names no supported chip or its chip has no calibration
+     */
+    private static EnergyModel model(Path file, AsvLookup asv, int group) throws IOException {
+        List<ChipDetector.match> matches =
+                ChipDetector.detect(ByteBuffer.wrap(Files.readAllBytes(file)));
+        if (matches.isEmpty()) {
+            throw new IOException("No supported chip named");
+        }
+        String chip = ChipDetector.CHIPS[matches.get(0).chip];
+        EnergyModel model = EnergyModel.forChip(chip, asv, ASV_DOMAIN, group);
+        if (model == null) {
+            throw new IOException("No power calibration for " + chip);
+        }
+        return model;
+    }
+
+    /**
+     * Parses the ambient argument.
+     *
+     * @param argument temperature in degrees Celsius, or a file of one temperature per second
+     * @return ambient samples, one per second
+     * @throws IOException if the file cannot be read, holds a malformed line or is empty
+     */
+    private static double[] ambient(String argument) throws IOException {
+        try {
+            return new double[]{Double.parseDouble(argument)};
+        } catch (NumberFormatException e) {
+            // Not a temperature, so it names a profile.
+        }
+
+        List<String> lines = Files.readAllLines(Paths.get(argument), StandardCharsets.UTF_8);
+        List<Double> samples = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                samples.add(Double.parseDouble(line));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed temperature on line " + (i + 1) + ": " + line, e);
+            }
+        }
+        if (samples.isEmpty()) {
+            throw new IOException("No temperature in " + argument);
+        }
+        double[] ambient = new double[samples.size()];
+        for (int i = 0; i < ambient.length; i++) {
+            ambient[i] = samples.get(i);
+        }
+        return ambient;
+    }
+}